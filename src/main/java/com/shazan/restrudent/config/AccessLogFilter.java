@@ -0,0 +1,186 @@
+package com.shazan.restrudent.config;
+
+import com.shazan.restrudent.services.impl.AccessLogWriter;
+import com.shazan.restrudent.services.impl.RequestTimings;
+import com.shazan.restrudent.services.impl.RequestTimings.Stage;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Outermost filter, so the access log timings include authentication. Socket writes are timed
+ * through a thin response wrapper; the rest of the stages are recorded where they happen. Async
+ * requests (server-sent events, streamed passthrough bodies) write after the first dispatch returns,
+ * so they are logged when the async request completes.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class AccessLogFilter extends OncePerRequestFilter {
+    private final AccessLogWriter accessLogWriter;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!accessLogWriter.isEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        RequestTimings timings = RequestTimings.begin(request);
+        TimedResponse timed = new TimedResponse(response, timings);
+        boolean failed = false;
+        try {
+            filterChain.doFilter(request, timed);
+            if (!request.isAsyncStarted()) {
+                // Pushes what is still buffered to the socket now, so it counts as IO
+                long flushStart = System.nanoTime();
+                timed.flushBuffer();
+                timings.add(Stage.IO, System.nanoTime() - flushStart);
+            }
+        } catch (IOException | ServletException | RuntimeException e) {
+            failed = true;
+            throw e;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncCompletion(request, timed, timings));
+            } else {
+                submit(request, timed, timings, failed);
+            }
+        }
+    }
+
+    private void submit(HttpServletRequest request, TimedResponse timed, RequestTimings timings, boolean failed) {
+        long end = System.nanoTime();
+        timings.end();
+        accessLogWriter.submit(request.getMethod(), request.getRequestURI(), timed.getStatus(), end, timings,
+                timed.bytes, failed);
+    }
+
+    // The container always ends with onComplete, also after onError and onTimeout
+    private final class AsyncCompletion implements AsyncListener {
+        private final HttpServletRequest request;
+        private final TimedResponse timed;
+        private final RequestTimings timings;
+        private volatile boolean failed;
+
+        AsyncCompletion(HttpServletRequest request, TimedResponse timed, RequestTimings timings) {
+            this.request = request;
+            this.timed = timed;
+            this.timings = timings;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            submit(request, timed, timings, failed);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // A new async cycle drops the listeners of the last one
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    private static final class TimedResponse extends HttpServletResponseWrapper {
+        private final RequestTimings timings;
+        private ServletOutputStream outputStream;
+        private long bytes;
+
+        TimedResponse(HttpServletResponse response, RequestTimings timings) {
+            super(response);
+            this.timings = timings;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new TimedOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        private final class TimedOutputStream extends ServletOutputStream {
+            private final ServletOutputStream delegate;
+
+            TimedOutputStream(ServletOutputStream delegate) {
+                this.delegate = delegate;
+            }
+
+            // Bodies written outside the message converters (streamed, pre-encoded) start serializing at their first write
+            @Override
+            public void write(int b) throws IOException {
+                timings.markSerializationStart();
+                long start = System.nanoTime();
+                delegate.write(b);
+                timings.add(Stage.IO, System.nanoTime() - start);
+                bytes++;
+            }
+
+            @Override
+            public void write(byte[] buffer, int offset, int length) throws IOException {
+                timings.markSerializationStart();
+                long start = System.nanoTime();
+                delegate.write(buffer, offset, length);
+                timings.add(Stage.IO, System.nanoTime() - start);
+                bytes += length;
+            }
+
+            // Forwarded as is: the inherited default would copy direct buffers into a byte[]
+            @Override
+            public void write(ByteBuffer buffer) throws IOException {
+                int length = buffer.remaining();
+                timings.markSerializationStart();
+                long start = System.nanoTime();
+                delegate.write(buffer);
+                timings.add(Stage.IO, System.nanoTime() - start);
+                bytes += length;
+            }
+
+            @Override
+            public void flush() throws IOException {
+                long start = System.nanoTime();
+                delegate.flush();
+                timings.add(Stage.IO, System.nanoTime() - start);
+            }
+
+            @Override
+            public void close() throws IOException {
+                delegate.close();
+            }
+
+            @Override
+            public boolean isReady() {
+                return delegate.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                delegate.setWriteListener(writeListener);
+            }
+        }
+    }
+}
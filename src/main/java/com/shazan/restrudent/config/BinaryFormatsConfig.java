@@ -0,0 +1,42 @@
+package com.shazan.restrudent.config;
+
+import org.springframework.boot.http.converter.autoconfigure.ServerHttpMessageConvertersCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.JacksonCborHttpMessageConverter;
+import org.springframework.http.converter.smile.JacksonSmileHttpMessageConverter;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.cbor.CBORWriteFeature;
+import tools.jackson.dataformat.smile.SmileMapper;
+import tools.jackson.dataformat.smile.SmileWriteFeature;
+
+/**
+ * Smile ({@code application/x-jackson-smile}) and CBOR ({@code application/cbor}) alongside JSON,
+ * picked by the Accept and Content-Type headers. Both back-reference repeated field names and
+ * string values, which is where most of the bytes in restaurant pages go. The tuned converters take
+ * the default Smile and CBOR slots, after JSON, so a client sending no Accept or {@code *}{@code /*}
+ * still gets JSON.
+ */
+@Configuration
+public class BinaryFormatsConfig {
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    @Bean
+    public ServerHttpMessageConvertersCustomizer binaryFormatsCustomizer() {
+        return builder -> builder
+                .withSmileConverter(new JacksonSmileHttpMessageConverter(smileMapper()))
+                .withCborConverter(new JacksonCborHttpMessageConverter(cborMapper()));
+    }
+
+    public static SmileMapper smileMapper() {
+        return SmileMapper.builder()
+                .enable(SmileWriteFeature.CHECK_SHARED_NAMES, SmileWriteFeature.CHECK_SHARED_STRING_VALUES)
+                .build();
+    }
+
+    public static CBORMapper cborMapper() {
+        return CBORMapper.builder()
+                .enable(CBORWriteFeature.STRINGREF)
+                .build();
+    }
+}
@@ -0,0 +1,81 @@
+package com.shazan.restrudent.config;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers tokens the delegate has already validated, keyed by the SHA-256 of the token, until
+ * they expire. Clients reuse one access token for many calls, so most requests skip signature
+ * verification and claim parsing. Tokens without an expiry and failed decodes are never cached.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+    private final JwtDecoder delegate;
+    private final int maxEntries;
+    private final Clock clock;
+    private final ConcurrentHashMap<ByteBuffer, Jwt> tokens = new ConcurrentHashMap<>();
+
+    public CachingJwtDecoder(JwtDecoder delegate, int maxEntries) {
+        this(delegate, maxEntries, Clock.systemUTC());
+    }
+
+    CachingJwtDecoder(JwtDecoder delegate, int maxEntries, Clock clock) {
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        ByteBuffer key = ByteBuffer.wrap(sha256(token));
+        Instant now = clock.instant();
+        Jwt cached = tokens.get(key);
+        if (cached != null) {
+            if (cached.getExpiresAt().isAfter(now)) {
+                return cached;
+            }
+            tokens.remove(key, cached);
+        }
+
+        Jwt jwt = delegate.decode(token);
+        if (jwt.getExpiresAt() != null && jwt.getExpiresAt().isAfter(now)) {
+            if (tokens.size() >= maxEntries) {
+                evict(now);
+            }
+            tokens.put(key, jwt);
+        }
+        return jwt;
+    }
+
+    int size() {
+        return tokens.size();
+    }
+
+    // Expired tokens go first; if that is not enough, drop an arbitrary tenth of the rest
+    private void evict(Instant now) {
+        tokens.values().removeIf(jwt -> !jwt.getExpiresAt().isAfter(now));
+        int excess = tokens.size() - maxEntries + Math.max(1, maxEntries / 10);
+        Iterator<ByteBuffer> keys = tokens.keySet().iterator();
+        while (excess-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static byte[] sha256(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
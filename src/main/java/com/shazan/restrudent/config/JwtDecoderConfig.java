@@ -0,0 +1,151 @@
+package com.shazan.restrudent.config;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.KeyType;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.DefaultResourceRetriever;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import com.shazan.restrudent.services.impl.RequestTimings;
+import com.shazan.restrudent.services.impl.RequestTimings.Stage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.SupplierJwtDecoder;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestClient;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces Boot's issuer-uri decoder with one whose JWKS is refreshed in the background ahead of
+ * expiry, so key rotation is picked up without a request waiting on Keycloak, and which caches
+ * validated tokens. Discovery still happens on the first request, so startup does not need Keycloak.
+ * Accepted signature algorithms are those of the published signing keys, as with Boot's decoder,
+ * unless {@code spring.security.oauth2.resourceserver.jwt.jws-algorithms} lists them.
+ */
+@Configuration
+public class JwtDecoderConfig {
+
+    @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}")
+    private String issuerUri;
+
+    @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri:}")
+    private String jwkSetUri;
+
+    @Value("${spring.security.oauth2.resourceserver.jwt.jws-algorithms:}")
+    private String jwsAlgorithms;
+
+    @Value("${app.security.jwt.cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${app.security.jwt.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+
+    @Value("${app.security.jwt.jwks.ttl-ms:300000}")
+    private long jwksTtlMs;
+
+    @Value("${app.security.jwt.jwks.refresh-ahead-ms:60000}")
+    private long jwksRefreshAheadMs;
+
+    @Value("${app.security.jwt.jwks.timeout-ms:2000}")
+    private int jwksTimeoutMs;
+
+    @Bean
+    public JwtDecoder jwtDecoder() {
+        JwtDecoder validating = new SupplierJwtDecoder(this::validatingDecoder);
+        JwtDecoder decoder = cacheEnabled ? new CachingJwtDecoder(validating, cacheMaxEntries) : validating;
+        return token -> {
+            long start = System.nanoTime();
+            try {
+                return decoder.decode(token);
+            } finally {
+                RequestTimings.record(Stage.AUTH, System.nanoTime() - start);
+            }
+        };
+    }
+
+    private JwtDecoder validatingDecoder() {
+        JWKSource<SecurityContext> jwkSource = JWKSourceBuilder
+                .create(jwkSetUrl(), new DefaultResourceRetriever(jwksTimeoutMs, jwksTimeoutMs))
+                .cache(jwksTtlMs, jwksTimeoutMs)
+                .refreshAheadCache(jwksRefreshAheadMs, true)
+                .retrying(true)
+                .build();
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(algorithms(jwkSource), jwkSource));
+        // Keycloak may type access tokens "at+jwt"; expiry, not-before and issuer are checked by the validator below
+        processor.setJWSTypeVerifier((type, context) -> { });
+        processor.setJWTClaimsSetVerifier((claims, context) -> { });
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+        decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+        return decoder;
+    }
+
+    private Set<JWSAlgorithm> algorithms(JWKSource<SecurityContext> jwkSource) {
+        Set<JWSAlgorithm> algorithms = new HashSet<>();
+        if (StringUtils.hasText(jwsAlgorithms)) {
+            StringUtils.commaDelimitedListToSet(jwsAlgorithms)
+                    .forEach(name -> algorithms.add(JWSAlgorithm.parse(name.trim())));
+            return algorithms;
+        }
+        List<JWK> keys;
+        try {
+            keys = jwkSource.get(new JWKSelector(new JWKMatcher.Builder().keyUses(KeyUse.SIGNATURE, null).build()), null);
+        } catch (KeySourceException e) {
+            throw new IllegalStateException("Could not load the JWK set of " + issuerUri, e);
+        }
+        for (JWK key : keys) {
+            if (key.getAlgorithm() != null) {
+                algorithms.add(JWSAlgorithm.parse(key.getAlgorithm().getName()));
+            } else if (KeyType.RSA.equals(key.getKeyType())) {
+                algorithms.addAll(JWSAlgorithm.Family.RSA);
+            } else if (KeyType.EC.equals(key.getKeyType())) {
+                algorithms.addAll(JWSAlgorithm.Family.EC);
+            } else if (KeyType.OKP.equals(key.getKeyType())) {
+                algorithms.addAll(JWSAlgorithm.Family.ED);
+            }
+        }
+        if (algorithms.isEmpty()) {
+            throw new IllegalStateException("The JWK set of " + issuerUri + " has no signing keys");
+        }
+        return algorithms;
+    }
+
+    private URL jwkSetUrl() {
+        String uri = jwkSetUri;
+        if (!StringUtils.hasText(uri)) {
+            Map<String, Object> configuration = RestClient.create().get()
+                    .uri(issuerUri.replaceAll("/$", "") + "/.well-known/openid-configuration")
+                    .retrieve()
+                    .body(new ParameterizedTypeReference<>() {
+                    });
+            if (configuration == null || !(configuration.get("jwks_uri") instanceof String discovered)) {
+                throw new IllegalStateException("Issuer " + issuerUri + " does not advertise a jwks_uri");
+            }
+            uri = discovered;
+        }
+        try {
+            return URI.create(uri).toURL();
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException("Invalid JWK set URI " + uri, e);
+        }
+    }
+}
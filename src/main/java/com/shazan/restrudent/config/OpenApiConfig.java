@@ -9,12 +9,15 @@ import io.swagger.v3.oas.models.security.SecurityRequirement;
 import io.swagger.v3.oas.models.security.SecurityScheme;
 import io.swagger.v3.oas.models.servers.Server;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.List;
 
+// springdoc is left out of -Dprod builds; the OpenAPI model classes are a regular dependency, so only this config is skipped
 @Configuration
+@ConditionalOnClass(name = "org.springdoc.core.configuration.SpringDocConfiguration")
 public class OpenApiConfig {
 
     @Value("${app.api.base-url:http://localhost:8080}")
@@ -0,0 +1,68 @@
+package com.shazan.restrudent.config;
+
+import com.shazan.restrudent.services.AdmissionControlService;
+import com.shazan.restrudent.services.AdmissionControlService.Admission;
+import com.shazan.restrudent.services.AdmissionControlService.RequestClass;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+    private final AdmissionControlService admissionControlService;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Admission admission = admissionControlService.admit(subject(request), classify(request));
+        if (!admission.admitted()) {
+            reject(response, admission);
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            admissionControlService.release(admission);
+        }
+    }
+
+    private String subject(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof Jwt jwt) {
+            return jwt.getSubject();
+        }
+        return "anonymous:" + request.getRemoteAddr();
+    }
+
+    private RequestClass classify(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        boolean read = HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod());
+        if (read) {
+            return path.startsWith("/api/restaurants/search") ? RequestClass.SEARCH : RequestClass.READ;
+        }
+        return path.startsWith("/api/photos") ? RequestClass.UPLOAD : RequestClass.WRITE;
+    }
+
+    private void reject(HttpServletResponse response, Admission admission) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admission.retryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("""
+                {"timestamp":"%s","message":"Too many %s requests, retry later","status":%d}"""
+                .formatted(LocalDateTime.now(), admission.requestClass().name().toLowerCase(), HttpStatus.TOO_MANY_REQUESTS.value()));
+    }
+}
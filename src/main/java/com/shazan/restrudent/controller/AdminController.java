@@ -0,0 +1,131 @@
+package com.shazan.restrudent.controller;
+
+import com.shazan.restrudent.domain.dto.PhotoSweepReportDto;
+import com.shazan.restrudent.domain.dto.RankingProfileDto;
+import com.shazan.restrudent.domain.dto.ReindexStatusDto;
+import com.shazan.restrudent.domain.dto.SimilarityRebuildStatusDto;
+import com.shazan.restrudent.domain.dto.StorageRebalanceReportDto;
+import com.shazan.restrudent.services.IndexManagementService;
+import com.shazan.restrudent.services.PhotoGarbageCollector;
+import com.shazan.restrudent.services.SearchRankingService;
+import com.shazan.restrudent.services.SimilarRestrurantService;
+import com.shazan.restrudent.services.StorageService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin")
+@Tag(name = "Admin", description = "Operational APIs, restricted to the ADMIN role")
+public class AdminController {
+    private final SearchRankingService searchRankingService;
+    private final IndexManagementService indexManagementService;
+    private final PhotoGarbageCollector photoGarbageCollector;
+    private final SimilarRestrurantService similarRestrurantService;
+    private final StorageService storageService;
+
+    @GetMapping("/ranking")
+    @Operation(summary = "Get search ranking profile", description = "Returns the weights currently applied to restaurant search")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Ranking profile retrieved"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden")
+    })
+    public ResponseEntity<RankingProfileDto> getRankingProfile() {
+        return ResponseEntity.ok(searchRankingService.getProfile());
+    }
+
+    @PutMapping("/ranking")
+    @Operation(summary = "Update search ranking profile",
+            description = "Updates ranking weights at runtime; fields left out keep their current value")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Ranking profile updated"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden")
+    })
+    public ResponseEntity<RankingProfileDto> updateRankingProfile(@RequestBody RankingProfileDto profile) {
+        return ResponseEntity.ok(searchRankingService.updateProfile(profile));
+    }
+
+    @PostMapping("/index/reindex")
+    @Operation(summary = "Start a reindex",
+            description = "Copies the restaurant index into a new versioned index in the background and swaps the alias when done; "
+                    + "with assignRegions, documents indexed before region routing get a region-prefixed id on the way")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Reindex started or already running"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden")
+    })
+    public ResponseEntity<ReindexStatusDto> startReindex(
+            @Parameter(description = "Move legacy documents onto their region's shard") @RequestParam(defaultValue = "false") boolean assignRegions) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(indexManagementService.startReindex(assignRegions));
+    }
+
+    @GetMapping("/index/reindex")
+    @Operation(summary = "Get reindex status", description = "Returns progress of the current or last reindex")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Reindex status retrieved"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden")
+    })
+    public ResponseEntity<ReindexStatusDto> getReindexStatus() {
+        return ResponseEntity.ok(indexManagementService.getReindexStatus());
+    }
+
+    @PostMapping("/photos/sweep")
+    @Operation(summary = "Sweep orphaned photos",
+            description = "Finds stored photos no restaurant references and, unless dryRun is set, deletes those older than the grace period")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Sweep report"),
+            @ApiResponse(responseCode = "400", description = "A sweep is already running"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden")
+    })
+    public ResponseEntity<PhotoSweepReportDto> sweepPhotos(
+            @Parameter(description = "Only report orphans, delete nothing") @RequestParam(defaultValue = "true") boolean dryRun) {
+        return ResponseEntity.ok(photoGarbageCollector.sweep(dryRun));
+    }
+
+    @PostMapping("/storage/rebalance")
+    @Operation(summary = "Rebalance photo storage",
+            description = "Moves stored photos to the root and directory their id now hashes to, e.g. after adding a disk")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rebalance report"),
+            @ApiResponse(responseCode = "400", description = "A rebalance is already running"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden")
+    })
+    public ResponseEntity<StorageRebalanceReportDto> rebalanceStorage() {
+        return ResponseEntity.ok(storageService.rebalance());
+    }
+
+    @PostMapping("/similar/rebuild")
+    @Operation(summary = "Rebuild similar restaurant lists",
+            description = "Recomputes every restaurant's neighbour list in the background")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Rebuild started or already running"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden")
+    })
+    public ResponseEntity<SimilarityRebuildStatusDto> startSimilarRebuild() {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(similarRestrurantService.startRebuild());
+    }
+
+    @GetMapping("/similar/rebuild")
+    @Operation(summary = "Get similar restaurants rebuild status")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rebuild status"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden")
+    })
+    public ResponseEntity<SimilarityRebuildStatusDto> getSimilarRebuildStatus() {
+        return ResponseEntity.ok(similarRestrurantService.getRebuildStatus());
+    }
+}
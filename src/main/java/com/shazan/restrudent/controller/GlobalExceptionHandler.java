@@ -1,8 +1,12 @@
 package com.shazan.restrudent.controller;
 
 import com.shazan.restrudent.expections.BaseExpection;
+import com.shazan.restrudent.expections.DuplicateRestrurantException;
+import com.shazan.restrudent.expections.ElasticsearchUnavailableException;
 import com.shazan.restrudent.expections.StorageException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -37,6 +41,39 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
     }
 
+    @ExceptionHandler(ElasticsearchUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleElasticsearchUnavailable(ElasticsearchUnavailableException ex) {
+        log.warn("Elasticsearch unavailable: {}", ex.getMessage());
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("message", "Search backend is temporarily unavailable, retry later");
+        response.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(response);
+    }
+
+    @ExceptionHandler(DuplicateRestrurantException.class)
+    public ResponseEntity<Map<String, Object>> handleDuplicateRestrurant(DuplicateRestrurantException ex) {
+        log.info("Rejected duplicate restaurant: {}", ex.getMessage());
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("message", ex.getMessage());
+        response.put("existingId", ex.getExistingId());
+        response.put("status", HttpStatus.CONFLICT.value());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        log.warn("Concurrent modification detected: {}", ex.getMessage());
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("message", "The resource was modified concurrently, reload and retry");
+        response.put("status", HttpStatus.CONFLICT.value());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, Object>> handleValidationException(MethodArgumentNotValidException ex) {
         log.error("Validation exception occurred: {}", ex.getMessage());
@@ -10,6 +10,7 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
@@ -18,6 +19,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/photos")
@@ -49,12 +54,31 @@ public class PhotoController {
             @ApiResponse(responseCode = "401", description = "Unauthorized")
     })
     public ResponseEntity<Resource> getPhoto(
-            @Parameter(description = "Photo ID") @PathVariable String id) {
+            @Parameter(description = "Photo ID") @PathVariable String id,
+            HttpServletResponse response) throws IOException {
+        Optional<ByteBuffer> cached = photoService.getCachedPhoto(id);
+        if (cached.isPresent()) {
+            writeCached(id, cached.get(), response);
+            // Already written, nothing left for the message converters
+            return null;
+        }
         return photoService.getPhotoAsResource(id)
                 .map(resource -> ResponseEntity.ok()
                         .contentType(MediaType.IMAGE_JPEG)
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + id + "\"")
+                        .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition(id))
                         .body(resource))
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    // Hits go from the off-heap buffer to the container in one write, no InputStream or heap byte[] in between
+    private void writeCached(String id, ByteBuffer photo, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.IMAGE_JPEG_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition(id));
+        response.setContentLengthLong(photo.remaining());
+        response.getOutputStream().write(photo);
+    }
+
+    private static String contentDisposition(String id) {
+        return "inline; filename=\"" + id + "\"";
+    }
 }
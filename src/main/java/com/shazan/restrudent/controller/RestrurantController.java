@@ -1,8 +1,25 @@
 package com.shazan.restrudent.controller;
 
+import com.shazan.restrudent.config.BinaryFormatsConfig;
 import com.shazan.restrudent.domain.dto.CreateRestrurantRequest;
+import com.shazan.restrudent.domain.dto.CreateReviewRequest;
+import com.shazan.restrudent.domain.dto.NearbyRestrurantDto;
+import com.shazan.restrudent.domain.dto.OwnerRestrurantsDto;
 import com.shazan.restrudent.domain.dto.RestrurantDto;
+import com.shazan.restrudent.domain.dto.RestrurantSummaryDto;
+import com.shazan.restrudent.domain.dto.ReviewDto;
+import com.shazan.restrudent.expections.ElasticsearchUnavailableException;
+import com.shazan.restrudent.services.LeaderboardService;
+import com.shazan.restrudent.services.NearbySearchService;
+import com.shazan.restrudent.services.RestrurantChangeFeed;
 import com.shazan.restrudent.services.RestrurantService;
+import com.shazan.restrudent.services.RestrurantService.VersionedPage;
+import com.shazan.restrudent.services.RestrurantSourceStreamer;
+import com.shazan.restrudent.services.ReviewService;
+import com.shazan.restrudent.services.SimilarRestrurantService;
+import com.shazan.restrudent.services.impl.HotSetWarmer;
+import com.shazan.restrudent.services.impl.RestrurantResponseCache;
+import com.shazan.restrudent.services.impl.RestrurantResponseCache.CachedResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -15,16 +32,34 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/restaurants")
 @Tag(name = "Restaurant", description = "Restaurant management APIs")
 public class RestrurantController {
+    private static final MediaType SMILE = MediaType.parseMediaType(BinaryFormatsConfig.APPLICATION_SMILE_VALUE);
+
     private final RestrurantService restrurantService;
+    private final RestrurantChangeFeed restrurantChangeFeed;
+    private final RestrurantSourceStreamer restrurantSourceStreamer;
+    private final RestrurantResponseCache restrurantResponseCache;
+    private final SimilarRestrurantService similarRestrurantService;
+    private final LeaderboardService leaderboardService;
+    private final NearbySearchService nearbySearchService;
+    private final HotSetWarmer hotSetWarmer;
+    private final ReviewService reviewService;
 
     @PostMapping
     @Operation(summary = "Create a new restaurant", description = "Creates a new restaurant with the provided details")
@@ -39,21 +74,179 @@ public class RestrurantController {
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
+    @PostMapping("/bulk")
+    @Operation(summary = "Import restaurants",
+            description = "Creates several restaurants in one Elasticsearch bulk request. Accepts JSON, "
+                    + "Smile (application/x-jackson-smile) or CBOR (application/cbor)")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Restaurants created"),
+            @ApiResponse(responseCode = "400", description = "Invalid input or too many restaurants"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<List<RestrurantDto>> createRestrurants(@Valid @RequestBody List<CreateRestrurantRequest> requests) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(restrurantService.createRestrurants(requests));
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream restaurant changes",
+            description = "Server-sent events for created, updated, deleted and re-rated restaurants. "
+                    + "Reconnect with Last-Event-ID to resume; a 'reset' event means the client must reload")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream opened"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public SseEmitter streamChanges(
+            @Parameter(description = "Last event id received") @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @Parameter(description = "Resume after this event id, for clients that cannot set headers")
+            @RequestParam(required = false) String since) {
+        return restrurantChangeFeed.subscribe(lastEventId != null ? lastEventId : since);
+    }
+
+    @GetMapping("/top")
+    @Operation(summary = "Top-rated restaurants in a city",
+            description = "Served from in-memory leaderboards per city, optionally narrowed to a cuisine")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Leaderboard retrieved"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<List<RestrurantSummaryDto>> getTopRated(
+            @Parameter(description = "City") @RequestParam String city,
+            @Parameter(description = "Cuisine type") @RequestParam(required = false) String cuisineType,
+            @Parameter(description = "Number of restaurants") @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(leaderboardService.getTopRated(city, cuisineType, limit));
+    }
+
+    @GetMapping("/nearby")
+    @Operation(summary = "Restaurants near a point",
+            description = "Nearest restaurants within a radius, optionally filtered by cuisine, minimum rating and "
+                    + "whether they are open now. Served from an in-memory replica of the catalogue once it is loaded")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Nearby restaurants retrieved, nearest first"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<List<NearbyRestrurantDto>> getNearby(
+            @Parameter(description = "Latitude") @RequestParam double latitude,
+            @Parameter(description = "Longitude") @RequestParam double longitude,
+            @Parameter(description = "Radius in kilometres") @RequestParam(defaultValue = "5") double radiusKm,
+            @Parameter(description = "Cuisine type") @RequestParam(required = false) String cuisineType,
+            @Parameter(description = "Minimum average rating") @RequestParam(required = false) Float minRating,
+            @Parameter(description = "Only restaurants open right now") @RequestParam(defaultValue = "false") boolean openNow,
+            @Parameter(description = "Number of restaurants") @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(nearbySearchService.findNearby(
+                latitude, longitude, radiusKm, cuisineType, minRating, openNow, limit));
+    }
+
+    @GetMapping("/mine")
+    @Operation(summary = "Get my restaurants",
+            description = "Restaurants created by the caller, with their count, average rating and total reviews")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Owner restaurants retrieved"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<OwnerRestrurantsDto> getMyRestrurants(
+            @PageableDefault(size = 20) Pageable pageable) {
+        return ResponseEntity.ok(restrurantService.getMyRestrurants(pageable));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get restaurant by ID", description = "Retrieves a restaurant by its unique identifier")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Restaurant found",
                     content = @Content(schema = @Schema(implementation = RestrurantDto.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified since the ETag in If-None-Match"),
             @ApiResponse(responseCode = "404", description = "Restaurant not found"),
-            @ApiResponse(responseCode = "401", description = "Unauthorized")
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "503", description = "Elasticsearch unavailable and no last-known-good copy")
     })
-    public ResponseEntity<RestrurantDto> getRestrurantById(
-            @Parameter(description = "Restaurant ID") @PathVariable String id) {
+    public ResponseEntity<?> getRestrurantById(
+            @Parameter(description = "Restaurant ID") @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest) {
+        boolean binary = prefersBinary(accept);
+        // Nothing to validate and no cached bytes to reuse: the version lookup would only add a round
+        // trip, and the full get carries _seq_no/_primary_term anyway
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) == null && (binary || !restrurantResponseCache.contains(id))) {
+            Optional<RestrurantDto> restrurant = restrurantService.getRestrurantById(id);
+            restrurant.filter(found -> !found.isStale()).ifPresent(found -> hotSetWarmer.recordRestrurant(id));
+            return restrurant
+                    .map(found -> restrurantBody(found, binary, acceptEncoding))
+                    .orElse(ResponseEntity.notFound().build());
+        }
+
+        Optional<String> version;
+        try {
+            version = restrurantService.getRestrurantVersion(id);
+        } catch (ElasticsearchUnavailableException e) {
+            // Falls back to the last-known-good copy (flagged stale) or rethrows for a 503
+            return restrurantService.getRestrurantById(id)
+                    .map(lastKnownGood -> restrurantBody(lastKnownGood, binary, acceptEncoding))
+                    .orElseThrow(() -> e);
+        }
+        if (version.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        hotSetWarmer.recordRestrurant(id);
+        String etag = weakEtag(version.get());
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        if (!binary) {
+            Optional<CachedResponse> cached = restrurantResponseCache.get(id, version.get());
+            if (cached.isPresent()) {
+                return cachedBody(cached.get(), acceptEncoding);
+            }
+        }
         return restrurantService.getRestrurantById(id)
+                .map(restrurant -> restrurantBody(restrurant, binary, acceptEncoding))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{id}/reviews")
+    @Operation(summary = "Review a restaurant",
+            description = "Adds a review with a 1-5 rating and updates the restaurant's average rating and review count")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Review created"),
+            @ApiResponse(responseCode = "400", description = "Invalid rating or content"),
+            @ApiResponse(responseCode = "404", description = "Restaurant not found"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<ReviewDto> createReview(
+            @Parameter(description = "Restaurant ID") @PathVariable String id,
+            @RequestBody CreateReviewRequest request) {
+        return reviewService.createReview(id, request)
+                .map(review -> ResponseEntity.status(HttpStatus.CREATED).body(review))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{id}/reviews")
+    @Operation(summary = "Get reviews of a restaurant", description = "Retrieves a paginated list of reviews, newest first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Reviews retrieved"),
+            @ApiResponse(responseCode = "404", description = "Restaurant not found"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<Page<ReviewDto>> getReviews(
+            @Parameter(description = "Restaurant ID") @PathVariable String id,
+            @PageableDefault(size = 20) Pageable pageable) {
+        return reviewService.getReviews(id, pageable)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/{id}/similar")
+    @Operation(summary = "Get similar restaurants",
+            description = "Precomputed neighbours by cuisine, text similarity, rating band and distance. "
+                    + "Empty until the restaurant's list has been computed")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Similar restaurants retrieved"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<List<RestrurantSummaryDto>> getSimilarRestrurants(
+            @Parameter(description = "Restaurant ID") @PathVariable String id) {
+        return ResponseEntity.ok(similarRestrurantService.getSimilar(id));
+    }
+
     @GetMapping
     @Operation(summary = "Get all restaurants", description = "Retrieves a paginated list of all restaurants")
     @ApiResponses(value = {
@@ -61,9 +254,24 @@ public class RestrurantController {
             @ApiResponse(responseCode = "401", description = "Unauthorized")
     })
     public ResponseEntity<Page<RestrurantDto>> getAllRestrurants(
+            @PageableDefault(size = 20) Pageable pageable,
+            WebRequest webRequest) {
+        return pageBody(restrurantService.getAllRestrurants(pageable), webRequest);
+    }
+
+    @GetMapping(params = "passthrough=true")
+    @Operation(summary = "Get all restaurants (passthrough)",
+            description = "Opt-in fast path that streams Elasticsearch _source documents without building DTOs. "
+                    + "Returns {content, page:{size, number, totalElements, totalPages}}")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved list"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<StreamingResponseBody> streamAllRestrurants(
             @PageableDefault(size = 20) Pageable pageable) {
-        Page<RestrurantDto> restaurants = restrurantService.getAllRestrurants(pageable);
-        return ResponseEntity.ok(restaurants);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> restrurantSourceStreamer.streamAll(pageable, out));
     }
 
     @PutMapping("/{id}")
@@ -96,15 +304,93 @@ public class RestrurantController {
     }
 
     @GetMapping("/search")
-    @Operation(summary = "Search restaurants", description = "Searches restaurants by query string")
+    @Operation(summary = "Search restaurants",
+            description = "Searches restaurants by query string, ranked by relevance, rating, review volume, freshness and optional distance")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Search results retrieved"),
             @ApiResponse(responseCode = "401", description = "Unauthorized")
     })
     public ResponseEntity<Page<RestrurantDto>> searchRestrurants(
             @Parameter(description = "Search query") @RequestParam String query,
+            @Parameter(description = "Latitude of the user, enables distance ranking") @RequestParam(required = false) Double latitude,
+            @Parameter(description = "Longitude of the user, enables distance ranking") @RequestParam(required = false) Double longitude,
+            @Parameter(description = "City to restrict the search to") @RequestParam(required = false) String city,
+            @Parameter(description = "Country of the city; with both, the search is routed to that city's shard") @RequestParam(required = false) String country,
+            @PageableDefault(size = 20) Pageable pageable,
+            WebRequest webRequest) {
+        hotSetWarmer.recordSearch(query);
+        return pageBody(restrurantService.searchRestrurants(query, latitude, longitude, city, country, pageable), webRequest);
+    }
+
+    @GetMapping(value = "/search", params = "passthrough=true")
+    @Operation(summary = "Search restaurants (passthrough)",
+            description = "Opt-in fast path for search that streams Elasticsearch _source documents without building DTOs")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Search results retrieved"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<StreamingResponseBody> streamSearchRestrurants(
+            @Parameter(description = "Search query") @RequestParam String query,
+            @Parameter(description = "Latitude of the user, enables distance ranking") @RequestParam(required = false) Double latitude,
+            @Parameter(description = "Longitude of the user, enables distance ranking") @RequestParam(required = false) Double longitude,
+            @Parameter(description = "City to restrict the search to") @RequestParam(required = false) String city,
+            @Parameter(description = "Country of the city; with both, the search is routed to that city's shard") @RequestParam(required = false) String country,
             @PageableDefault(size = 20) Pageable pageable) {
-        Page<RestrurantDto> results = restrurantService.searchRestrurants(query, pageable);
-        return ResponseEntity.ok(results);
+        hotSetWarmer.recordSearch(query);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> restrurantSourceStreamer.streamSearch(query, latitude, longitude, city, country, pageable, out));
+    }
+
+    // Smile and CBOR go through the message converters; the byte cache holds JSON only
+    private ResponseEntity<?> restrurantBody(RestrurantDto restrurant, boolean binary, String acceptEncoding) {
+        if (!binary) {
+            return cachedBody(restrurantResponseCache.put(restrurant), acceptEncoding);
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+        if (restrurant.getVersion() != null && !restrurant.isStale()) {
+            builder.eTag(weakEtag(restrurant.getVersion()));
+        }
+        return builder.body(restrurant);
+    }
+
+    // A matching If-None-Match is answered before any hit is mapped to a DTO
+    private ResponseEntity<Page<RestrurantDto>> pageBody(VersionedPage page, WebRequest webRequest) {
+        String etag = weakEtag(page.version());
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(page.content().get());
+    }
+
+    private ResponseEntity<byte[]> cachedBody(CachedResponse response, String acceptEncoding) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .eTag(weakEtag(response.version()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (response.gzip() != null && RestrurantResponseCache.acceptsGzip(acceptEncoding)) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(response.gzip());
+        }
+        return builder.body(response.json());
+    }
+
+    // First of Smile, CBOR or anything JSON-compatible listed in Accept wins
+    private static boolean prefersBinary(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        for (MediaType type : MediaType.parseMediaTypes(accept)) {
+            if (SMILE.equalsTypeAndSubtype(type) || MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(type)) {
+                return true;
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private String weakEtag(String version) {
+        return "W/\"" + version + "\"";
     }
 }
@@ -0,0 +1,15 @@
+package com.shazan.restrudent.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CreateReviewRequest {
+    private String content;
+    private Integer rating;
+}
@@ -0,0 +1,21 @@
+package com.shazan.restrudent.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class NearbyRestrurantDto {
+    private String id;
+    private String name;
+    private String cuisineType;
+    private Float averageRating;
+    private Integer reviewCount;
+    private Double latitude;
+    private Double longitude;
+    private Double distanceKm;
+}
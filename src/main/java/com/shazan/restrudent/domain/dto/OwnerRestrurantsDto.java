@@ -0,0 +1,18 @@
+package com.shazan.restrudent.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Page;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OwnerRestrurantsDto {
+    private long restaurantCount;
+    private Double averageRating;
+    private long totalReviews;
+    private Page<RestrurantDto> restaurants;
+}
@@ -0,0 +1,26 @@
+package com.shazan.restrudent.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PhotoSweepReportDto {
+    private boolean dryRun;
+    private long referencedPhotos;
+    private long filesScanned;
+    private long orphansFound;
+    private long filesDeleted;
+    private long bytesReclaimed;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private List<String> sampleOrphans = new ArrayList<>();
+}
@@ -0,0 +1,22 @@
+package com.shazan.restrudent.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class RankingProfileDto {
+    private Double nameBoost;
+    private Double cuisineBoost;
+    private Double ratingWeight;
+    private Double reviewCountWeight;
+    private Double freshnessWeight;
+    private String freshnessScale;   // ES time unit, e.g. "90d"
+    private Double distanceWeight;
+    private String distanceScale;    // ES distance unit, e.g. "5km"
+    private Double decay;
+}
@@ -0,0 +1,28 @@
+package com.shazan.restrudent.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+public class ReindexStatusDto {
+    public enum State { IDLE, RUNNING, COMPLETED, FAILED }
+
+    private State state;
+    private String alias;
+    private String sourceIndex;
+    private String targetIndex;
+    private boolean assignRegions;
+    private long documentsCopied;
+    private long documentsDeleted;
+    private long failures;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String message;
+}
@@ -0,0 +1,23 @@
+package com.shazan.restrudent.domain.dto;
+
+import com.shazan.restrudent.domain.event.RestrurantChangedEvent.ChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class RestrurantChangeDto {
+    private long sequence;
+    private ChangeType type;
+    private String id;
+    private String name;
+    private Float averageRating;
+    private Integer reviewCount;
+    private LocalDateTime updatedAt;
+}
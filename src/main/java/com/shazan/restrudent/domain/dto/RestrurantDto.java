@@ -1,27 +1,47 @@
 package com.shazan.restrudent.domain.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class RestrurantDto {
     private String id;
     private String name;
     private String cuisineType;
     private String contactInformation;
     private Float averageRating;
+    private Integer reviewCount;
     private Double latitude;
     private Double longitude;
     private AddressDto address;
     private OperatingHourDto operatingHours;
     private List<PhotoDto> photos = new ArrayList<>();
     private UserDto createdBy;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String duplicateOf;
+
+    // Terms reviews of this restaurant mention unusually often, e.g. "brunch", "patio"
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<String> highlights;
+
+    @JsonIgnore
+    private String version;
+
+    // Set on last-known-good copies served while Elasticsearch is unavailable
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private boolean stale;
 }
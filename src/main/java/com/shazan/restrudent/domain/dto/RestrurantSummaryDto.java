@@ -0,0 +1,19 @@
+package com.shazan.restrudent.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class RestrurantSummaryDto {
+    private String id;
+    private String name;
+    private String cuisineType;
+    private Float averageRating;
+    private Integer reviewCount;
+    private Double score;
+}
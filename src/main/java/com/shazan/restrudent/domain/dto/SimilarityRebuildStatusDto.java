@@ -0,0 +1,23 @@
+package com.shazan.restrudent.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+public class SimilarityRebuildStatusDto {
+    public enum State { IDLE, RUNNING, COMPLETED, FAILED }
+
+    private State state;
+    private long restaurantsProcessed;
+    private long failures;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String message;
+}
@@ -0,0 +1,22 @@
+package com.shazan.restrudent.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StorageRebalanceReportDto {
+    private int roots;
+    private long filesScanned;
+    private long filesMoved;
+    private long bytesMoved;
+    private long failures;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -5,12 +5,18 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.DateFormat;
 import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
 import org.springframework.data.elasticsearch.annotations.GeoPointField;
+import org.springframework.data.elasticsearch.annotations.InnerField;
+import org.springframework.data.elasticsearch.annotations.MultiField;
+import org.springframework.data.elasticsearch.annotations.Routing;
 import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+import org.springframework.data.elasticsearch.core.query.SeqNoPrimaryTerm;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,16 +24,24 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
-@Document(indexName = "restrurants")
+// "restrurants" is an alias over versioned physical indices, see IndexManagementService
+@Document(indexName = "restrurants", createIndex = false)
+// Null for documents indexed before region routing, which keep Elasticsearch's default routing
+@Routing("region")
 public class Restrurant {
 
     @Id
     private String id;
 
+    // Filled in by Spring Data on reads; also makes updates use optimistic concurrency
+    private SeqNoPrimaryTerm seqNoPrimaryTerm;
+
     @Field(type = FieldType.Text)
     private String name;
 
-    @Field(type = FieldType.Text)
+    // cuisineType.keyword for exact (case-insensitive) cuisine filters
+    @MultiField(mainField = @Field(type = FieldType.Text),
+            otherFields = @InnerField(suffix = "keyword", type = FieldType.Keyword))
     private String cuisineType;
 
     @Field(type = FieldType.Keyword)
@@ -36,6 +50,9 @@ public class Restrurant {
     @Field(type = FieldType.Float)
     private Float averageRating;
 
+    @Field(type = FieldType.Integer)
+    private Integer reviewCount;
+
     @GeoPointField
     private GeoPoint geoLocation;
 
@@ -51,4 +68,30 @@ public class Restrurant {
     @Field(type = FieldType.Nested)
     private  User createdBy;
 
+    // createdBy.id copied outside the nested object, so "my restaurants" is a plain term filter
+    @Field(type = FieldType.Keyword)
+    private String ownerId;
+
+    // Routing key, also the prefix of the id; see RegionRouting
+    @Field(type = FieldType.Keyword)
+    private String region;
+
+    // Id the document had before a region migration gave it a routed id
+    @Field(type = FieldType.Keyword)
+    private String legacyId;
+
+    // Existing restaurant this one was flagged as a likely duplicate of at ingest
+    @Field(type = FieldType.Keyword)
+    private String duplicateOf;
+
+    // Significant terms of the restaurant's reviews, kept up to date by ReviewHighlightsJob
+    @Field(type = FieldType.Keyword)
+    private List<String> highlights;
+
+    @Field(type = FieldType.Date, format = DateFormat.date_hour_minute_second)
+    private LocalDateTime createdAt;
+
+    @Field(type = FieldType.Date, format = DateFormat.date_hour_minute_second)
+    private LocalDateTime updatedAt;
+
 }
@@ -4,9 +4,12 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
 import org.springframework.data.elasticsearch.annotations.DateFormat;
+import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.Routing;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -16,10 +19,17 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
+// Reviews live in a side index; routing by restaurant keeps each restaurant's reviews on one shard
+@Document(indexName = "restrurant_reviews", createIndex = false)
+@Routing("restrurantId")
 public class Review {
+    @Id
     @Field(type = FieldType.Keyword)
     private String id;
 
+    @Field(type = FieldType.Keyword)
+    private String restrurantId;
+
     @Field(type = FieldType.Text)
     private String content;
 
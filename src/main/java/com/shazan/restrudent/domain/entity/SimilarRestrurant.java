@@ -0,0 +1,18 @@
+package com.shazan.restrudent.domain.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SimilarRestrurant {
+    private String id;
+    private String name;
+    private String cuisineType;
+    private Float averageRating;
+    private Double score;
+}
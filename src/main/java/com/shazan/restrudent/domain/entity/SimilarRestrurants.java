@@ -0,0 +1,37 @@
+package com.shazan.restrudent.domain.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.DateFormat;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+// Precomputed neighbour list per restaurant, keyed by the restaurant id
+@Document(indexName = "restrurant_similar", createIndex = false)
+public class SimilarRestrurants {
+
+    @Id
+    private String id;
+
+    // Lets lists that mention a changed restaurant be found and refreshed
+    @Field(type = FieldType.Keyword)
+    private List<String> neighbourIds = new ArrayList<>();
+
+    @Field(type = FieldType.Object, enabled = false)
+    private List<SimilarRestrurant> neighbours = new ArrayList<>();
+
+    @Field(type = FieldType.Date, format = DateFormat.date_hour_minute_second)
+    private LocalDateTime computedAt;
+}
@@ -0,0 +1,28 @@
+package com.shazan.restrudent.domain.event;
+
+import com.shazan.restrudent.domain.entity.Restrurant;
+
+/**
+ * {@code legacyId} is the id the restaurant had before a region migration, if any; data keyed
+ * by it (such as reviews) has to be cleaned up along with the restaurant.
+ */
+public record RestrurantChangedEvent(ChangeType type, String restrurantId, String legacyId, Restrurant restrurant) {
+
+    public enum ChangeType { CREATED, UPDATED, DELETED, RATING_CHANGED }
+
+    public static RestrurantChangedEvent created(Restrurant restrurant) {
+        return new RestrurantChangedEvent(ChangeType.CREATED, restrurant.getId(), restrurant.getLegacyId(), restrurant);
+    }
+
+    public static RestrurantChangedEvent updated(Restrurant restrurant) {
+        return new RestrurantChangedEvent(ChangeType.UPDATED, restrurant.getId(), restrurant.getLegacyId(), restrurant);
+    }
+
+    public static RestrurantChangedEvent ratingChanged(Restrurant restrurant) {
+        return new RestrurantChangedEvent(ChangeType.RATING_CHANGED, restrurant.getId(), restrurant.getLegacyId(), restrurant);
+    }
+
+    public static RestrurantChangedEvent deleted(String restrurantId, String legacyId) {
+        return new RestrurantChangedEvent(ChangeType.DELETED, restrurantId, legacyId, null);
+    }
+}
@@ -0,0 +1,13 @@
+package com.shazan.restrudent.expections;
+
+import lombok.Getter;
+
+@Getter
+public class DuplicateRestrurantException extends BaseExpection {
+    private final String existingId;
+
+    public DuplicateRestrurantException(String message, String existingId) {
+        super(message);
+        this.existingId = existingId;
+    }
+}
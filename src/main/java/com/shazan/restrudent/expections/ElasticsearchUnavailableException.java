@@ -0,0 +1,18 @@
+package com.shazan.restrudent.expections;
+
+import lombok.Getter;
+
+@Getter
+public class ElasticsearchUnavailableException extends BaseExpection {
+    private final long retryAfterSeconds;
+
+    public ElasticsearchUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public ElasticsearchUnavailableException(String message, Throwable cause, long retryAfterSeconds) {
+        super(message, cause);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
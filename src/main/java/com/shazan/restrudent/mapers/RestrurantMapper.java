@@ -6,6 +6,7 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.ReportingPolicy;
 import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+import org.springframework.data.elasticsearch.core.query.SeqNoPrimaryTerm;
 
 @Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.IGNORE,
         uses = {AddressMapper.class, OperatingHourMapper.class, PhotoMapper.class, UserMapper.class})
@@ -13,11 +14,19 @@ public interface RestrurantMapper {
 
     @Mapping(target = "latitude", expression = "java(restrurant.getGeoLocation() != null ? restrurant.getGeoLocation().getLat() : null)")
     @Mapping(target = "longitude", expression = "java(restrurant.getGeoLocation() != null ? restrurant.getGeoLocation().getLon() : null)")
+    @Mapping(target = "version", expression = "java(versionOf(restrurant.getSeqNoPrimaryTerm()))")
     RestrurantDto toDto(Restrurant restrurant);
 
     @Mapping(target = "geoLocation", expression = "java(createGeoPoint(dto.getLatitude(), dto.getLongitude()))")
     Restrurant toEntity(RestrurantDto dto);
 
+    default String versionOf(SeqNoPrimaryTerm seqNoPrimaryTerm) {
+        if (seqNoPrimaryTerm == null) {
+            return null;
+        }
+        return seqNoPrimaryTerm.primaryTerm() + "." + seqNoPrimaryTerm.sequenceNumber();
+    }
+
     default GeoPoint createGeoPoint(Double latitude, Double longitude) {
         if (latitude != null && longitude != null) {
             return new GeoPoint(latitude, longitude);
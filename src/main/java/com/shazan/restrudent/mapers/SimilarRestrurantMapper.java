@@ -0,0 +1,11 @@
+package com.shazan.restrudent.mapers;
+
+import com.shazan.restrudent.domain.dto.RestrurantSummaryDto;
+import com.shazan.restrudent.domain.entity.SimilarRestrurant;
+import org.mapstruct.Mapper;
+import org.mapstruct.ReportingPolicy;
+
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface SimilarRestrurantMapper {
+    RestrurantSummaryDto toDto(SimilarRestrurant similarRestrurant);
+}
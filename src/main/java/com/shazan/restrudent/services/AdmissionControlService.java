@@ -0,0 +1,12 @@
+package com.shazan.restrudent.services;
+
+public interface AdmissionControlService {
+
+    enum RequestClass { READ, SEARCH, UPLOAD, WRITE }
+
+    record Admission(boolean admitted, RequestClass requestClass, boolean holdsConcurrencyPermit, long retryAfterSeconds) {
+    }
+
+    Admission admit(String subject, RequestClass requestClass);
+    void release(Admission admission);
+}
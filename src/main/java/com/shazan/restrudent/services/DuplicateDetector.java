@@ -0,0 +1,27 @@
+package com.shazan.restrudent.services;
+
+import com.shazan.restrudent.domain.entity.Restrurant;
+
+import java.util.Optional;
+
+public interface DuplicateDetector {
+
+    record DuplicateMatch(String restrurantId, String name, double similarity, double distanceMeters) {
+    }
+
+    /**
+     * The closest known restaurant within the distance and name similarity thresholds, if any.
+     */
+    Optional<DuplicateMatch> findDuplicate(Restrurant candidate);
+
+    /**
+     * Like {@link #findDuplicate}, but registers the candidate in the same step when it has no
+     * duplicate, so concurrent ingests of the same restaurant cannot both pass the check. The
+     * candidate needs its id; unregister it again if it is not saved.
+     */
+    Optional<DuplicateMatch> claim(Restrurant candidate);
+
+    void register(Restrurant restrurant);
+
+    void unregister(String restrurantId);
+}
@@ -0,0 +1,41 @@
+package com.shazan.restrudent.services;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+public interface ElasticsearchGuard {
+
+    enum Operation {
+        READ(true), SEARCH(true), WRITE(false);
+
+        private final boolean idempotent;
+
+        Operation(boolean idempotent) {
+            this.idempotent = idempotent;
+        }
+
+        public boolean isIdempotent() {
+            return idempotent;
+        }
+    }
+
+    @FunctionalInterface
+    interface LatencyListener {
+        void onLatency(Operation operation, long latencyNanos);
+    }
+
+    <T> T call(Operation operation, Supplier<T> call);
+
+    /**
+     * A {@link Operation#WRITE} call. A write that misses its deadline may still be applied by
+     * Elasticsearch; if it completes later, {@code lateSuccess} receives its result.
+     */
+    <T> T write(Supplier<T> call, Consumer<? super T> lateSuccess);
+    boolean isAvailable();
+
+    /**
+     * Registers a listener for the caller-side latency of every call Elasticsearch answered or let
+     * run past its deadline. Calls refused by the open circuit or failed at the transport are not reported.
+     */
+    void addLatencyListener(LatencyListener listener);
+}
@@ -0,0 +1,9 @@
+package com.shazan.restrudent.services;
+
+import com.shazan.restrudent.domain.dto.ReindexStatusDto;
+
+public interface IndexManagementService {
+    void ensureIndex();
+    ReindexStatusDto startReindex(boolean assignRegions);
+    ReindexStatusDto getReindexStatus();
+}
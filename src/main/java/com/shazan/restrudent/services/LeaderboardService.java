@@ -0,0 +1,9 @@
+package com.shazan.restrudent.services;
+
+import com.shazan.restrudent.domain.dto.RestrurantSummaryDto;
+
+import java.util.List;
+
+public interface LeaderboardService {
+    List<RestrurantSummaryDto> getTopRated(String city, String cuisineType, int limit);
+}
@@ -0,0 +1,10 @@
+package com.shazan.restrudent.services;
+
+import com.shazan.restrudent.domain.dto.NearbyRestrurantDto;
+
+import java.util.List;
+
+public interface NearbySearchService {
+    List<NearbyRestrurantDto> findNearby(double latitude, double longitude, double radiusKm,
+                                         String cuisineType, Float minRating, boolean openNow, int limit);
+}
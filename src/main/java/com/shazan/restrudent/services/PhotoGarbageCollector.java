@@ -0,0 +1,7 @@
+package com.shazan.restrudent.services;
+
+import com.shazan.restrudent.domain.dto.PhotoSweepReportDto;
+
+public interface PhotoGarbageCollector {
+    PhotoSweepReportDto sweep(boolean dryRun);
+}
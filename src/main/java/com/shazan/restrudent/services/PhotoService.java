@@ -4,9 +4,11 @@ import com.shazan.restrudent.domain.entity.Photo;
 import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.ByteBuffer;
 import java.util.Optional;
 
 public interface PhotoService  {
     Photo upLoadPhoto(MultipartFile file);
+    Optional<ByteBuffer> getCachedPhoto(String id);
     Optional<Resource> getPhotoAsResource(String id);
 }
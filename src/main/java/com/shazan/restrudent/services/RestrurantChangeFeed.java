@@ -0,0 +1,7 @@
+package com.shazan.restrudent.services;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface RestrurantChangeFeed {
+    SseEmitter subscribe(String lastEventId);
+}
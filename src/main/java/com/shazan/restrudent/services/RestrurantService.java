@@ -1,17 +1,33 @@
 package com.shazan.restrudent.services;
 
 import com.shazan.restrudent.domain.dto.CreateRestrurantRequest;
+import com.shazan.restrudent.domain.dto.OwnerRestrurantsDto;
 import com.shazan.restrudent.domain.dto.RestrurantDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 public interface RestrurantService {
+
+    /**
+     * A page of restaurants with a version built from the ids and document versions of its hits.
+     * The DTOs are only mapped when {@code content} is called, so a client whose copy is still
+     * current never pays for them.
+     */
+    record VersionedPage(String version, Supplier<Page<RestrurantDto>> content) {
+    }
+
     RestrurantDto createRestrurant(CreateRestrurantRequest request);
+    List<RestrurantDto> createRestrurants(List<CreateRestrurantRequest> requests);
     Optional<RestrurantDto> getRestrurantById(String id);
-    Page<RestrurantDto> getAllRestrurants(Pageable pageable);
+    Optional<String> getRestrurantVersion(String id);
+    VersionedPage getAllRestrurants(Pageable pageable);
     RestrurantDto updateRestrurant(String id, CreateRestrurantRequest request);
     void deleteRestrurant(String id);
-    Page<RestrurantDto> searchRestrurants(String query, Pageable pageable);
+    VersionedPage searchRestrurants(String query, Double latitude, Double longitude, String city, String country,
+                                    Pageable pageable);
+    OwnerRestrurantsDto getMyRestrurants(Pageable pageable);
 }
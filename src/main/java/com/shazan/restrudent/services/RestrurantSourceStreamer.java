@@ -0,0 +1,12 @@
+package com.shazan.restrudent.services;
+
+import org.springframework.data.domain.Pageable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface RestrurantSourceStreamer {
+    void streamAll(Pageable pageable, OutputStream out) throws IOException;
+    void streamSearch(String query, Double latitude, Double longitude, String city, String country, Pageable pageable,
+                      OutputStream out) throws IOException;
+}
@@ -0,0 +1,13 @@
+package com.shazan.restrudent.services;
+
+import com.shazan.restrudent.domain.dto.CreateReviewRequest;
+import com.shazan.restrudent.domain.dto.ReviewDto;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Optional;
+
+public interface ReviewService {
+    Optional<ReviewDto> createReview(String restrurantId, CreateReviewRequest request);
+    Optional<Page<ReviewDto>> getReviews(String restrurantId, Pageable pageable);
+}
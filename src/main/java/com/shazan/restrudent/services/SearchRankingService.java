@@ -0,0 +1,10 @@
+package com.shazan.restrudent.services;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import com.shazan.restrudent.domain.dto.RankingProfileDto;
+
+public interface SearchRankingService {
+    RankingProfileDto getProfile();
+    RankingProfileDto updateProfile(RankingProfileDto profile);
+    Query rankedQuery(String text, Double latitude, Double longitude);
+}
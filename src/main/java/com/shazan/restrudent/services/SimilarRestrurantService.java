@@ -0,0 +1,12 @@
+package com.shazan.restrudent.services;
+
+import com.shazan.restrudent.domain.dto.RestrurantSummaryDto;
+import com.shazan.restrudent.domain.dto.SimilarityRebuildStatusDto;
+
+import java.util.List;
+
+public interface SimilarRestrurantService {
+    List<RestrurantSummaryDto> getSimilar(String restrurantId);
+    SimilarityRebuildStatusDto startRebuild();
+    SimilarityRebuildStatusDto getRebuildStatus();
+}
@@ -1,13 +1,22 @@
 package com.shazan.restrudent.services;
 
-
+import com.shazan.restrudent.domain.dto.StorageRebalanceReportDto;
 import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface StorageService {
+
+    record StoredFile(String id, long size, Instant lastModified) {
+    }
+
     String store(MultipartFile file, String filename) throws IOException;
     Optional<Resource> load(String id);
+    Stream<StoredFile> listAll() throws IOException;
+    boolean delete(String id) throws IOException;
+    StorageRebalanceReportDto rebalance();
 }
@@ -0,0 +1,170 @@
+package com.shazan.restrudent.services.impl;
+
+import com.shazan.restrudent.services.impl.RequestTimings.Stage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Structured (one JSON object per line) access log with per-stage timings, written by a single
+ * background thread. The keep decision is made when the request ends (tail sampling): errors and
+ * slow requests are always kept, the rest at {@code app.access-log.sample-rate}. Request threads
+ * only ever offer to a bounded queue; when it is full the entry is dropped and counted.
+ */
+@Component
+@Slf4j(topic = "com.shazan.restrudent.access")
+public class AccessLogWriter {
+    private static final Stage[] STAGES = Stage.values();
+    private static final long DROP_REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private record Entry(long timestamp, String method, String path, int status, long totalNanos,
+                         long[] stageNanos, int elasticsearchCalls, long bytes, String reason) {
+    }
+
+    @Value("${app.access-log.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.access-log.slow-threshold-ms:500}")
+    private long slowThresholdMs;
+
+    @Value("${app.access-log.sample-rate:0.01}")
+    private double sampleRate;
+
+    @Value("${app.access-log.error-status:500}")
+    private int errorStatus;
+
+    @Value("${app.access-log.queue-capacity:8192}")
+    private int queueCapacity;
+
+    private ArrayBlockingQueue<Entry> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean running;
+    private Thread writer;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = Thread.ofPlatform().daemon().name("access-log-writer").start(this::drain);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(2));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Called once per request when it has completed; never blocks.
+     */
+    public void submit(String method, String path, int status, long endNanos, RequestTimings timings,
+                       long bytes, boolean failed) {
+        long totalNanos = endNanos - timings.startNanos();
+        String reason;
+        if (failed || status >= errorStatus) {
+            reason = "error";
+        } else if (totalNanos >= TimeUnit.MILLISECONDS.toNanos(slowThresholdMs)) {
+            reason = "slow";
+        } else if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            reason = "sampled";
+        } else {
+            return;
+        }
+
+        long[] stageNanos = new long[STAGES.length];
+        for (Stage stage : STAGES) {
+            stageNanos[stage.ordinal()] = timings.nanos(stage);
+        }
+        // Serialization is everything from the start of the body write to the end, less the time in socket writes
+        if (timings.serializationStartNanos() > 0) {
+            stageNanos[Stage.SERIALIZATION.ordinal()] = Math.max(0,
+                    endNanos - timings.serializationStartNanos() - timings.nanos(Stage.IO));
+        }
+        Entry entry = new Entry(System.currentTimeMillis(), method, path, status, totalNanos, stageNanos,
+                timings.count(Stage.ELASTICSEARCH), bytes, reason);
+        if (!queue.offer(entry)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void drain() {
+        StringBuilder line = new StringBuilder(512);
+        long reportedDrops = 0;
+        long lastReport = System.nanoTime();
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry entry = queue.poll(1, TimeUnit.SECONDS);
+                if (entry != null) {
+                    line.setLength(0);
+                    format(entry, line);
+                    log.info(line.toString());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // A broken appender must not kill the writer
+            }
+            long now = System.nanoTime();
+            if (now - lastReport >= DROP_REPORT_INTERVAL_NANOS) {
+                long drops = dropped.get();
+                if (drops > reportedDrops) {
+                    log.warn("{} access log entries dropped in the last {} s, the queue was full",
+                            drops - reportedDrops, TimeUnit.NANOSECONDS.toSeconds(now - lastReport));
+                    reportedDrops = drops;
+                }
+                lastReport = now;
+            }
+        }
+    }
+
+    private void format(Entry entry, StringBuilder line) {
+        line.append("{\"ts\":").append(entry.timestamp())
+                .append(",\"method\":\"").append(entry.method()).append('"')
+                .append(",\"path\":\"");
+        appendEscaped(line, entry.path());
+        line.append("\",\"status\":").append(entry.status())
+                .append(",\"totalUs\":").append(entry.totalNanos() / 1_000)
+                .append(",\"authUs\":").append(entry.stageNanos()[Stage.AUTH.ordinal()] / 1_000)
+                .append(",\"esUs\":").append(entry.stageNanos()[Stage.ELASTICSEARCH.ordinal()] / 1_000)
+                .append(",\"esCalls\":").append(entry.elasticsearchCalls())
+                .append(",\"mappingUs\":").append(entry.stageNanos()[Stage.MAPPING.ordinal()] / 1_000)
+                .append(",\"serializationUs\":").append(entry.stageNanos()[Stage.SERIALIZATION.ordinal()] / 1_000)
+                .append(",\"ioUs\":").append(entry.stageNanos()[Stage.IO.ordinal()] / 1_000)
+                .append(",\"bytes\":").append(entry.bytes())
+                .append(",\"kept\":\"").append(entry.reason()).append("\"}");
+    }
+
+    private static void appendEscaped(StringBuilder line, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+    }
+}
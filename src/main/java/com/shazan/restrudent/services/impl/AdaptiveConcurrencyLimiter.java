@@ -0,0 +1,75 @@
+package com.shazan.restrudent.services.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD concurrency limit: grows by one per window while backend latency stays under target,
+ * shrinks multiplicatively as soon as the smoothed latency goes over it.
+ */
+final class AdaptiveConcurrencyLimiter {
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final long adjustIntervalNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private volatile double smoothedLatencyNanos;
+    private volatile long lastAdjustNanos = System.nanoTime();
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long targetLatencyMillis) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+        this.adjustIntervalNanos = targetLatencyNanos;
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    void onSample(long latencyNanos) {
+        onSample(latencyNanos, System.nanoTime());
+    }
+
+    void onSample(long latencyNanos, long nowNanos) {
+        double smoothed = smoothedLatencyNanos == 0
+                ? latencyNanos
+                : smoothedLatencyNanos + SMOOTHING * (latencyNanos - smoothedLatencyNanos);
+        smoothedLatencyNanos = smoothed;
+
+        if (nowNanos - lastAdjustNanos < adjustIntervalNanos) {
+            return;
+        }
+        lastAdjustNanos = nowNanos;
+        double current = limit;
+        limit = smoothed > targetLatencyNanos
+                ? Math.max(minLimit, current * BACKOFF_RATIO)
+                : Math.min(maxLimit, current + 1);
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,129 @@
+package com.shazan.restrudent.services.impl;
+
+import com.shazan.restrudent.services.AdmissionControlService;
+import com.shazan.restrudent.services.ElasticsearchGuard;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-subject GCRA buckets per request class, plus one AIMD concurrency limit shared by all reads
+ * and searches. The limit is held for the whole request but adapts to the latency of the
+ * Elasticsearch calls those requests make, as reported by the guard, so time spent on auth,
+ * mapping or writing to a slow client does not shrink it.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AdmissionControlServiceImpl implements AdmissionControlService {
+
+    private final ElasticsearchGuard elasticsearchGuard;
+
+    @Value("${app.ratelimit.read.rate:50}")
+    private double readRate;
+
+    @Value("${app.ratelimit.read.burst:100}")
+    private int readBurst;
+
+    @Value("${app.ratelimit.search.rate:10}")
+    private double searchRate;
+
+    @Value("${app.ratelimit.search.burst:20}")
+    private int searchBurst;
+
+    @Value("${app.ratelimit.upload.rate:2}")
+    private double uploadRate;
+
+    @Value("${app.ratelimit.upload.burst:5}")
+    private int uploadBurst;
+
+    @Value("${app.ratelimit.write.rate:5}")
+    private double writeRate;
+
+    @Value("${app.ratelimit.write.burst:10}")
+    private int writeBurst;
+
+    @Value("${app.ratelimit.concurrency.initial:64}")
+    private int initialConcurrency;
+
+    @Value("${app.ratelimit.concurrency.min:8}")
+    private int minConcurrency;
+
+    @Value("${app.ratelimit.concurrency.max:256}")
+    private int maxConcurrency;
+
+    @Value("${app.ratelimit.concurrency.target-latency-ms:250}")
+    private long targetLatencyMillis;
+
+    // One array of buckets per subject, indexed by RequestClass ordinal
+    private final ConcurrentHashMap<String, GcraBucket[]> buckets = new ConcurrentHashMap<>();
+    private AdaptiveConcurrencyLimiter backendLimiter;
+
+    @PostConstruct
+    public void init() {
+        backendLimiter = new AdaptiveConcurrencyLimiter(initialConcurrency, minConcurrency, maxConcurrency, targetLatencyMillis);
+        elasticsearchGuard.addLatencyListener((operation, latencyNanos) -> {
+            if (operation.isIdempotent()) {
+                backendLimiter.onSample(latencyNanos);
+            }
+        });
+    }
+
+    @Override
+    public Admission admit(String subject, RequestClass requestClass) {
+        long now = System.nanoTime();
+        GcraBucket bucket = buckets.computeIfAbsent(subject, key -> newBuckets())[requestClass.ordinal()];
+        long waitNanos = bucket.tryAcquire(now);
+        if (waitNanos > 0) {
+            return new Admission(false, requestClass, false, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L)));
+        }
+
+        if (!usesBackendLimit(requestClass)) {
+            return new Admission(true, requestClass, false, 0);
+        }
+        if (!backendLimiter.tryAcquire()) {
+            log.debug("Backend concurrency limit {} reached, rejecting {} request", backendLimiter.getLimit(), requestClass);
+            return new Admission(false, requestClass, false, 1);
+        }
+        return new Admission(true, requestClass, true, 0);
+    }
+
+    @Override
+    public void release(Admission admission) {
+        if (admission.holdsConcurrencyPermit()) {
+            backendLimiter.release();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.ratelimit.eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.entrySet().removeIf(entry -> {
+            for (GcraBucket bucket : entry.getValue()) {
+                if (!bucket.isIdle(now)) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    private boolean usesBackendLimit(RequestClass requestClass) {
+        return requestClass == RequestClass.READ || requestClass == RequestClass.SEARCH;
+    }
+
+    private GcraBucket[] newBuckets() {
+        GcraBucket[] perClass = new GcraBucket[RequestClass.values().length];
+        perClass[RequestClass.READ.ordinal()] = new GcraBucket(readRate, readBurst);
+        perClass[RequestClass.SEARCH.ordinal()] = new GcraBucket(searchRate, searchBurst);
+        perClass[RequestClass.UPLOAD.ordinal()] = new GcraBucket(uploadRate, uploadBurst);
+        perClass[RequestClass.WRITE.ordinal()] = new GcraBucket(writeRate, writeBurst);
+        return perClass;
+    }
+}
@@ -0,0 +1,266 @@
+package com.shazan.restrudent.services.impl;
+
+import com.shazan.restrudent.domain.entity.OperatingHour;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Column-oriented copy of the fields structured restaurant queries filter on: one primitive array
+ * per field, indexed by slot, plus a uniform lat/lon grid over the slots. Queries take the read
+ * lock and scan candidate slots, in parallel once there are enough of them; writes take the write lock.
+ */
+final class CatalogueReplica {
+    private static final double KM_PER_DEGREE = 111.32;
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final int PARALLEL_THRESHOLD = 4096;
+    private static final int MAX_GRID_CELLS = 4096;
+
+    record Row(String id, String name, String cuisineType, float averageRating, int reviewCount,
+               Double latitude, Double longitude, OperatingHour operatingHours) {
+    }
+
+    record Result(String id, String name, String cuisineType, float averageRating, int reviewCount,
+                  double latitude, double longitude, double distanceKm) {
+    }
+
+    private record Candidate(int slot, double distanceKm) {
+    }
+
+    private static final class Cell {
+        private int[] slots = new int[8];
+        private int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        void remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    slots[i] = slots[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private final double cellDegrees;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private final Map<String, Integer> cuisineOrdinals = new HashMap<>();
+    private final Map<Long, Cell> grid = new HashMap<>();
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+
+    private int size;
+    private String[] ids = new String[1024];
+    private String[] names = new String[1024];
+    private String[] cuisineTypes = new String[1024];
+    private int[] cuisines = new int[1024];
+    private float[] ratings = new float[1024];
+    private int[] reviewCounts = new int[1024];
+    private double[] latitudes = new double[1024];
+    private double[] longitudes = new double[1024];
+    private boolean[] located = new boolean[1024];
+    private boolean[] hasHours = new boolean[1024];
+    private long[] hours = new long[1024 * OpeningHoursBitmap.WORDS];
+
+    CatalogueReplica(double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return slotById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void upsert(Row row) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = slotById.get(row.id());
+            int slot;
+            if (existing != null) {
+                slot = existing;
+                unindex(slot);
+            } else {
+                slot = freeSlots.isEmpty() ? size++ : freeSlots.pop();
+                ensureCapacity(slot + 1);
+                slotById.put(row.id(), slot);
+            }
+            ids[slot] = row.id();
+            names[slot] = row.name();
+            cuisineTypes[slot] = row.cuisineType();
+            cuisines[slot] = row.cuisineType() == null ? -1
+                    : cuisineOrdinals.computeIfAbsent(normalize(row.cuisineType()), key -> cuisineOrdinals.size());
+            ratings[slot] = row.averageRating();
+            reviewCounts[slot] = row.reviewCount();
+            located[slot] = row.latitude() != null && row.longitude() != null;
+            latitudes[slot] = located[slot] ? row.latitude() : 0;
+            longitudes[slot] = located[slot] ? row.longitude() : 0;
+            hasHours[slot] = OpeningHoursBitmap.encode(row.operatingHours(), hours, slot * OpeningHoursBitmap.WORDS);
+            if (located[slot]) {
+                grid.computeIfAbsent(cellOf(latitudes[slot], longitudes[slot]), key -> new Cell()).add(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotById.remove(id);
+            if (slot == null) {
+                return;
+            }
+            unindex(slot);
+            ids[slot] = null;
+            names[slot] = null;
+            cuisineTypes[slot] = null;
+            located[slot] = false;
+            freeSlots.push(slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param openSlot quarter-hour of the week that must be open, or -1 for no opening-hours filter
+     */
+    List<Result> nearby(double latitude, double longitude, double radiusKm, String cuisineType,
+                        Float minRating, int openSlot, int limit) {
+        lock.readLock().lock();
+        try {
+            int cuisine = -1;
+            if (cuisineType != null) {
+                Integer ordinal = cuisineOrdinals.get(normalize(cuisineType));
+                if (ordinal == null) {
+                    return List.of();
+                }
+                cuisine = ordinal;
+            }
+            int requiredCuisine = cuisine;
+            float requiredRating = minRating != null ? minRating : Float.NEGATIVE_INFINITY;
+
+            int[] candidates = candidateSlots(latitude, longitude, radiusKm);
+            IntStream slots = IntStream.of(candidates);
+            if (candidates.length >= PARALLEL_THRESHOLD) {
+                slots = slots.parallel();
+            }
+            return slots
+                    .filter(slot -> located[slot] && ids[slot] != null)
+                    .filter(slot -> requiredCuisine < 0 || cuisines[slot] == requiredCuisine)
+                    .filter(slot -> ratings[slot] >= requiredRating)
+                    .filter(slot -> openSlot < 0 || (hasHours[slot]
+                            && OpeningHoursBitmap.isOpen(hours, slot * OpeningHoursBitmap.WORDS, openSlot)))
+                    .mapToObj(slot -> new Candidate(slot, distanceKm(latitude, longitude, latitudes[slot], longitudes[slot])))
+                    .filter(candidate -> candidate.distanceKm() <= radiusKm)
+                    .sorted(Comparator.comparingDouble(Candidate::distanceKm))
+                    .limit(limit)
+                    .map(candidate -> {
+                        int slot = candidate.slot();
+                        return new Result(ids[slot], names[slot], cuisineTypes[slot], ratings[slot], reviewCounts[slot],
+                                latitudes[slot], longitudes[slot], candidate.distanceKm());
+                    })
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // Grid cells overlapping the query's bounding box; a full scan when the box covers too many cells
+    private int[] candidateSlots(double latitude, double longitude, double radiusKm) {
+        double latDelta = radiusKm / KM_PER_DEGREE;
+        double lonDelta = Math.min(180, radiusKm / (KM_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(latitude)))));
+        long minLat = (long) Math.floor((latitude - latDelta) / cellDegrees);
+        long maxLat = (long) Math.floor((latitude + latDelta) / cellDegrees);
+        long minLon = (long) Math.floor((longitude - lonDelta) / cellDegrees);
+        long maxLon = (long) Math.floor((longitude + lonDelta) / cellDegrees);
+        if ((maxLat - minLat + 1) * (maxLon - minLon + 1) > MAX_GRID_CELLS) {
+            return IntStream.range(0, size).toArray();
+        }
+        int[] candidates = new int[64];
+        int count = 0;
+        for (long latCell = minLat; latCell <= maxLat; latCell++) {
+            for (long lonCell = minLon; lonCell <= maxLon; lonCell++) {
+                Cell cell = grid.get(key(latCell, lonCell));
+                if (cell == null) {
+                    continue;
+                }
+                if (count + cell.size > candidates.length) {
+                    candidates = Arrays.copyOf(candidates, Math.max(candidates.length * 2, count + cell.size));
+                }
+                System.arraycopy(cell.slots, 0, candidates, count, cell.size);
+                count += cell.size;
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    private void unindex(int slot) {
+        if (!located[slot]) {
+            return;
+        }
+        long key = cellOf(latitudes[slot], longitudes[slot]);
+        Cell cell = grid.get(key);
+        if (cell != null) {
+            cell.remove(slot);
+            if (cell.size == 0) {
+                grid.remove(key);
+            }
+        }
+    }
+
+    private long cellOf(double latitude, double longitude) {
+        return key((long) Math.floor(latitude / cellDegrees), (long) Math.floor(longitude / cellDegrees));
+    }
+
+    private static long key(long latCell, long lonCell) {
+        return (latCell << 32) ^ (lonCell & 0xffffffffL);
+    }
+
+    // Same match as the case-insensitive term on cuisineType.keyword that Elasticsearch answers with
+    private static String normalize(String cuisineType) {
+        return cuisineType.toLowerCase(Locale.ROOT);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        cuisineTypes = Arrays.copyOf(cuisineTypes, capacity);
+        cuisines = Arrays.copyOf(cuisines, capacity);
+        ratings = Arrays.copyOf(ratings, capacity);
+        reviewCounts = Arrays.copyOf(reviewCounts, capacity);
+        latitudes = Arrays.copyOf(latitudes, capacity);
+        longitudes = Arrays.copyOf(longitudes, capacity);
+        located = Arrays.copyOf(located, capacity);
+        hasHours = Arrays.copyOf(hasHours, capacity);
+        hours = Arrays.copyOf(hours, capacity * OpeningHoursBitmap.WORDS);
+    }
+}
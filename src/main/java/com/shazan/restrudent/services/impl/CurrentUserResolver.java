@@ -0,0 +1,28 @@
+package com.shazan.restrudent.services.impl;
+
+import com.shazan.restrudent.domain.entity.User;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+
+/**
+ * The caller as a {@link User}, built from the claims of the already decoded (and cached) JWT.
+ * Each call gets its own instance, since the user is stored on the documents it writes.
+ */
+@Component
+public class CurrentUserResolver {
+
+    public User currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof Jwt jwt)) {
+            return null;
+        }
+        return User.builder()
+                .id(jwt.getSubject())
+                .username(jwt.getClaim("preferred_username"))
+                .givename(jwt.getClaim("given_name"))
+                .familyName(jwt.getClaim("family_name"))
+                .build();
+    }
+}
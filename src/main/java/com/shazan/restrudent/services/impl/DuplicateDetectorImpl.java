@@ -0,0 +1,136 @@
+package com.shazan.restrudent.services.impl;
+
+import com.shazan.restrudent.domain.entity.Restrurant;
+import com.shazan.restrudent.domain.event.RestrurantChangedEvent;
+import com.shazan.restrudent.services.DuplicateDetector;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
+import org.springframework.data.elasticsearch.core.query.SourceFilter;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Near-duplicate lookup for restaurants being ingested, against an in-memory {@link DuplicateIndex}
+ * loaded by one index scan once the application is up and maintained from change events.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DuplicateDetectorImpl implements DuplicateDetector {
+    private static final SourceFilter DUPLICATE_FIELDS = new FetchSourceFilterBuilder()
+            .withIncludes("name", "geoLocation")
+            .build();
+
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    @Value("${app.duplicates.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.duplicates.max-distance-meters:150}")
+    private double maxDistanceMeters;
+
+    @Value("${app.duplicates.min-similarity:0.7}")
+    private double minSimilarity;
+
+    @Value("${app.duplicates.geohash-precision:7}")
+    private int geohashPrecision;
+
+    private final ReplicaLoader loader = new ReplicaLoader(DUPLICATE_FIELDS);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private DuplicateIndex index;
+
+    @PostConstruct
+    void init() {
+        index = new DuplicateIndex(geohashPrecision);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            executor.submit(this::build);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public Optional<DuplicateMatch> findDuplicate(Restrurant candidate) {
+        if (!enabled || candidate.getGeoLocation() == null) {
+            return Optional.empty();
+        }
+        return index.closest(candidate.getId(), candidate.getName(),
+                        candidate.getGeoLocation().getLat(), candidate.getGeoLocation().getLon(),
+                        maxDistanceMeters, minSimilarity)
+                .map(match -> new DuplicateMatch(match.entry().id(), match.entry().name(),
+                        match.similarity(), match.distanceMeters()));
+    }
+
+    @Override
+    public Optional<DuplicateMatch> claim(Restrurant candidate) {
+        if (!enabled || candidate.getId() == null || candidate.getGeoLocation() == null) {
+            return Optional.empty();
+        }
+        return index.claim(candidate.getId(), candidate.getName(),
+                        candidate.getGeoLocation().getLat(), candidate.getGeoLocation().getLon(),
+                        maxDistanceMeters, minSimilarity)
+                .map(match -> new DuplicateMatch(match.entry().id(), match.entry().name(),
+                        match.similarity(), match.distanceMeters()));
+    }
+
+    @Override
+    public void register(Restrurant restrurant) {
+        if (!enabled || restrurant.getId() == null) {
+            return;
+        }
+        if (restrurant.getGeoLocation() == null) {
+            index.remove(restrurant.getId());
+            return;
+        }
+        index.put(restrurant.getId(), restrurant.getName(),
+                restrurant.getGeoLocation().getLat(), restrurant.getGeoLocation().getLon());
+    }
+
+    @Override
+    public void unregister(String restrurantId) {
+        if (enabled) {
+            index.remove(restrurantId);
+        }
+    }
+
+    @EventListener
+    public void onRestrurantChanged(RestrurantChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        loader.changed(event.restrurantId());
+        if (event.restrurant() == null) {
+            unregister(event.restrurantId());
+        } else {
+            register(event.restrurant());
+        }
+    }
+
+    void build() {
+        long start = System.nanoTime();
+        try {
+            loader.load(elasticsearchOperations, this::register);
+            log.info("Duplicate index loaded {} restaurants in {} ms",
+                    index.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("Could not load duplicate index: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.shazan.restrudent.services.impl;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Restaurants bucketed by geohash cell, each with a MinHash signature of its normalized name's
+ * character trigrams. A lookup only visits the cells overlapping the search box and compares
+ * fixed-size signatures, so it costs microseconds regardless of catalogue size.
+ */
+final class DuplicateIndex {
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final double METERS_PER_DEGREE = 111_320.0;
+    private static final int NUM_HASHES = 64;
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+    private static final Set<String> STOP_WORDS = Set.of("the", "and", "restaurant", "ltd");
+    private static final long[] MULTIPLIERS = new long[NUM_HASHES];
+    private static final long[] OFFSETS = new long[NUM_HASHES];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5eedL);
+        for (int i = 0; i < NUM_HASHES; i++) {
+            MULTIPLIERS[i] = random.nextLong() | 1;
+            OFFSETS[i] = random.nextLong();
+        }
+    }
+
+    record Entry(String id, String name, double latitude, double longitude, String cell, int[] signature) {
+    }
+
+    record Match(Entry entry, double similarity, double distanceMeters) {
+    }
+
+    private final int precision;
+    private final double cellHeight;
+    private final double cellWidth;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, List<Entry>> cells = new HashMap<>();
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    DuplicateIndex(int precision) {
+        this.precision = precision;
+        int bits = 5 * precision;
+        this.cellHeight = 180.0 / (1L << (bits / 2));
+        this.cellWidth = 360.0 / (1L << (bits - bits / 2));
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void put(String id, String name, double latitude, double longitude) {
+        int[] signature = signature(name);
+        lock.writeLock().lock();
+        try {
+            if (signature == null) {
+                removeLocked(id);
+            } else {
+                putLocked(id, name, latitude, longitude, signature);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Most similar entry within {@code maxDistanceMeters} whose estimated name similarity is at
+     * least {@code minSimilarity}; ties go to the nearer one.
+     */
+    Optional<Match> closest(String excludeId, String name, double latitude, double longitude,
+                            double maxDistanceMeters, double minSimilarity) {
+        int[] signature = signature(name);
+        if (signature == null) {
+            return Optional.empty();
+        }
+        Set<String> searchCells = cellsAround(latitude, longitude, maxDistanceMeters);
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(closestLocked(excludeId, signature, latitude, longitude, searchCells,
+                    maxDistanceMeters, minSimilarity));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Same lookup as {@link #closest}, but when nothing matches the entry is added in the same step,
+     * so of two similar restaurants claimed concurrently the second one sees the first.
+     */
+    Optional<Match> claim(String id, String name, double latitude, double longitude,
+                          double maxDistanceMeters, double minSimilarity) {
+        int[] signature = signature(name);
+        if (signature == null) {
+            return Optional.empty();
+        }
+        Set<String> searchCells = cellsAround(latitude, longitude, maxDistanceMeters);
+        lock.writeLock().lock();
+        try {
+            Match match = closestLocked(id, signature, latitude, longitude, searchCells, maxDistanceMeters, minSimilarity);
+            if (match == null) {
+                putLocked(id, name, latitude, longitude, signature);
+            }
+            return Optional.ofNullable(match);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static String geohash(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90, minLon = -180, maxLon = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int ch = 0;
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLon + maxLon) / 2;
+                if (longitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLon = mid;
+                } else {
+                    ch <<= 1;
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch <<= 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                hash.append(BASE32.charAt(ch));
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / NUM_HASHES;
+    }
+
+    /**
+     * MinHash of the character trigrams of the normalized name, or null when nothing is left
+     * after normalization.
+     */
+    static int[] signature(String name) {
+        String normalized = normalize(name);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        long[] minimums = new long[NUM_HASHES];
+        Arrays.fill(minimums, Long.MAX_VALUE);
+        int shingleLength = Math.min(3, normalized.length());
+        for (int start = 0; start + shingleLength <= normalized.length(); start++) {
+            long shingle = 0xcbf29ce484222325L;
+            for (int i = start; i < start + shingleLength; i++) {
+                shingle ^= normalized.charAt(i);
+                shingle *= 0x100000001b3L;
+            }
+            for (int i = 0; i < NUM_HASHES; i++) {
+                long hash = (MULTIPLIERS[i] * shingle + OFFSETS[i]) >>> 32;
+                if (hash < minimums[i]) {
+                    minimums[i] = hash;
+                }
+            }
+        }
+        int[] signature = new int[NUM_HASHES];
+        for (int i = 0; i < NUM_HASHES; i++) {
+            signature[i] = (int) minimums[i];
+        }
+        return signature;
+    }
+
+    static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        String stripped = COMBINING_MARKS.matcher(Normalizer.normalize(name, Normalizer.Form.NFKD)).replaceAll("");
+        String folded = NON_ALPHANUMERIC.matcher(stripped.toLowerCase(Locale.ROOT).replace("&", " and ")).replaceAll(" ");
+        StringBuilder normalized = new StringBuilder(folded.length());
+        for (String word : folded.trim().split(" ")) {
+            if (word.isEmpty() || STOP_WORDS.contains(word)) {
+                continue;
+            }
+            if (!normalized.isEmpty()) {
+                normalized.append(' ');
+            }
+            normalized.append(word);
+        }
+        return normalized.toString();
+    }
+
+    // Every cell overlapping the box of half-size maxDistanceMeters around the point
+    private Set<String> cellsAround(double latitude, double longitude, double maxDistanceMeters) {
+        double dLat = maxDistanceMeters / METERS_PER_DEGREE;
+        double dLon = maxDistanceMeters / (METERS_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(latitude))));
+        Set<String> result = new LinkedHashSet<>();
+        for (double lat = latitude - dLat; ; lat = Math.min(lat + cellHeight, latitude + dLat)) {
+            for (double lon = longitude - dLon; ; lon = Math.min(lon + cellWidth, longitude + dLon)) {
+                result.add(geohash(clamp(lat, -90, 90), wrap(lon), precision));
+                if (lon >= longitude + dLon) {
+                    break;
+                }
+            }
+            if (lat >= latitude + dLat) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private Match closestLocked(String excludeId, int[] signature, double latitude, double longitude,
+                                Set<String> searchCells, double maxDistanceMeters, double minSimilarity) {
+        Match best = null;
+        for (String cell : searchCells) {
+            for (Entry entry : cells.getOrDefault(cell, List.of())) {
+                if (entry.id().equals(excludeId)) {
+                    continue;
+                }
+                double distance = CatalogueReplica.distanceKm(latitude, longitude, entry.latitude(), entry.longitude()) * 1000;
+                if (distance > maxDistanceMeters) {
+                    continue;
+                }
+                double similarity = similarity(signature, entry.signature());
+                if (similarity < minSimilarity) {
+                    continue;
+                }
+                if (best == null || similarity > best.similarity()
+                        || (similarity == best.similarity() && distance < best.distanceMeters())) {
+                    best = new Match(entry, similarity, distance);
+                }
+            }
+        }
+        return best;
+    }
+
+    private void putLocked(String id, String name, double latitude, double longitude, int[] signature) {
+        removeLocked(id);
+        Entry entry = new Entry(id, name, latitude, longitude, geohash(latitude, longitude, precision), signature);
+        entries.put(id, entry);
+        cells.computeIfAbsent(entry.cell(), cell -> new ArrayList<>()).add(entry);
+    }
+
+    private void removeLocked(String id) {
+        Entry previous = entries.remove(id);
+        if (previous == null) {
+            return;
+        }
+        List<Entry> cell = cells.get(previous.cell());
+        if (cell != null) {
+            cell.removeIf(entry -> entry.id().equals(id));
+            if (cell.isEmpty()) {
+                cells.remove(previous.cell());
+            }
+        }
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static double wrap(double longitude) {
+        if (longitude < -180) {
+            return longitude + 360;
+        }
+        return longitude >= 180 ? longitude - 360 : longitude;
+    }
+}
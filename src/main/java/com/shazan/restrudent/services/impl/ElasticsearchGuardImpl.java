@@ -0,0 +1,275 @@
+package com.shazan.restrudent.services.impl;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.transport.TransportException;
+import com.shazan.restrudent.expections.ElasticsearchUnavailableException;
+import com.shazan.restrudent.services.ElasticsearchGuard;
+import com.shazan.restrudent.services.impl.RequestTimings.Stage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.elasticsearch.UncategorizedElasticsearchException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs Elasticsearch calls on virtual threads with a per-operation deadline behind a circuit breaker.
+ * Idempotent calls still running past the observed latency percentile get one hedged duplicate,
+ * and whichever answers first wins. Attempts nobody waits for any more are interrupted, except a
+ * write past its deadline: it may still commit, so it is left to the client's socket timeout and
+ * reported through its late-success callback if it does.
+ */
+@Service
+@Slf4j
+public class ElasticsearchGuardImpl implements ElasticsearchGuard {
+
+    @Value("${app.elasticsearch.guard.read-timeout-ms:800}")
+    private long readTimeoutMillis;
+
+    @Value("${app.elasticsearch.guard.search-timeout-ms:2000}")
+    private long searchTimeoutMillis;
+
+    @Value("${app.elasticsearch.guard.write-timeout-ms:3000}")
+    private long writeTimeoutMillis;
+
+    @Value("${app.elasticsearch.guard.hedge.enabled:true}")
+    private boolean hedgeEnabled;
+
+    @Value("${app.elasticsearch.guard.hedge.percentile:0.95}")
+    private double hedgePercentile;
+
+    @Value("${app.elasticsearch.guard.hedge.min-delay-ms:20}")
+    private long hedgeMinDelayMillis;
+
+    @Value("${app.elasticsearch.guard.hedge.max-ratio:0.1}")
+    private double hedgeMaxRatio;
+
+    @Value("${app.elasticsearch.guard.breaker.window-size:50}")
+    private int breakerWindowSize;
+
+    @Value("${app.elasticsearch.guard.breaker.minimum-calls:20}")
+    private int breakerMinimumCalls;
+
+    @Value("${app.elasticsearch.guard.breaker.failure-rate:0.5}")
+    private double breakerFailureRate;
+
+    @Value("${app.elasticsearch.guard.breaker.open-ms:10000}")
+    private long breakerOpenMillis;
+
+    @Value("${app.elasticsearch.guard.breaker.half-open-calls:3}")
+    private int breakerHalfOpenCalls;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong idempotentCalls = new AtomicLong();
+    private final AtomicLong hedgedCalls = new AtomicLong();
+    private final List<LatencyListener> latencyListeners = new CopyOnWriteArrayList<>();
+    private CircuitBreaker circuitBreaker;
+    private LatencyTracker latencyTracker;
+
+    @PostConstruct
+    public void init() {
+        circuitBreaker = new CircuitBreaker(breakerWindowSize, breakerMinimumCalls, breakerFailureRate,
+                TimeUnit.MILLISECONDS.toNanos(breakerOpenMillis), breakerHalfOpenCalls);
+        latencyTracker = new LatencyTracker(512, hedgePercentile);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public <T> T call(Operation operation, Supplier<T> call) {
+        return call(operation, call, null);
+    }
+
+    @Override
+    public <T> T write(Supplier<T> call, Consumer<? super T> lateSuccess) {
+        return call(Operation.WRITE, call, lateSuccess);
+    }
+
+    private <T> T call(Operation operation, Supplier<T> call, Consumer<? super T> lateSuccess) {
+        long start = System.nanoTime();
+        try {
+            return guardedCall(operation, call, lateSuccess, start);
+        } finally {
+            RequestTimings.record(Stage.ELASTICSEARCH, System.nanoTime() - start);
+        }
+    }
+
+    private <T> T guardedCall(Operation operation, Supplier<T> call, Consumer<? super T> lateSuccess, long start) {
+        if (!circuitBreaker.tryAcquire(start)) {
+            throw new ElasticsearchUnavailableException("Elasticsearch is unavailable, circuit open", retryAfterSeconds(start));
+        }
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis(operation));
+        List<Attempt<T>> attempts = new ArrayList<>(2);
+        boolean abandonWrite = false;
+        try {
+            T result = hedgeEnabled && operation.isIdempotent()
+                    ? hedged(call, attempts, start, timeoutNanos)
+                    : submit(call, attempts).result().get(timeoutNanos, TimeUnit.NANOSECONDS);
+            long latency = System.nanoTime() - start;
+            latencyTracker.record(latency);
+            circuitBreaker.onSuccess();
+            publishLatency(operation, latency);
+            return result;
+        } catch (TimeoutException e) {
+            long now = System.nanoTime();
+            circuitBreaker.onFailure(now);
+            publishLatency(operation, now - start);
+            log.warn("Elasticsearch {} exceeded its {} ms deadline", operation, timeoutMillis(operation));
+            if (!operation.isIdempotent()) {
+                abandonWrite = true;
+                attempts.forEach(attempt -> attempt.result().thenAccept(value -> {
+                    log.warn("Elasticsearch {} committed after its deadline", operation);
+                    if (lateSuccess != null) {
+                        lateSuccess.accept(value);
+                    }
+                }));
+            }
+            throw new ElasticsearchUnavailableException("Elasticsearch did not answer in time", e, retryAfterSeconds(System.nanoTime()));
+        } catch (InterruptedException e) {
+            // Says nothing about Elasticsearch's health
+            Thread.currentThread().interrupt();
+            circuitBreaker.onIgnored();
+            throw new ElasticsearchUnavailableException("Interrupted waiting for Elasticsearch", e, 1);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (isInfrastructureFailure(cause)) {
+                circuitBreaker.onFailure(System.nanoTime());
+                log.warn("Elasticsearch {} failed: {}", operation, cause.toString());
+                throw new ElasticsearchUnavailableException("Elasticsearch is unavailable", cause, retryAfterSeconds(System.nanoTime()));
+            }
+            // Elasticsearch answered, just not with what the caller wanted
+            circuitBreaker.onSuccess();
+            publishLatency(operation, System.nanoTime() - start);
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            if (!abandonWrite) {
+                attempts.forEach(attempt -> attempt.task().cancel(true));
+            }
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return circuitBreaker.state() != CircuitBreaker.State.OPEN;
+    }
+
+    @Override
+    public void addLatencyListener(LatencyListener listener) {
+        latencyListeners.add(listener);
+    }
+
+    private void publishLatency(Operation operation, long latencyNanos) {
+        for (LatencyListener listener : latencyListeners) {
+            listener.onLatency(operation, latencyNanos);
+        }
+    }
+
+    private <T> T hedged(Supplier<T> call, List<Attempt<T>> attempts, long start, long timeoutNanos)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long calls = idempotentCalls.incrementAndGet();
+        CompletableFuture<T> primary = submit(call, attempts).result();
+        long percentile = latencyTracker.percentileNanos();
+        long hedgeDelay = Math.max(TimeUnit.MILLISECONDS.toNanos(hedgeMinDelayMillis), percentile);
+        if (percentile < 0 || hedgeDelay >= timeoutNanos) {
+            return primary.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        try {
+            return primary.get(hedgeDelay, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException slow) {
+            long remaining = timeoutNanos - (System.nanoTime() - start);
+            if (hedgedCalls.get() >= calls * hedgeMaxRatio) {
+                return primary.get(remaining, TimeUnit.NANOSECONDS);
+            }
+            hedgedCalls.incrementAndGet();
+            return firstSuccess(primary, submit(call, attempts).result()).get(remaining, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // The task handle is kept next to the result so the attempt can be interrupted; cancelling a CompletableFuture does not
+    private record Attempt<T>(CompletableFuture<T> result, Future<?> task) {
+    }
+
+    private <T> Attempt<T> submit(Supplier<T> call, List<Attempt<T>> attempts) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                result.complete(call.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        Attempt<T> attempt = new Attempt<>(result, task);
+        attempts.add(attempt);
+        return attempt;
+    }
+
+    private static <T> CompletableFuture<T> firstSuccess(CompletableFuture<T> first, CompletableFuture<T> second) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger failed = new AtomicInteger();
+        for (CompletableFuture<T> attempt : List.of(first, second)) {
+            attempt.whenComplete((value, error) -> {
+                if (error == null) {
+                    result.complete(value);
+                } else if (failed.incrementAndGet() == 2) {
+                    result.completeExceptionally(error instanceof CompletionException
+                            ? error.getCause() : error);
+                }
+            });
+        }
+        return result;
+    }
+
+    private long timeoutMillis(Operation operation) {
+        return switch (operation) {
+            case READ -> readTimeoutMillis;
+            case SEARCH -> searchTimeoutMillis;
+            case WRITE -> writeTimeoutMillis;
+        };
+    }
+
+    private long retryAfterSeconds(long nowNanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(circuitBreaker.retryAfterNanos(nowNanos) + 999_999_999L));
+    }
+
+    // Timeouts, connection errors and 5xx answers count against the breaker; 4xx and conflicts do not
+    static boolean isInfrastructureFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException || cause instanceof TimeoutException
+                    || cause instanceof DataAccessResourceFailureException || cause instanceof TransportException) {
+                return true;
+            }
+            if (cause instanceof ElasticsearchException elasticsearchException && elasticsearchException.status() >= 500) {
+                return true;
+            }
+            if (cause instanceof UncategorizedElasticsearchException uncategorized
+                    && uncategorized.getStatusCode() != null && uncategorized.getStatusCode() >= 500) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,5 +1,6 @@
 package com.shazan.restrudent.services.impl;
 
+import com.shazan.restrudent.domain.dto.StorageRebalanceReportDto;
 import com.shazan.restrudent.expections.StorageException;
 import com.shazan.restrudent.services.StorageService;
 import org.slf4j.Logger;
@@ -14,33 +15,97 @@ import org.springframework.web.multipart.MultipartFile;
 import jakarta.annotation.PostConstruct;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
+/**
+ * Photo storage striped over one or more roots (one per disk). Each file id maps to a root by
+ * weighted rendezvous hashing and to a two-level fan-out directory inside it. Files written before
+ * striping, or not yet moved by a rebalance, are still found by probing the other locations.
+ */
 @Component
 public class FileSystemService implements StorageService {
     private static final Logger log = LoggerFactory.getLogger(FileSystemService.class);
+    private static final int FAN_OUT_DEPTH = 3;
 
     @Value("${app.storage.location:uploads}")
     private String storagePath;
 
-    private Path rootLocation;
+    @Value("${app.storage.locations:}")
+    private String storagePaths;
+
+    @Value("${app.storage.weights:}")
+    private String storageWeights;
+
+    @Value("${app.storage.max-concurrent-writes-per-root:8}")
+    private int maxConcurrentWritesPerRoot;
+
+    @Value("${app.storage.rebalance.max-moves-per-second:200}")
+    private int maxMovesPerSecond;
+
+    @Value("${app.storage.rebalance.on-startup:false}")
+    private boolean rebalanceOnStartup;
+
+    private List<StorageRoot> roots;
+    private final AtomicBoolean rebalancing = new AtomicBoolean();
+    private final Object throttleLock = new Object();
+    private long nextMoveNanos;
 
     @PostConstruct
     public void init() {
-        this.rootLocation = Path.of(storagePath);
-        // Create the directory if it doesn't exist
+        List<String> paths = StringUtils.hasText(storagePaths)
+                ? Arrays.stream(storagePaths.split(",")).map(String::trim).filter(StringUtils::hasText).toList()
+                : List.of(storagePath);
+        List<String> weights = StringUtils.hasText(storageWeights)
+                ? Arrays.stream(storageWeights.split(",")).map(String::trim).toList()
+                : List.of();
+        if (!weights.isEmpty() && weights.size() != paths.size()) {
+            throw new StorageException("app.storage.weights must list one weight per storage location");
+        }
+
+        List<StorageRoot> configured = new ArrayList<>();
         try {
-            java.nio.file.Files.createDirectories(rootLocation);
-        } catch (Exception e) {
-            throw new RuntimeException("Could not initialize storage", e);
+            for (int i = 0; i < paths.size(); i++) {
+                Path root = Path.of(paths.get(i)).toAbsolutePath().normalize();
+                Files.createDirectories(root);
+                double weight = weights.isEmpty() ? capacityWeight(root) : Double.parseDouble(weights.get(i));
+                configured.add(new StorageRoot(root, weight, maxConcurrentWritesPerRoot));
+                log.info("Storage root {} with weight {}", root, weight);
+            }
+        } catch (IOException e) {
+            throw new StorageException("Could not initialize storage", e);
         }
-    }
+        this.roots = List.copyOf(configured);
 
+        if (rebalanceOnStartup && roots.size() > 1) {
+            Thread.ofVirtual().name("storage-rebalance").start(() -> {
+                try {
+                    rebalance();
+                } catch (RuntimeException e) {
+                    log.error("Startup storage rebalance failed", e);
+                }
+            });
+        }
+    }
 
     @Override
     public String store(MultipartFile file, String filename) throws IOException {
@@ -50,17 +115,21 @@ public class FileSystemService implements StorageService {
 
         String extension = StringUtils.getFilenameExtension(file.getOriginalFilename());
         String finalFileName = filename + "." + extension;
+        validate(finalFileName);
 
-        Path destinationFile = rootLocation
-                .resolve(Paths.get(finalFileName))
-                .normalize()
-                .toAbsolutePath();
-        if (!destinationFile.getParent().equals(rootLocation.toAbsolutePath())) {
-            throw new StorageException("Cannot store file outside specified directory");
-        }
-
-        try (InputStream inputStream = file.getInputStream()) {
-            Files.copy(inputStream, destinationFile, StandardCopyOption.REPLACE_EXISTING);
+        StorageRoot root = StorageRoot.place(finalFileName, roots);
+        Path destinationFile = root.locate(finalFileName);
+        // Bounds the queue depth per disk; uploads to different roots proceed in parallel
+        root.writePermits().acquireUninterruptibly();
+        try {
+            Files.createDirectories(destinationFile.getParent());
+            Path partial = destinationFile.resolveSibling("." + finalFileName + ".part");
+            try (InputStream inputStream = file.getInputStream()) {
+                Files.copy(inputStream, partial, StandardCopyOption.REPLACE_EXISTING);
+            }
+            moveIntoPlace(partial, destinationFile);
+        } finally {
+            root.writePermits().release();
         }
 
         return finalFileName;
@@ -69,18 +138,178 @@ public class FileSystemService implements StorageService {
     @Override
     public Optional<Resource> load(String id) {
         try {
-            Path file = rootLocation.resolve(id);
-
-            Resource resource = new UrlResource(file.toUri());
-
-            if (resource.exists() || resource.isReadable()) {
-                return Optional.of(resource);
-            } else {
-                return Optional.empty();
+            validate(id);
+            for (Path candidate : candidates(id)) {
+                if (Files.isRegularFile(candidate)) {
+                    return Optional.of(new UrlResource(candidate.toUri()));
+                }
             }
-        } catch (MalformedURLException e) {
+            return Optional.empty();
+        } catch (StorageException | MalformedURLException e) {
             log.warn("Could not read file: %s".formatted(id), e);
             return Optional.empty();
         }
     }
+
+    @Override
+    public Stream<StoredFile> listAll() throws IOException {
+        return roots.stream().flatMap(root -> walk(root)
+                .map(file -> {
+                    try {
+                        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                        return new StoredFile(file.getFileName().toString(), attributes.size(),
+                                attributes.lastModifiedTime().toInstant());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+    }
+
+    @Override
+    public boolean delete(String id) throws IOException {
+        validate(id);
+        boolean deleted = false;
+        for (Path candidate : candidates(id)) {
+            deleted |= Files.deleteIfExists(candidate);
+        }
+        return deleted;
+    }
+
+    @Override
+    public StorageRebalanceReportDto rebalance() {
+        if (!rebalancing.compareAndSet(false, true)) {
+            throw new StorageException("A storage rebalance is already running");
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        AtomicLong scanned = new AtomicLong();
+        AtomicLong moved = new AtomicLong();
+        AtomicLong bytesMoved = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        log.info("Storage rebalance started over {} roots", roots.size());
+        // One walker per source root, so every disk is read in parallel
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> walkers = new ArrayList<>();
+            for (StorageRoot source : roots) {
+                walkers.add(executor.submit(() -> {
+                    try (Stream<Path> files = walk(source)) {
+                        files.forEach(file -> {
+                            scanned.incrementAndGet();
+                            String id = file.getFileName().toString();
+                            Path target = StorageRoot.place(id, roots).locate(id);
+                            if (target.equals(file)) {
+                                return;
+                            }
+                            try {
+                                throttle();
+                                long size = Files.size(file);
+                                relocate(file, target);
+                                moved.incrementAndGet();
+                                bytesMoved.addAndGet(size);
+                            } catch (IOException | RuntimeException e) {
+                                failures.incrementAndGet();
+                                log.warn("Could not move {} to {}: {}", file, target, e.getMessage());
+                            }
+                        });
+                    }
+                }));
+            }
+            for (Future<?> walker : walkers) {
+                walker.get();
+            }
+        } catch (Exception e) {
+            throw new StorageException("Storage rebalance failed", e);
+        } finally {
+            rebalancing.set(false);
+        }
+        log.info("Storage rebalance moved {} of {} files ({} bytes), {} failures",
+                moved.get(), scanned.get(), bytesMoved.get(), failures.get());
+        return StorageRebalanceReportDto.builder()
+                .roots(roots.size())
+                .filesScanned(scanned.get())
+                .filesMoved(moved.get())
+                .bytesMoved(bytesMoved.get())
+                .failures(failures.get())
+                .startedAt(startedAt)
+                .finishedAt(LocalDateTime.now())
+                .build();
+    }
+
+    // Placed location first, then everywhere a file may still sit from before striping or a rebalance
+    private Set<Path> candidates(String id) {
+        StorageRoot placed = StorageRoot.place(id, roots);
+        Set<Path> candidates = new LinkedHashSet<>();
+        candidates.add(placed.locate(id));
+        candidates.add(placed.legacyLocation(id));
+        for (StorageRoot root : roots) {
+            candidates.add(root.locate(id));
+            candidates.add(root.legacyLocation(id));
+        }
+        return candidates;
+    }
+
+    private void relocate(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        if (Files.exists(target)) {
+            Files.deleteIfExists(source);
+            return;
+        }
+        // Copy next to the target first so readers only ever see a complete file in either place
+        Path partial = target.resolveSibling("." + target.getFileName() + ".part");
+        Files.copy(source, partial, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        moveIntoPlace(partial, target);
+        Files.deleteIfExists(source);
+    }
+
+    private void moveIntoPlace(Path partial, Path destination) throws IOException {
+        try {
+            Files.move(partial, destination, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partial, destination, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Stream<Path> walk(StorageRoot root) {
+        try {
+            return Files.walk(root.path(), FAN_OUT_DEPTH)
+                    .filter(Files::isRegularFile)
+                    .filter(file -> !file.getFileName().toString().startsWith("."));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void validate(String id) {
+        // Plain file names only: no separators, no traversal, no hidden or partial files
+        if (!StringUtils.hasText(id) || id.startsWith(".") || id.contains("/") || id.contains("\\")
+                || id.indexOf('\0') >= 0) {
+            throw new StorageException("Invalid file id: " + id);
+        }
+    }
+
+    private void throttle() {
+        if (maxMovesPerSecond <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (throttleLock) {
+            long now = System.nanoTime();
+            long start = Math.max(now, nextMoveNanos);
+            nextMoveNanos = start + TimeUnit.SECONDS.toNanos(1) / maxMovesPerSecond;
+            waitNanos = start - now;
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new StorageException("Storage rebalance interrupted", e);
+            }
+        }
+    }
+
+    // Relative weight from the volume's total size in GiB, so bigger disks take proportionally more files
+    private double capacityWeight(Path root) throws IOException {
+        long totalSpace = Files.getFileStore(root).getTotalSpace();
+        return Math.max(1.0, totalSpace / (double) (1L << 30));
+    }
 }
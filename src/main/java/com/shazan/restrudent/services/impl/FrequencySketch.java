@@ -0,0 +1,96 @@
+package com.shazan.restrudent.services.impl;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch with 4-bit saturating counters, sixteen to a {@code long}, and periodic halving,
+ * used as the TinyLFU admission filter of the hot photo cache. Counters are updated with CAS, so
+ * recording a photo request takes no lock; concurrent updates may lose an ageing step or an
+ * increment now and then, which an estimate can afford.
+ */
+final class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+    private final AtomicLongArray table;
+    private final int mask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+    private final AtomicBoolean resetting = new AtomicBoolean();
+
+    FrequencySketch(int expectedEntries) {
+        int width = Integer.highestOneBit(Math.max(64, expectedEntries) - 1) << 1;
+        // width counters per row, DEPTH rows, 16 counters per long
+        this.table = new AtomicLongArray(width * DEPTH / 16);
+        this.mask = width - 1;
+        this.sampleSize = width * 10;
+    }
+
+    void increment(String key) {
+        int hash = key.hashCode();
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            added |= incrementAt(indexOf(hash, row));
+        }
+        if (added && additions.incrementAndGet() >= sampleSize) {
+            reset();
+        }
+    }
+
+    int frequency(String key) {
+        int hash = key.hashCode();
+        int min = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = indexOf(hash, row);
+            min = Math.min(min, (int) (table.get(index >>> 4) >>> shiftOf(index)) & MAX_COUNT);
+        }
+        return min;
+    }
+
+    private boolean incrementAt(int index) {
+        int word = index >>> 4;
+        int shift = shiftOf(index);
+        long full = (long) MAX_COUNT << shift;
+        while (true) {
+            long value = table.get(word);
+            if ((value & full) == full) {
+                return false;
+            }
+            if (table.compareAndSet(word, value, value + (1L << shift))) {
+                return true;
+            }
+        }
+    }
+
+    private int indexOf(int hash, int row) {
+        long mixed = (hash + SEEDS[row]) * SEEDS[row];
+        int slot = (int) (mixed >>> 32) & mask;
+        return row * (mask + 1) + slot;
+    }
+
+    private static int shiftOf(int index) {
+        return (index & 15) << 2;
+    }
+
+    // Ageing: halve every counter so old popularity fades out
+    private void reset() {
+        if (!resetting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (int word = 0; word < table.length(); word++) {
+                long value;
+                do {
+                    value = table.get(word);
+                } while (!table.compareAndSet(word, value, (value >>> 1) & RESET_MASK));
+            }
+            additions.updateAndGet(count -> count / 2);
+        } finally {
+            resetting.set(false);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.shazan.restrudent.services.impl;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded cache of small photo files held in direct buffers, so cached bytes live outside the
+ * Java heap. New entries are admitted TinyLFU style: only when they have been requested more
+ * often than the least recently used entries they would push out. Entries are split over
+ * stripes by id, each an LRU map with its own lock and share of the byte budget, so concurrent
+ * photo requests rarely wait on each other; the frequency sketch itself takes no lock.
+ */
+@Component
+@Slf4j
+public class HotPhotoCache {
+
+    @Value("${app.photos.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.photos.cache.max-bytes:268435456}")
+    private long maxBytes;
+
+    @Value("${app.photos.cache.max-file-bytes:65536}")
+    private long maxFileBytes;
+
+    @Value("${app.photos.cache.stripes:16}")
+    private int stripeCount;
+
+    private Stripe[] stripes;
+    private FrequencySketch sketch;
+
+    @PostConstruct
+    public void init() {
+        int expectedEntries = (int) Math.min(Integer.MAX_VALUE / 8, Math.max(1, maxBytes / Math.max(1, maxFileBytes / 4)));
+        sketch = new FrequencySketch(expectedEntries);
+        // Every stripe must still fit a handful of the largest files
+        long fitting = Math.max(1, maxBytes / Math.max(1, maxFileBytes * 4));
+        int count = Integer.highestOneBit((int) Math.max(1, Math.min(Math.max(1, stripeCount), fitting)));
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(maxBytes / count);
+        }
+    }
+
+    // A read-only view with its own position, so concurrent hits can write the same entry
+    public Optional<ByteBuffer> get(String id) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        sketch.increment(id);
+        ByteBuffer buffer = stripeOf(id).get(id);
+        return buffer == null ? Optional.empty() : Optional.of(buffer.duplicate());
+    }
+
+    public void offer(String id, Resource resource) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Stripe stripe = stripeOf(id);
+            long length = resource.contentLength();
+            if (length <= 0 || length > maxFileBytes || length > stripe.maxBytes || !stripe.shouldAdmit(id, length)) {
+                return;
+            }
+            stripe.put(id, read(resource, (int) length));
+        } catch (IOException e) {
+            log.debug("Could not cache photo {}", id, e);
+        }
+    }
+
+    public void invalidate(String id) {
+        stripeOf(id).remove(id);
+    }
+
+    private Stripe stripeOf(String id) {
+        int hash = id.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private ByteBuffer read(Resource resource, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+        try (ReadableByteChannel channel = resource.readableChannel()) {
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read >= 0 && buffer.hasRemaining());
+        }
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    private final class Stripe {
+        private final long maxBytes;
+        private final LinkedHashMap<String, ByteBuffer> entries = new LinkedHashMap<>(64, 0.75f, true);
+        private long currentBytes;
+
+        private Stripe(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        private synchronized ByteBuffer get(String id) {
+            return entries.get(id);
+        }
+
+        private synchronized void put(String id, ByteBuffer buffer) {
+            long length = buffer.capacity();
+            if (!shouldAdmit(id, length)) {
+                return;
+            }
+            Iterator<Map.Entry<String, ByteBuffer>> eldest = entries.entrySet().iterator();
+            while (currentBytes + length > maxBytes && eldest.hasNext()) {
+                currentBytes -= eldest.next().getValue().capacity();
+                eldest.remove();
+            }
+            entries.put(id, buffer);
+            currentBytes += length;
+        }
+
+        private synchronized void remove(String id) {
+            ByteBuffer removed = entries.remove(id);
+            if (removed != null) {
+                currentBytes -= removed.capacity();
+            }
+        }
+
+        private synchronized boolean shouldAdmit(String id, long length) {
+            int candidateFrequency = sketch.frequency(id);
+            // One-hit wonders never get in, even while there is room
+            if (candidateFrequency < 2 || entries.containsKey(id)) {
+                return false;
+            }
+            long needed = currentBytes + length - maxBytes;
+            Iterator<Map.Entry<String, ByteBuffer>> eldest = entries.entrySet().iterator();
+            while (needed > 0 && eldest.hasNext()) {
+                Map.Entry<String, ByteBuffer> victim = eldest.next();
+                if (sketch.frequency(victim.getKey()) >= candidateFrequency) {
+                    return false;
+                }
+                needed -= victim.getValue().capacity();
+            }
+            return needed <= 0;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.shazan.restrudent.services.impl;
+
+import com.shazan.restrudent.domain.dto.RestrurantDto;
+import com.shazan.restrudent.domain.entity.Restrurant;
+import com.shazan.restrudent.mapers.RestrurantMapper;
+import com.shazan.restrudent.services.ElasticsearchGuard;
+import com.shazan.restrudent.services.ElasticsearchGuard.Operation;
+import com.shazan.restrudent.services.SearchRankingService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.MultiGetItem;
+import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.data.elasticsearch.core.query.Query.IdWithRouting;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Tracks the most requested restaurant ids and search queries, persists them to local disk on a
+ * schedule, and replays them at startup: the restaurants are loaded with multi-gets into the
+ * response and last-known-good caches and the queries are sent as multi-searches, all before
+ * the application reports itself ready, within a fixed time budget.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HotSetWarmer {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    public record Snapshot(LocalDateTime createdAt, List<String> restrurantIds, List<String> queries) {
+    }
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ElasticsearchGuard elasticsearchGuard;
+    private final SearchRankingService searchRankingService;
+    private final RestrurantMapper restrurantMapper;
+    private final RestrurantResponseCache restrurantResponseCache;
+    private final LastKnownGoodRestrurants lastKnownGoodRestrurants;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.warmup.snapshot-path:data/hot-set.json}")
+    private String snapshotLocation;
+
+    @Value("${app.warmup.max-ids:2000}")
+    private int maxIds;
+
+    @Value("${app.warmup.max-queries:200}")
+    private int maxQueries;
+
+    @Value("${app.warmup.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.warmup.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.warmup.budget-ms:20000}")
+    private long budgetMs;
+
+    @Value("${app.warmup.search-page-size:20}")
+    private int searchPageSize;
+
+    private final ConcurrentHashMap<String, LongAdder> restrurantHits = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> queryHits = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public void recordRestrurant(String id) {
+        if (enabled && id != null) {
+            record(restrurantHits, id, maxIds);
+        }
+    }
+
+    public void recordSearch(String query) {
+        if (enabled && StringUtils.hasText(query)) {
+            record(queryHits, normalize(query), maxQueries);
+        }
+    }
+
+    // Runs before Spring Boot publishes ReadinessState.ACCEPTING_TRAFFIC, so probes wait for it
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Path snapshotPath = Path.of(snapshotLocation);
+        if (!enabled || !Files.isRegularFile(snapshotPath)) {
+            return;
+        }
+        Snapshot snapshot;
+        try {
+            snapshot = objectMapper.readValue(snapshotPath.toFile(), Snapshot.class);
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable hot-set snapshot {}: {}", snapshotPath, e.getMessage());
+            return;
+        }
+        List<String> ids = snapshot.restrurantIds() == null ? List.of() : snapshot.restrurantIds();
+        List<String> queries = snapshot.queries() == null ? List.of() : snapshot.queries();
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        AtomicInteger loaded = new AtomicInteger();
+        AtomicInteger searched = new AtomicInteger();
+        List<Future<?>> batches = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<String> batch = ids.subList(from, Math.min(ids.size(), from + batchSize));
+            batches.add(submit(permits, deadline, () -> loaded.addAndGet(loadRestrurants(batch))));
+        }
+        for (int from = 0; from < queries.size(); from += batchSize) {
+            List<String> batch = queries.subList(from, Math.min(queries.size(), from + batchSize));
+            batches.add(submit(permits, deadline, () -> searched.addAndGet(runSearches(batch))));
+        }
+
+        int timedOut = 0;
+        for (Future<?> batch : batches) {
+            try {
+                batch.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                batch.cancel(true);
+                timedOut++;
+            } catch (Exception e) {
+                log.debug("Warm-up batch failed: {}", e.getMessage());
+            }
+        }
+        log.info("Warm-up from {} took {} ms: {}/{} restaurants cached, {}/{} searches run{}", snapshotPath,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), loaded.get(), ids.size(),
+                searched.get(), queries.size(), timedOut > 0 ? ", " + timedOut + " batches cut off by the budget" : "");
+    }
+
+    @Scheduled(fixedDelayString = "${app.warmup.snapshot-interval-ms:300000}",
+            initialDelayString = "${app.warmup.snapshot-interval-ms:300000}")
+    public void persist() {
+        if (!enabled || (restrurantHits.isEmpty() && queryHits.isEmpty())) {
+            return;
+        }
+        Snapshot snapshot = new Snapshot(LocalDateTime.now(), hottest(restrurantHits, maxIds), hottest(queryHits, maxQueries));
+        Path snapshotPath = Path.of(snapshotLocation);
+        try {
+            Path directory = snapshotPath.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "hot-set", ".tmp");
+            objectMapper.writeValue(temp.toFile(), snapshot);
+            Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Persisted hot set: {} restaurants, {} queries", snapshot.restrurantIds().size(),
+                    snapshot.queries().size());
+        } catch (IOException e) {
+            log.warn("Could not persist hot-set snapshot to {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        persist();
+        executor.shutdownNow();
+    }
+
+    private Future<?> submit(Semaphore permits, long deadline, Runnable batch) {
+        return executor.submit(() -> {
+            if (!permits.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                return null;
+            }
+            try {
+                batch.run();
+            } finally {
+                permits.release();
+            }
+            return null;
+        });
+    }
+
+    private int loadRestrurants(List<String> ids) {
+        List<IdWithRouting> routedIds = ids.stream()
+                .map(id -> new IdWithRouting(id, RegionRouting.routingOf(id)))
+                .toList();
+        List<MultiGetItem<Restrurant>> items = elasticsearchGuard.call(Operation.READ, () -> elasticsearchOperations
+                .multiGet(NativeQuery.builder().withIdsWithRouting(routedIds).build(), Restrurant.class));
+        int loaded = 0;
+        for (MultiGetItem<Restrurant> item : items) {
+            if (item.hasItem()) {
+                RestrurantDto restrurant = restrurantMapper.toDto(item.getItem());
+                restrurantResponseCache.put(restrurant);
+                lastKnownGoodRestrurants.put(restrurant);
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    // Nothing caches search pages in the application; this warms Elasticsearch's caches and our code paths
+    private int runSearches(List<String> queries) {
+        List<Query> searches = queries.stream()
+                .map(query -> (Query) NativeQuery.builder()
+                        .withQuery(searchRankingService.rankedQuery(query, null, null))
+                        .withPageable(PageRequest.of(0, searchPageSize))
+                        .build())
+                .toList();
+        return elasticsearchGuard.call(Operation.SEARCH,
+                () -> elasticsearchOperations.multiSearch(searches, Restrurant.class)).size();
+    }
+
+    private void record(ConcurrentHashMap<String, LongAdder> hits, String key, int limit) {
+        LongAdder counter = hits.get(key);
+        // New keys are only tracked while there is room; persist() trims back to the limit
+        if (counter == null && hits.size() >= limit * 4) {
+            return;
+        }
+        (counter != null ? counter : hits.computeIfAbsent(key, k -> new LongAdder())).increment();
+    }
+
+    // Keeps the top entries with halved counts, so keys that cool down give way to new ones
+    private List<String> hottest(ConcurrentHashMap<String, LongAdder> hits, int limit) {
+        List<Map.Entry<String, Long>> ranked = hits.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .toList();
+        List<String> hottest = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size(); i++) {
+            Map.Entry<String, Long> entry = ranked.get(i);
+            if (i < limit && entry.getValue() > 1) {
+                hottest.add(entry.getKey());
+                LongAdder counter = hits.get(entry.getKey());
+                if (counter != null) {
+                    counter.add(-(entry.getValue() / 2));
+                }
+            } else {
+                hits.remove(entry.getKey());
+            }
+        }
+        return hottest;
+    }
+
+    static String normalize(String query) {
+        return WHITESPACE.matcher(query.trim().toLowerCase(Locale.ROOT)).replaceAll(" ");
+    }
+}
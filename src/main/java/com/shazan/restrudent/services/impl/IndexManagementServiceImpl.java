@@ -0,0 +1,478 @@
+package com.shazan.restrudent.services.impl;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.ScrollResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonData;
+import com.shazan.restrudent.domain.dto.ReindexStatusDto;
+import com.shazan.restrudent.domain.entity.Restrurant;
+import com.shazan.restrudent.expections.BaseExpection;
+import com.shazan.restrudent.services.IndexManagementService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IndexManagementServiceImpl implements IndexManagementService {
+    private static final String ALIAS = "restrurants";
+    private static final String SCROLL_KEEP_ALIVE = "2m";
+    private static final DateTimeFormatter UPDATED_AT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final RegionRouting regionRouting;
+
+    @Value("${app.index.replicas:1}")
+    private String replicas;
+
+    @Value("${app.index.refresh-interval:1s}")
+    private String refreshInterval;
+
+    @Value("${app.index.reindex.slices:4}")
+    private int slices;
+
+    @Value("${app.index.reindex.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.index.reindex.max-docs-per-second:5000}")
+    private int maxDocsPerSecond;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicReference<ReindexStatusDto> status = new AtomicReference<>(
+            ReindexStatusDto.builder().state(ReindexStatusDto.State.IDLE).alias(ALIAS).build());
+    private final AtomicLong copied = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final Object throttleLock = new Object();
+    private long nextPermitNanos;
+
+    @PostConstruct
+    public void init() {
+        try {
+            ensureIndex();
+        } catch (RuntimeException e) {
+            log.error("Could not verify index alias '{}': {}", ALIAS, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void ensureIndex() {
+        try {
+            if (elasticsearchClient.indices().existsAlias(e -> e.name(ALIAS)).value()) {
+                // Fields added to the entity since the index was created (additive changes only)
+                elasticsearchOperations.indexOps(IndexCoordinates.of(ALIAS))
+                        .putMapping(elasticsearchOperations.indexOps(Restrurant.class).createMapping());
+                return;
+            }
+            if (elasticsearchClient.indices().exists(e -> e.index(ALIAS)).value()) {
+                log.warn("'{}' is a concrete index, trigger a reindex to move it behind an alias", ALIAS);
+                return;
+            }
+            String physical = ALIAS + "_v1";
+            createPhysicalIndex(physical);
+            elasticsearchClient.indices().updateAliases(u -> u
+                    .actions(a -> a.add(add -> add.index(physical).alias(ALIAS).isWriteIndex(true))));
+            log.info("Created index {} behind alias {}", physical, ALIAS);
+        } catch (IOException e) {
+            throw new BaseExpection("Could not initialize index " + ALIAS, e);
+        }
+    }
+
+    @Override
+    public ReindexStatusDto startReindex(boolean assignRegions) {
+        ReindexStatusDto current = status.get();
+        if (current.getState() == ReindexStatusDto.State.RUNNING) {
+            return current;
+        }
+
+        String source = currentPhysicalIndex();
+        String target = nextPhysicalIndex(source);
+        ReindexStatusDto running = ReindexStatusDto.builder()
+                .state(ReindexStatusDto.State.RUNNING)
+                .alias(ALIAS)
+                .sourceIndex(source)
+                .targetIndex(target)
+                .assignRegions(assignRegions && regionRouting.isEnabled())
+                .startedAt(LocalDateTime.now())
+                .build();
+        if (!status.compareAndSet(current, running)) {
+            return status.get();
+        }
+
+        copied.set(0);
+        failures.set(0);
+        executor.submit(() -> runReindex(running));
+        return getReindexStatus();
+    }
+
+    @Override
+    public ReindexStatusDto getReindexStatus() {
+        ReindexStatusDto current = status.get();
+        return current.toBuilder()
+                .documentsCopied(current.getState() == ReindexStatusDto.State.RUNNING ? copied.get() : current.getDocumentsCopied())
+                .failures(current.getState() == ReindexStatusDto.State.RUNNING ? failures.get() : current.getFailures())
+                .build();
+    }
+
+    private void runReindex(ReindexStatusDto running) {
+        String source = running.getSourceIndex();
+        String target = running.getTargetIndex();
+        boolean assignRegions = running.isAssignRegions();
+        log.info("Reindex started: {} -> {} ({} slices{})", source, target, slices,
+                assignRegions ? ", assigning regions" : "");
+        try {
+            // Leftover from an earlier failed attempt; it was never behind the alias
+            if (elasticsearchClient.indices().exists(e -> e.index(target)).value()) {
+                elasticsearchClient.indices().delete(d -> d.index(target));
+            }
+            createPhysicalIndex(target);
+            // Bulk-load settings: no refreshes and no replica traffic until the copy is done
+            elasticsearchClient.indices().putSettings(p -> p
+                    .index(target)
+                    .settings(s -> s.refreshInterval(t -> t.time("-1")).numberOfReplicas("0")));
+
+            List<Future<?>> workers = new ArrayList<>();
+            for (int slice = 0; slice < slices; slice++) {
+                int sliceId = slice;
+                workers.add(executor.submit(() -> {
+                    copySlice(source, target, sliceId, assignRegions);
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            abortOnFailures(source);
+
+            // Catch up with documents written while the bulk copy was running, writes still open
+            copyUpdatedSince(source, target, running.getStartedAt().minusSeconds(1), assignRegions);
+
+            // Final pass against a frozen source: writes fail fast until the alias has moved
+            long deleted;
+            boolean swapped = false;
+            LocalDateTime frozenAt = LocalDateTime.now();
+            setWriteBlock(source, true);
+            try {
+                elasticsearchClient.indices().refresh(r -> r.index(source));
+                copyUpdatedSince(source, target, frozenAt.minusSeconds(1), assignRegions);
+                deleted = deleteMissingFromSource(source, target, assignRegions);
+                abortOnFailures(source);
+
+                elasticsearchClient.indices().putSettings(p -> p
+                        .index(target)
+                        .settings(s -> s.refreshInterval(t -> t.time(refreshInterval)).numberOfReplicas(replicas)));
+                elasticsearchClient.indices().refresh(r -> r.index(target));
+
+                swapAlias(source, target);
+                swapped = true;
+            } finally {
+                // A legacy concrete source index is deleted by the swap
+                if (!swapped || !ALIAS.equals(source)) {
+                    setWriteBlock(source, false);
+                }
+            }
+
+            status.set(running.toBuilder()
+                    .state(ReindexStatusDto.State.COMPLETED)
+                    .documentsCopied(copied.get())
+                    .documentsDeleted(deleted)
+                    .failures(failures.get())
+                    .finishedAt(LocalDateTime.now())
+                    .message("Alias " + ALIAS + " now points to " + target)
+                    .build());
+            log.info("Reindex completed: {} documents copied into {}", copied.get(), target);
+        } catch (Exception e) {
+            log.error("Reindex {} -> {} failed", source, target, e);
+            status.set(running.toBuilder()
+                    .state(ReindexStatusDto.State.FAILED)
+                    .documentsCopied(copied.get())
+                    .failures(failures.get())
+                    .finishedAt(LocalDateTime.now())
+                    .message(e.getMessage())
+                    .build());
+        }
+    }
+
+    private void copySlice(String source, String target, int sliceId, boolean assignRegions) throws IOException {
+        SearchResponse<JsonData> response = elasticsearchClient.search(s -> {
+            s.index(source)
+                    .size(batchSize)
+                    .scroll(Time.of(t -> t.time(SCROLL_KEEP_ALIVE)));
+            if (slices > 1) {
+                s.slice(sl -> sl.id(String.valueOf(sliceId)).max(slices));
+            }
+            return s;
+        }, JsonData.class);
+
+        String scrollId = response.scrollId();
+        List<Hit<JsonData>> hits = response.hits().hits();
+        try {
+            while (!hits.isEmpty()) {
+                bulkIndex(target, hits, assignRegions);
+                String currentScrollId = scrollId;
+                ScrollResponse<JsonData> next = elasticsearchClient.scroll(s -> s
+                        .scrollId(currentScrollId)
+                        .scroll(Time.of(t -> t.time(SCROLL_KEEP_ALIVE))), JsonData.class);
+                scrollId = next.scrollId();
+                hits = next.hits().hits();
+            }
+        } finally {
+            clearScroll(scrollId);
+        }
+    }
+
+    private void copyUpdatedSince(String source, String target, LocalDateTime since, boolean assignRegions)
+            throws IOException {
+        String from = since.format(UPDATED_AT_FORMAT);
+        SearchResponse<JsonData> response = elasticsearchClient.search(s -> s
+                .index(source)
+                .size(batchSize)
+                .scroll(Time.of(t -> t.time(SCROLL_KEEP_ALIVE)))
+                .query(q -> q.range(r -> r.date(d -> d.field("updatedAt").gte(from)))), JsonData.class);
+
+        String scrollId = response.scrollId();
+        List<Hit<JsonData>> hits = response.hits().hits();
+        try {
+            while (!hits.isEmpty()) {
+                bulkIndex(target, hits, assignRegions);
+                String currentScrollId = scrollId;
+                ScrollResponse<JsonData> next = elasticsearchClient.scroll(s -> s
+                        .scrollId(currentScrollId)
+                        .scroll(Time.of(t -> t.time(SCROLL_KEEP_ALIVE))), JsonData.class);
+                scrollId = next.scrollId();
+                hits = next.hits().hits();
+            }
+        } finally {
+            clearScroll(scrollId);
+        }
+    }
+
+    /**
+     * Deletes target documents whose source document no longer exists. Runs while the source is
+     * write-blocked, so it sees every deletion no matter which instance handled it. Ids rewritten
+     * to region ids on the way are matched on their legacyId.
+     */
+    private long deleteMissingFromSource(String source, String target, boolean assignRegions) throws IOException {
+        Set<String> sourceIds = new HashSet<>();
+        scrollIds(source, hits -> hits.forEach(hit -> sourceIds.add(hit.id())));
+
+        elasticsearchClient.indices().refresh(r -> r.index(target));
+        AtomicLong deleted = new AtomicLong();
+        scrollIds(target, hits -> {
+            BulkRequest.Builder bulk = new BulkRequest.Builder().index(target);
+            int orphans = 0;
+            for (Hit<JsonData> hit : hits) {
+                if (sourceIds.contains(hit.id())) {
+                    continue;
+                }
+                Object legacyId = assignRegions && hit.source() != null ? backfill(hit.source()).get("legacyId") : null;
+                if (legacyId != null && sourceIds.contains(legacyId.toString())) {
+                    continue;
+                }
+                bulk.operations(op -> op.delete(d -> d.id(hit.id()).routing(hit.routing())));
+                orphans++;
+            }
+            if (orphans > 0) {
+                elasticsearchClient.bulk(bulk.build());
+                deleted.addAndGet(orphans);
+            }
+        });
+        return deleted.get();
+    }
+
+    private void scrollIds(String index, IdBatchConsumer consumer) throws IOException {
+        SearchResponse<JsonData> response = elasticsearchClient.search(s -> s
+                .index(index)
+                .size(batchSize)
+                .scroll(Time.of(t -> t.time(SCROLL_KEEP_ALIVE)))
+                .source(src -> src.filter(f -> f.includes("legacyId"))), JsonData.class);
+
+        String scrollId = response.scrollId();
+        List<Hit<JsonData>> hits = response.hits().hits();
+        try {
+            while (!hits.isEmpty()) {
+                consumer.accept(hits);
+                String currentScrollId = scrollId;
+                ScrollResponse<JsonData> next = elasticsearchClient.scroll(s -> s
+                        .scrollId(currentScrollId)
+                        .scroll(Time.of(t -> t.time(SCROLL_KEEP_ALIVE))), JsonData.class);
+                scrollId = next.scrollId();
+                hits = next.hits().hits();
+            }
+        } finally {
+            clearScroll(scrollId);
+        }
+    }
+
+    private interface IdBatchConsumer {
+        void accept(List<Hit<JsonData>> hits) throws IOException;
+    }
+
+    private void abortOnFailures(String source) {
+        if (failures.get() > 0) {
+            throw new BaseExpection(failures.get() + " documents could not be copied, alias left on " + source);
+        }
+    }
+
+    private void setWriteBlock(String index, boolean blocked) throws IOException {
+        elasticsearchClient.indices().putSettings(p -> p
+                .index(index)
+                .settings(s -> s.blocks(b -> b.write(blocked))));
+        log.info("Writes to {} {}", index, blocked ? "blocked for the final reindex pass" : "unblocked");
+    }
+
+    private void bulkIndex(String target, List<Hit<JsonData>> hits, boolean assignRegions) throws IOException {
+        throttle(hits.size());
+        BulkRequest.Builder bulk = new BulkRequest.Builder().index(target);
+        for (Hit<JsonData> hit : hits) {
+            Map<String, Object> document = backfill(hit.source());
+            String id = hit.id();
+            String routing = hit.routing();
+            if (assignRegions && RegionRouting.routingOf(id) == null) {
+                String region = regionRouting.regionOf(document);
+                if (region != null) {
+                    document.put("legacyId", id);
+                    document.put("region", region);
+                    document.put("id", region + RegionRouting.SEPARATOR + id);
+                    id = region + RegionRouting.SEPARATOR + id;
+                    routing = region;
+                }
+            }
+            String targetId = id;
+            String targetRouting = routing;
+            bulk.operations(op -> op.index(idx -> idx.id(targetId).routing(targetRouting).document(document)));
+        }
+        BulkResponse response = elasticsearchClient.bulk(bulk.build());
+        long failed = response.errors()
+                ? response.items().stream().filter(item -> item.error() != null).count()
+                : 0;
+        failures.addAndGet(failed);
+        copied.addAndGet(hits.size() - failed);
+    }
+
+    // Documents written before ownerId existed only carry the owner inside the nested createdBy
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> backfill(JsonData source) {
+        Map<String, Object> document = source.to(Map.class);
+        if (document.get("ownerId") == null && document.get("createdBy") instanceof Map<?, ?> createdBy
+                && createdBy.get("id") != null) {
+            document.put("ownerId", createdBy.get("id"));
+        }
+        return document;
+    }
+
+    private void throttle(int documents) {
+        if (maxDocsPerSecond <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (throttleLock) {
+            long now = System.nanoTime();
+            long start = Math.max(now, nextPermitNanos);
+            nextPermitNanos = start + TimeUnit.SECONDS.toNanos(documents) / maxDocsPerSecond;
+            waitNanos = start - now;
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BaseExpection("Reindex interrupted", e);
+            }
+        }
+    }
+
+    private void swapAlias(String source, String target) throws IOException {
+        boolean legacyConcreteIndex = ALIAS.equals(source);
+        elasticsearchClient.indices().updateAliases(u -> {
+            if (legacyConcreteIndex) {
+                u.actions(a -> a.removeIndex(r -> r.index(source)));
+            } else {
+                u.actions(a -> a.remove(r -> r.index(source).alias(ALIAS)));
+            }
+            return u.actions(a -> a.add(add -> add.index(target).alias(ALIAS).isWriteIndex(true)));
+        });
+        log.info("Alias {} swapped from {} to {}", ALIAS, source, target);
+    }
+
+    private void clearScroll(String scrollId) {
+        if (scrollId == null) {
+            return;
+        }
+        try {
+            elasticsearchClient.clearScroll(c -> c.scrollId(scrollId));
+        } catch (IOException e) {
+            log.warn("Could not clear scroll context", e);
+        }
+    }
+
+    private void createPhysicalIndex(String name) {
+        IndexOperations entityOps = elasticsearchOperations.indexOps(Restrurant.class);
+        elasticsearchOperations.indexOps(IndexCoordinates.of(name))
+                .create(entityOps.createSettings(), entityOps.createMapping());
+    }
+
+    private String currentPhysicalIndex() {
+        try {
+            if (elasticsearchClient.indices().existsAlias(e -> e.name(ALIAS)).value()) {
+                return elasticsearchClient.indices().getAlias(g -> g.name(ALIAS)).result().keySet().stream()
+                        .max(this::compareVersions)
+                        .orElseThrow(() -> new BaseExpection("Alias " + ALIAS + " points to no index"));
+            }
+            return ALIAS;
+        } catch (IOException e) {
+            throw new BaseExpection("Could not resolve alias " + ALIAS, e);
+        }
+    }
+
+    private String nextPhysicalIndex(String current) {
+        return ALIAS + "_v" + (versionOf(current) + 1);
+    }
+
+    private int compareVersions(String left, String right) {
+        return Integer.compare(versionOf(left), versionOf(right));
+    }
+
+    private int versionOf(String index) {
+        int marker = index.lastIndexOf("_v");
+        if (marker < 0) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(index.substring(marker + 2));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.shazan.restrudent.services.impl;
+
+import com.shazan.restrudent.domain.dto.RestrurantDto;
+import com.shazan.restrudent.domain.event.RestrurantChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Most recently read restaurants, served marked as stale while Elasticsearch is unavailable.
+ * Unlike the response cache this is not dropped on updates, only replaced by the newer copy.
+ */
+@Component
+public class LastKnownGoodRestrurants {
+
+    @Value("${app.elasticsearch.guard.stale-cache-size:10000}")
+    private int maxEntries;
+
+    private final LinkedHashMap<String, RestrurantDto> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RestrurantDto> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    public void put(RestrurantDto restrurant) {
+        if (restrurant.getId() == null || restrurant.isStale()) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(restrurant.getId(), restrurant);
+        }
+    }
+
+    public Optional<RestrurantDto> getStale(String id) {
+        synchronized (entries) {
+            return Optional.ofNullable(entries.get(id))
+                    .map(restrurant -> restrurant.toBuilder().stale(true).build());
+        }
+    }
+
+    @EventListener
+    public void onRestrurantChanged(RestrurantChangedEvent event) {
+        if (event.type() == RestrurantChangedEvent.ChangeType.DELETED) {
+            synchronized (entries) {
+                entries.remove(event.restrurantId());
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.shazan.restrudent.services.impl;
+
+import java.util.Arrays;
+
+/**
+ * Percentile of recent call latencies over a fixed ring of samples. The percentile is recomputed
+ * every few samples rather than on each read, so asking for it on the hot path costs a volatile load.
+ */
+final class LatencyTracker {
+    private static final int RECOMPUTE_EVERY = 32;
+
+    private final long[] samples;
+    private final double percentile;
+    private int position;
+    private int recorded;
+    private volatile long percentileNanos = -1;
+
+    LatencyTracker(int size, double percentile) {
+        this.samples = new long[size];
+        this.percentile = percentile;
+    }
+
+    void record(long latencyNanos) {
+        long[] snapshot = null;
+        synchronized (samples) {
+            samples[position] = latencyNanos;
+            position = (position + 1) % samples.length;
+            recorded = Math.min(recorded + 1, samples.length);
+            if (position % RECOMPUTE_EVERY == 0) {
+                snapshot = Arrays.copyOf(samples, recorded);
+            }
+        }
+        if (snapshot != null) {
+            Arrays.sort(snapshot);
+            percentileNanos = snapshot[Math.min(snapshot.length - 1, (int) (percentile * snapshot.length))];
+        }
+    }
+
+    /**
+     * @return the tracked percentile, or -1 until enough samples were seen
+     */
+    long percentileNanos() {
+        return percentileNanos;
+    }
+}
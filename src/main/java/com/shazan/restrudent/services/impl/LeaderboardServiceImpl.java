@@ -0,0 +1,248 @@
+package com.shazan.restrudent.services.impl;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.Operator;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import com.shazan.restrudent.domain.dto.RestrurantSummaryDto;
+import com.shazan.restrudent.domain.entity.Restrurant;
+import com.shazan.restrudent.domain.event.RestrurantChangedEvent;
+import com.shazan.restrudent.services.ElasticsearchGuard;
+import com.shazan.restrudent.services.ElasticsearchGuard.Operation;
+import com.shazan.restrudent.services.LeaderboardService;
+import com.shazan.restrudent.services.impl.TopKBoard.Entry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
+import org.springframework.data.elasticsearch.core.query.SourceFilter;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * "Best in city" leaderboards, per city and per city and cuisine, kept in memory. Built by one
+ * index scan once the application is up and then maintained from restaurant change events, so
+ * reads never touch Elasticsearch and never pay for the nested address filter. Until a scan has
+ * succeeded (it is retried) a requested board is loaded from the index on first use.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LeaderboardServiceImpl implements LeaderboardService {
+    private static final String ALL_CUISINES = "*";
+    private static final SourceFilter LEADERBOARD_FIELDS = new FetchSourceFilterBuilder()
+            .withIncludes("name", "cuisineType", "averageRating", "reviewCount", "address.city")
+            .build();
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ElasticsearchGuard elasticsearchGuard;
+
+    @Value("${app.leaderboard.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.leaderboard.size:100}")
+    private int size;
+
+    @Value("${app.leaderboard.slack:50}")
+    private int slack;
+
+    @Value("${app.leaderboard.build-retry-ms:30000}")
+    private long buildRetryMs;
+
+    private final ConcurrentHashMap<String, TopKBoard> boards = new ConcurrentHashMap<>();
+    // Boards each restaurant currently sits on, so an update can take it off the old ones
+    private final ConcurrentHashMap<String, Set<String>> placements = new ConcurrentHashMap<>();
+    private final ReplicaLoader loader = new ReplicaLoader(LEADERBOARD_FIELDS);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile boolean built;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            executor.submit(this::buildUntilDone);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public List<RestrurantSummaryDto> getTopRated(String city, String cuisineType, int limit) {
+        String key = key(city, cuisineType);
+        TopKBoard board = boards.get(key);
+        if (board == null && enabled && !built) {
+            refill(key);
+            board = boards.get(key);
+        }
+        if (board == null) {
+            return List.of();
+        }
+        return board.top(Math.max(1, Math.min(limit, size))).stream()
+                .map(entry -> RestrurantSummaryDto.builder()
+                        .id(entry.id())
+                        .name(entry.name())
+                        .cuisineType(entry.cuisineType())
+                        .averageRating(entry.averageRating())
+                        .reviewCount(entry.reviewCount())
+                        .build())
+                .toList();
+    }
+
+    @EventListener
+    public void onRestrurantChanged(RestrurantChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        loader.changed(event.restrurantId());
+        Set<String> touched = new HashSet<>(remove(event.restrurantId()));
+        if (event.restrurant() != null) {
+            entryOf(event.restrurant()).ifPresent(entry -> touched.addAll(place(entry)));
+        }
+        for (String key : touched) {
+            TopKBoard board = boards.get(key);
+            if (board != null && board.needsRefill()) {
+                executor.submit(() -> refill(key));
+            }
+        }
+    }
+
+    private void buildUntilDone() {
+        while (!build()) {
+            log.info("Retrying the leaderboard build in {} ms, boards are loaded from the index meanwhile", buildRetryMs);
+            try {
+                Thread.sleep(buildRetryMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    boolean build() {
+        long start = System.nanoTime();
+        try {
+            long scanned = loader.load(elasticsearchOperations, restrurant -> entryOf(restrurant).ifPresent(this::place));
+            built = true;
+            log.info("Leaderboards built from {} restaurants into {} boards in {} ms",
+                    scanned, boards.size(), (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Could not build leaderboards: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    // Returns the boards offered to, including those that turned the entry down
+    private List<String> place(Entry entry) {
+        List<String> keys = keysOf(entry);
+        for (String key : keys) {
+            TopKBoard board = boards.computeIfAbsent(key, k -> new TopKBoard(size, size + slack));
+            TopKBoard.Offer offer = board.offer(entry);
+            if (offer.retained()) {
+                placements.computeIfAbsent(entry.id(), id -> ConcurrentHashMap.newKeySet()).add(key);
+            }
+            for (String evicted : offer.evicted()) {
+                placements.computeIfPresent(evicted, (id, keys) -> {
+                    keys.remove(key);
+                    return keys.isEmpty() ? null : keys;
+                });
+            }
+        }
+        return keys;
+    }
+
+    private Set<String> remove(String id) {
+        Set<String> keys = placements.remove(id);
+        if (keys == null) {
+            return Set.of();
+        }
+        for (String key : keys) {
+            TopKBoard board = boards.get(key);
+            if (board != null) {
+                board.remove(id);
+            }
+        }
+        return keys;
+    }
+
+    // A board that evicted entries earlier and then lost some can only be refilled from the index
+    private void refill(String key) {
+        String[] parts = key.split("\\|", 2);
+        String city = parts[0];
+        String cuisine = parts[1];
+        List<Query> filters = new ArrayList<>();
+        filters.add(Query.of(q -> q.nested(n -> n
+                .path("address")
+                .query(nq -> nq.term(t -> t.field("address.city").value(city).caseInsensitive(true))))));
+        if (!ALL_CUISINES.equals(cuisine)) {
+            filters.add(Query.of(q -> q.match(m -> m.field("cuisineType").query(cuisine).operator(Operator.And))));
+        }
+        int capacity = size + slack;
+        // Boards are per city name across countries, which spans several regions, so this is not routed
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(q -> q.bool(b -> b.filter(filters)))
+                .withSort(Sort.by(Sort.Order.desc("averageRating"), Sort.Order.desc("reviewCount")))
+                .withSourceFilter(LEADERBOARD_FIELDS)
+                .withMaxResults(capacity)
+                .build();
+        try {
+            SearchHits<Restrurant> hits = elasticsearchGuard.call(Operation.SEARCH,
+                    () -> elasticsearchOperations.search(query, Restrurant.class));
+            List<Entry> entries = hits.getSearchHits().stream()
+                    .map(SearchHit::getContent)
+                    .map(this::entryOf)
+                    .flatMap(Optional::stream)
+                    .filter(entry -> keysOf(entry).contains(key))
+                    .toList();
+            boards.computeIfAbsent(key, k -> new TopKBoard(size, capacity))
+                    .replaceAll(entries, hits.getTotalHits() <= capacity);
+            entries.forEach(entry -> placements.computeIfAbsent(entry.id(), id -> ConcurrentHashMap.newKeySet()).add(key));
+            log.debug("Leaderboard {} refilled with {} entries", key, entries.size());
+        } catch (RuntimeException e) {
+            log.warn("Could not refill leaderboard {}: {}", key, e.getMessage());
+        }
+    }
+
+    private Optional<Entry> entryOf(Restrurant restrurant) {
+        if (restrurant.getAddress() == null || !StringUtils.hasText(restrurant.getAddress().getCity())) {
+            return Optional.empty();
+        }
+        return Optional.of(new Entry(
+                restrurant.getId(),
+                restrurant.getName(),
+                restrurant.getCuisineType(),
+                restrurant.getAddress().getCity(),
+                restrurant.getAverageRating() != null ? restrurant.getAverageRating() : 0f,
+                restrurant.getReviewCount() != null ? restrurant.getReviewCount() : 0));
+    }
+
+    private List<String> keysOf(Entry entry) {
+        if (!StringUtils.hasText(entry.cuisineType())) {
+            return List.of(key(entry.city(), null));
+        }
+        return List.of(key(entry.city(), null), key(entry.city(), entry.cuisineType()));
+    }
+
+    private String key(String city, String cuisineType) {
+        String cuisine = StringUtils.hasText(cuisineType) ? cuisineType.trim().toLowerCase(Locale.ROOT) : ALL_CUISINES;
+        return (city == null ? "" : city.trim().toLowerCase(Locale.ROOT)) + "|" + cuisine;
+    }
+}
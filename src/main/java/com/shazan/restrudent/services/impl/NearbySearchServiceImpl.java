@@ -0,0 +1,221 @@
+package com.shazan.restrudent.services.impl;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import com.shazan.restrudent.domain.dto.NearbyRestrurantDto;
+import com.shazan.restrudent.domain.entity.Restrurant;
+import com.shazan.restrudent.domain.event.RestrurantChangedEvent;
+import com.shazan.restrudent.services.ElasticsearchGuard;
+import com.shazan.restrudent.services.ElasticsearchGuard.Operation;
+import com.shazan.restrudent.services.NearbySearchService;
+import com.shazan.restrudent.services.impl.CatalogueReplica.Result;
+import com.shazan.restrudent.services.impl.CatalogueReplica.Row;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
+import org.springframework.data.elasticsearch.core.query.GeoDistanceOrder;
+import org.springframework.data.elasticsearch.core.query.SourceFilter;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Nearby and structured filter queries (distance, cuisine, minimum rating, open now) answered from
+ * an in-process columnar replica of the catalogue. The replica is loaded by one index scan once the
+ * application is up and kept current from restaurant change events; until it is ready, or when it
+ * is disabled, the same queries go to Elasticsearch.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NearbySearchServiceImpl implements NearbySearchService {
+    private static final int MAX_LIMIT = 200;
+    // Elasticsearch has no opening-hours field to filter on, so over-fetch and filter here
+    private static final int OPEN_NOW_OVERFETCH = 5;
+    private static final SourceFilter REPLICA_FIELDS = new FetchSourceFilterBuilder()
+            .withIncludes("name", "cuisineType", "averageRating", "reviewCount", "geoLocation", "operatingHours")
+            .build();
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ElasticsearchGuard elasticsearchGuard;
+
+    @Value("${app.replica.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.replica.cell-degrees:0.05}")
+    private double cellDegrees;
+
+    @Value("${app.replica.max-radius-km:50}")
+    private double maxRadiusKm;
+
+    @Value("${app.replica.zone:}")
+    private String zone;
+
+    @Value("${app.replica.build-retry-ms:30000}")
+    private long buildRetryMs;
+
+    private final ReplicaLoader loader = new ReplicaLoader(REPLICA_FIELDS);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private CatalogueReplica replica;
+    private ZoneId zoneId;
+    private volatile boolean ready;
+
+    @PostConstruct
+    void init() {
+        replica = new CatalogueReplica(cellDegrees);
+        zoneId = StringUtils.hasText(zone) ? ZoneId.of(zone) : ZoneId.systemDefault();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            executor.submit(this::buildUntilDone);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public List<NearbyRestrurantDto> findNearby(double latitude, double longitude, double radiusKm,
+                                                String cuisineType, Float minRating, boolean openNow, int limit) {
+        double radius = Math.max(0, Math.min(radiusKm, maxRadiusKm));
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        // Exact, case-insensitive cuisine match on both paths, so results do not depend on which one answers
+        String cuisine = StringUtils.hasText(cuisineType) ? cuisineType.trim() : null;
+        int openSlot = openNow ? OpeningHoursBitmap.slotOf(LocalDateTime.now(zoneId)) : -1;
+        if (enabled && ready) {
+            return replica.nearby(latitude, longitude, radius, cuisine, minRating, openSlot, size).stream()
+                    .map(this::toDto)
+                    .toList();
+        }
+        return searchIndex(latitude, longitude, radius, cuisine, minRating, openSlot, size);
+    }
+
+    @EventListener
+    public void onRestrurantChanged(RestrurantChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        loader.changed(event.restrurantId());
+        if (event.restrurant() == null) {
+            replica.remove(event.restrurantId());
+        } else {
+            replica.upsert(rowOf(event.restrurant()));
+        }
+    }
+
+    private void buildUntilDone() {
+        while (!build()) {
+            log.info("Retrying the catalogue replica load in {} ms, nearby queries go to Elasticsearch meanwhile", buildRetryMs);
+            try {
+                Thread.sleep(buildRetryMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    boolean build() {
+        long start = System.nanoTime();
+        try {
+            loader.load(elasticsearchOperations, restrurant -> replica.upsert(rowOf(restrurant)));
+            ready = true;
+            log.info("Catalogue replica loaded {} restaurants in {} ms",
+                    replica.size(), (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Could not load catalogue replica: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private List<NearbyRestrurantDto> searchIndex(double latitude, double longitude, double radiusKm,
+                                                  String cuisineType, Float minRating, int openSlot, int limit) {
+        List<Query> filters = new ArrayList<>();
+        filters.add(Query.of(q -> q.geoDistance(g -> g
+                .field("geoLocation")
+                .location(l -> l.latlon(ll -> ll.lat(latitude).lon(longitude)))
+                .distance(radiusKm + "km"))));
+        if (cuisineType != null) {
+            filters.add(Query.of(q -> q.term(t -> t.field("cuisineType.keyword").value(cuisineType).caseInsensitive(true))));
+        }
+        if (minRating != null) {
+            filters.add(Query.of(q -> q.range(r -> r.number(n -> n.field("averageRating").gte(minRating.doubleValue())))));
+        }
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(q -> q.bool(b -> b.filter(filters)))
+                .withSort(Sort.by(new GeoDistanceOrder("geoLocation", new GeoPoint(latitude, longitude))))
+                .withSourceFilter(REPLICA_FIELDS)
+                .withMaxResults(openSlot >= 0 ? limit * OPEN_NOW_OVERFETCH : limit)
+                .build();
+        long[] hours = new long[OpeningHoursBitmap.WORDS];
+        return elasticsearchGuard.call(Operation.SEARCH, () -> elasticsearchOperations.search(query, Restrurant.class))
+                .getSearchHits().stream()
+                .map(SearchHit::getContent)
+                .filter(restrurant -> restrurant.getGeoLocation() != null)
+                .filter(restrurant -> openSlot < 0 || (OpeningHoursBitmap.encode(restrurant.getOperatingHours(), hours, 0)
+                        && OpeningHoursBitmap.isOpen(hours, 0, openSlot)))
+                .limit(limit)
+                .map(restrurant -> toDto(restrurant, latitude, longitude))
+                .toList();
+    }
+
+    private Row rowOf(Restrurant restrurant) {
+        GeoPoint location = restrurant.getGeoLocation();
+        return new Row(
+                restrurant.getId(),
+                restrurant.getName(),
+                restrurant.getCuisineType(),
+                restrurant.getAverageRating() != null ? restrurant.getAverageRating() : 0f,
+                restrurant.getReviewCount() != null ? restrurant.getReviewCount() : 0,
+                location != null ? location.getLat() : null,
+                location != null ? location.getLon() : null,
+                restrurant.getOperatingHours());
+    }
+
+    private NearbyRestrurantDto toDto(Result result) {
+        return NearbyRestrurantDto.builder()
+                .id(result.id())
+                .name(result.name())
+                .cuisineType(result.cuisineType())
+                .averageRating(result.averageRating())
+                .reviewCount(result.reviewCount())
+                .latitude(result.latitude())
+                .longitude(result.longitude())
+                .distanceKm(result.distanceKm())
+                .build();
+    }
+
+    private NearbyRestrurantDto toDto(Restrurant restrurant, double latitude, double longitude) {
+        GeoPoint location = restrurant.getGeoLocation();
+        return NearbyRestrurantDto.builder()
+                .id(restrurant.getId())
+                .name(restrurant.getName())
+                .cuisineType(restrurant.getCuisineType())
+                .averageRating(restrurant.getAverageRating())
+                .reviewCount(restrurant.getReviewCount())
+                .latitude(location.getLat())
+                .longitude(location.getLon())
+                .distanceKm(CatalogueReplica.distanceKm(latitude, longitude, location.getLat(), location.getLon()))
+                .build();
+    }
+}
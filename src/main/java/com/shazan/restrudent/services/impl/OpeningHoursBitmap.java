@@ -0,0 +1,82 @@
+package com.shazan.restrudent.services.impl;
+
+import com.shazan.restrudent.domain.entity.OperatingHour;
+import com.shazan.restrudent.domain.entity.TimeRange;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Weekly opening hours as one bit per quarter hour (7 x 96 = 672 bits, 11 longs), so "open now"
+ * is a single bit test. Ranges closing before they open run past midnight into the next day.
+ */
+final class OpeningHoursBitmap {
+    static final int SLOTS_PER_DAY = 96;
+    static final int SLOTS_PER_WEEK = 7 * SLOTS_PER_DAY;
+    static final int WORDS = (SLOTS_PER_WEEK + 63) / 64;
+
+    private OpeningHoursBitmap() {
+    }
+
+    /**
+     * Writes the bitmap into {@code target} starting at {@code offset}.
+     *
+     * @return false when no usable hours were present
+     */
+    static boolean encode(OperatingHour hours, long[] target, int offset) {
+        for (int i = 0; i < WORDS; i++) {
+            target[offset + i] = 0;
+        }
+        if (hours == null) {
+            return false;
+        }
+        TimeRange[] week = {hours.getMonday(), hours.getTuesday(), hours.getWednesday(), hours.getThursday(),
+                hours.getFriday(), hours.getSaturday(), hours.getSunday()};
+        boolean any = false;
+        for (int day = 0; day < week.length; day++) {
+            TimeRange range = week[day];
+            if (range == null) {
+                continue;
+            }
+            int open = slotOf(range.getOpentTime());
+            int close = slotOf(range.getCloseTime());
+            if (open < 0 || close < 0) {
+                continue;
+            }
+            int start = day * SLOTS_PER_DAY + open;
+            int length = close > open ? close - open : SLOTS_PER_DAY - open + close;
+            for (int i = 0; i < length; i++) {
+                int slot = (start + i) % SLOTS_PER_WEEK;
+                target[offset + (slot >>> 6)] |= 1L << (slot & 63);
+            }
+            any = true;
+        }
+        return any;
+    }
+
+    static boolean isOpen(long[] bitmap, int offset, int slot) {
+        return (bitmap[offset + (slot >>> 6)] & (1L << (slot & 63))) != 0;
+    }
+
+    static int slotOf(LocalDateTime time) {
+        int day = time.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue();
+        return day * SLOTS_PER_DAY + time.getHour() * 4 + time.getMinute() / 15;
+    }
+
+    private static int slotOf(String time) {
+        if (time == null) {
+            return -1;
+        }
+        if ("24:00".equals(time.trim())) {
+            return SLOTS_PER_DAY;
+        }
+        try {
+            LocalTime parsed = LocalTime.parse(time.trim());
+            return parsed.getHour() * 4 + parsed.getMinute() / 15;
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
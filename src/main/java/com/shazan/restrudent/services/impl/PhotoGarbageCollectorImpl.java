@@ -0,0 +1,213 @@
+package com.shazan.restrudent.services.impl;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import com.shazan.restrudent.domain.dto.PhotoSweepReportDto;
+import com.shazan.restrudent.domain.entity.Photo;
+import com.shazan.restrudent.domain.entity.Restrurant;
+import com.shazan.restrudent.expections.BaseExpection;
+import com.shazan.restrudent.expections.StorageException;
+import com.shazan.restrudent.services.PhotoGarbageCollector;
+import com.shazan.restrudent.services.StorageService;
+import com.shazan.restrudent.services.StorageService.StoredFile;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
+import org.springframework.data.elasticsearch.core.query.SourceFilter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PhotoGarbageCollectorImpl implements PhotoGarbageCollector {
+    private static final int SCROLL_PAGE_SIZE = 1000;
+    private static final int VERIFY_BATCH_SIZE = 100;
+    private static final int MAX_SAMPLE_ORPHANS = 100;
+    private static final SourceFilter PHOTO_URLS_ONLY = new FetchSourceFilterBuilder().withIncludes("photos.url").build();
+
+    private final StorageService storageService;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final HotPhotoCache hotPhotoCache;
+
+    @Value("${app.storage.gc.grace-period-hours:24}")
+    private long gracePeriodHours;
+
+    @Value("${app.storage.gc.max-deletes-per-second:50}")
+    private int maxDeletesPerSecond;
+
+    @Value("${app.storage.gc.dry-run:true}")
+    private boolean scheduledDryRun;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Scheduled(cron = "${app.storage.gc.cron:-}")
+    public void scheduledSweep() {
+        PhotoSweepReportDto report = sweep(scheduledDryRun);
+        log.info("Scheduled photo sweep finished: {}", report);
+    }
+
+    @Override
+    public PhotoSweepReportDto sweep(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            throw new BaseExpection("A photo sweep is already running");
+        }
+        try {
+            return doSweep(dryRun);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private PhotoSweepReportDto doSweep(boolean dryRun) {
+        PhotoSweepReportDto report = PhotoSweepReportDto.builder()
+                .dryRun(dryRun)
+                .startedAt(LocalDateTime.now())
+                .sampleOrphans(new ArrayList<>())
+                .build();
+
+        PhotoReferenceSet referenced = loadReferencedPhotos();
+        report.setReferencedPhotos(referenced.size());
+
+        Instant cutoff = Instant.now().minus(Duration.ofHours(gracePeriodHours));
+        List<StoredFile> candidates = new ArrayList<>(VERIFY_BATCH_SIZE);
+        try (Stream<StoredFile> files = storageService.listAll()) {
+            Iterator<StoredFile> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                StoredFile file = iterator.next();
+                report.setFilesScanned(report.getFilesScanned() + 1);
+                if (file.lastModified().isAfter(cutoff) || referenced.mightContain(file.id())) {
+                    continue;
+                }
+                candidates.add(file);
+                if (candidates.size() == VERIFY_BATCH_SIZE) {
+                    collect(candidates, report);
+                    candidates.clear();
+                }
+            }
+            collect(candidates, report);
+        } catch (IOException e) {
+            throw new StorageException("Could not walk photo storage", e);
+        }
+
+        report.setFinishedAt(LocalDateTime.now());
+        return report;
+    }
+
+    private PhotoReferenceSet loadReferencedPhotos() {
+        PhotoReferenceSet referenced = new PhotoReferenceSet();
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(q -> q.matchAll(m -> m))
+                .withSourceFilter(PHOTO_URLS_ONLY)
+                .withPageable(PageRequest.of(0, SCROLL_PAGE_SIZE))
+                .build();
+        try (SearchHitsIterator<Restrurant> hits = elasticsearchOperations.searchForStream(query, Restrurant.class)) {
+            while (hits.hasNext()) {
+                addPhotoUrls(hits.next().getContent(), referenced::add);
+            }
+        }
+        referenced.seal();
+        return referenced;
+    }
+
+    private void collect(List<StoredFile> candidates, PhotoSweepReportDto report) {
+        if (candidates.isEmpty()) {
+            return;
+        }
+        // The reference set is a snapshot; re-check candidates so photos attached since then survive
+        Set<String> stillReferenced = findReferenced(candidates);
+        for (StoredFile file : candidates) {
+            if (stillReferenced.contains(file.id())) {
+                continue;
+            }
+            report.setOrphansFound(report.getOrphansFound() + 1);
+            if (report.getSampleOrphans().size() < MAX_SAMPLE_ORPHANS) {
+                report.getSampleOrphans().add(file.id());
+            }
+            if (report.isDryRun() || !delete(file)) {
+                continue;
+            }
+            report.setFilesDeleted(report.getFilesDeleted() + 1);
+            report.setBytesReclaimed(report.getBytesReclaimed() + file.size());
+        }
+    }
+
+    private boolean delete(StoredFile file) {
+        throttle();
+        try {
+            hotPhotoCache.invalidate(file.id());
+            boolean deleted = storageService.delete(file.id());
+            if (deleted) {
+                log.debug("Deleted orphaned photo {}", file.id());
+            }
+            return deleted;
+        } catch (IOException e) {
+            log.warn("Could not delete orphaned photo {}", file.id(), e);
+            return false;
+        }
+    }
+
+    private Set<String> findReferenced(List<StoredFile> candidates) {
+        List<FieldValue> urls = candidates.stream().map(file -> FieldValue.of(file.id())).toList();
+        Query photoUrlIn = Query.of(q -> q.nested(n -> n
+                .path("photos")
+                .query(nq -> nq.terms(t -> t.field("photos.url").terms(v -> v.value(urls))))));
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(photoUrlIn)
+                .withSourceFilter(PHOTO_URLS_ONLY)
+                .withPageable(PageRequest.of(0, SCROLL_PAGE_SIZE))
+                .build();
+
+        Set<String> referenced = new HashSet<>();
+        try (SearchHitsIterator<Restrurant> hits = elasticsearchOperations.searchForStream(query, Restrurant.class)) {
+            while (hits.hasNext()) {
+                SearchHit<Restrurant> hit = hits.next();
+                addPhotoUrls(hit.getContent(), referenced::add);
+            }
+        }
+        return referenced;
+    }
+
+    private void addPhotoUrls(Restrurant restrurant, Consumer<String> sink) {
+        if (restrurant.getPhotos() == null) {
+            return;
+        }
+        for (Photo photo : restrurant.getPhotos()) {
+            if (photo.getUrl() != null) {
+                sink.accept(photo.getUrl());
+            }
+        }
+    }
+
+    private void throttle() {
+        if (maxDeletesPerSecond <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(TimeUnit.SECONDS.toNanos(1) / maxDeletesPerSecond);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Photo sweep interrupted", e);
+        }
+    }
+}
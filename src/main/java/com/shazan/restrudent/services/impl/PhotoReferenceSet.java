@@ -0,0 +1,54 @@
+package com.shazan.restrudent.services.impl;
+
+import java.util.Arrays;
+
+/**
+ * Sorted array of 64-bit fingerprints of referenced photo names. A collision can only make an
+ * orphan look referenced, so the sweeper errs on the side of keeping files.
+ */
+final class PhotoReferenceSet {
+    private long[] fingerprints = new long[1024];
+    private int size;
+    private boolean sealed;
+
+    void add(String name) {
+        if (sealed) {
+            throw new IllegalStateException("Reference set is sealed");
+        }
+        if (size == fingerprints.length) {
+            fingerprints = Arrays.copyOf(fingerprints, size * 2);
+        }
+        fingerprints[size++] = fingerprint(name);
+    }
+
+    void seal() {
+        Arrays.sort(fingerprints, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || fingerprints[distinct - 1] != fingerprints[i]) {
+                fingerprints[distinct++] = fingerprints[i];
+            }
+        }
+        size = distinct;
+        fingerprints = Arrays.copyOf(fingerprints, size);
+        sealed = true;
+    }
+
+    boolean mightContain(String name) {
+        return Arrays.binarySearch(fingerprints, 0, size, fingerprint(name)) >= 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static long fingerprint(String name) {
+        // FNV-1a 64
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            hash ^= name.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
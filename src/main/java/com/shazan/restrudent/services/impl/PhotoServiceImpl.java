@@ -9,6 +9,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
@@ -17,6 +18,7 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class PhotoServiceImpl implements PhotoService {
     private final StorageService storageService;
+    private final HotPhotoCache hotPhotoCache;
 
     @Override
     public Photo upLoadPhoto(MultipartFile file) {
@@ -33,9 +35,17 @@ public class PhotoServiceImpl implements PhotoService {
         }
     }
 
+    @Override
+    public Optional<ByteBuffer> getCachedPhoto(String id) {
+        return hotPhotoCache.get(id);
+    }
+
+    // Storage read for a cache miss; the file is offered to the cache on the way out
     @Override
     public Optional<Resource> getPhotoAsResource(String id) {
-        return storageService.load(id);
+        Optional<Resource> resource = storageService.load(id);
+        resource.ifPresent(loaded -> hotPhotoCache.offer(id, loaded));
+        return resource;
     }
 }
 
@@ -0,0 +1,184 @@
+package com.shazan.restrudent.services.impl;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import com.shazan.restrudent.domain.entity.Restrurant;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.RoutingResolver;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Region keys used as Elasticsearch routing values, so all restaurants of a city (or of a coarse
+ * geohash cell) live on one shard and region-scoped queries touch only that shard. City regions
+ * are {@code <country>.<city>} slugs, so cities sharing a name in different countries stay apart.
+ * The region is fixed when a restaurant is created and is the prefix of its id
+ * ({@code <region>~<uuid>}), so gets, updates and deletes by id can be routed without a lookup;
+ * updates that would move a restaurant to another region are refused. Ids without the separator
+ * belong to documents indexed before routing and use Elasticsearch's default routing.
+ */
+@Component
+public class RegionRouting {
+    public static final String SEPARATOR = "~";
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_SLUG = Pattern.compile("[^a-z0-9]+");
+
+    public enum Strategy { CITY, GEOHASH }
+
+    @Value("${app.routing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.routing.strategy:CITY}")
+    private Strategy strategy;
+
+    @Value("${app.routing.geohash-precision:3}")
+    private int geohashPrecision;
+
+    // Off until a reindex with assignRegions has moved the legacy documents onto their region's shard
+    @Value("${app.routing.route-searches:false}")
+    private boolean routeSearches;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Region a restaurant would be placed in, or null when routing is off or the restaurant has
+     * nothing to derive one from.
+     */
+    public String regionOf(Restrurant restrurant) {
+        if (!enabled) {
+            return null;
+        }
+        if (strategy == Strategy.GEOHASH) {
+            return restrurant.getGeoLocation() == null ? null
+                    : regionOf(restrurant.getGeoLocation().getLat(), restrurant.getGeoLocation().getLon());
+        }
+        return restrurant.getAddress() == null ? null
+                : cityRegion(restrurant.getAddress().getCountry(), restrurant.getAddress().getCity());
+    }
+
+    /**
+     * Same as {@link #regionOf(Restrurant)} for a raw {@code _source} document.
+     */
+    public String regionOf(Map<?, ?> document) {
+        if (!enabled) {
+            return null;
+        }
+        if (strategy == Strategy.GEOHASH) {
+            return document.get("geoLocation") instanceof Map<?, ?> point
+                    && point.get("lat") instanceof Number lat && point.get("lon") instanceof Number lon
+                    ? regionOf(lat.doubleValue(), lon.doubleValue()) : null;
+        }
+        return document.get("address") instanceof Map<?, ?> address && address.get("city") instanceof String city
+                ? cityRegion(address.get("country") instanceof String country ? country : null, city) : null;
+    }
+
+    public String regionOf(double latitude, double longitude) {
+        return enabled && strategy == Strategy.GEOHASH ? DuplicateIndex.geohash(latitude, longitude, geohashPrecision) : null;
+    }
+
+    public String regionOfCity(String country, String city) {
+        return enabled && strategy == Strategy.CITY ? cityRegion(country, city) : null;
+    }
+
+    /**
+     * Routing value for a query scoped to {@code city} in {@code country}, or null when it has to
+     * fan out to all shards. Without a country the city may exist in several regions.
+     */
+    public String searchRoutingOfCity(String country, String city) {
+        return routeSearches && StringUtils.hasText(country) ? regionOfCity(country, city) : null;
+    }
+
+    /**
+     * {@code query} restricted to restaurants in the city, and the country when given; route it with
+     * {@link #searchRoutingOfCity} to search only the city's shard.
+     */
+    public static Query inCity(Query query, String city, String country) {
+        List<Query> address = new ArrayList<>();
+        address.add(Query.of(q -> q.term(t -> t.field("address.city").value(city).caseInsensitive(true))));
+        if (StringUtils.hasText(country)) {
+            address.add(Query.of(q -> q.term(t -> t.field("address.country").value(country).caseInsensitive(true))));
+        }
+        return Query.of(q -> q.bool(b -> b
+                .must(query)
+                .filter(f -> f.nested(n -> n
+                        .path("address")
+                        .query(nq -> nq.bool(ab -> ab.filter(address)))))));
+    }
+
+    public String newId(String region) {
+        return region == null ? null : region + SEPARATOR + UUID.randomUUID();
+    }
+
+    /**
+     * Operations routed to the shard holding {@code id}.
+     */
+    public ElasticsearchOperations routed(ElasticsearchOperations operations, String id) {
+        String routing = routingOf(id);
+        return routing == null ? operations : operations.withRouting(RoutingResolver.just(routing));
+    }
+
+    /**
+     * Restaurant by id, falling back to the id it had before a region migration.
+     */
+    public Optional<Restrurant> find(ElasticsearchOperations operations, String id) {
+        Optional<Restrurant> found = Optional.ofNullable(routed(operations, id).get(id, Restrurant.class));
+        if (found.isEmpty() && routingOf(id) == null) {
+            return findByLegacyId(operations, id);
+        }
+        return found;
+    }
+
+    // Ids handed out before a region migration keep working through the legacyId field
+    public Optional<Restrurant> findByLegacyId(ElasticsearchOperations operations, String legacyId) {
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(q -> q.term(t -> t.field("legacyId").value(legacyId)))
+                .withMaxResults(1)
+                .build();
+        SearchHit<Restrurant> hit = operations.searchOne(query, Restrurant.class);
+        return Optional.ofNullable(hit).map(SearchHit::getContent);
+    }
+
+    public static String routingOf(String id) {
+        if (id == null) {
+            return null;
+        }
+        int separator = id.indexOf(SEPARATOR);
+        return separator > 0 ? id.substring(0, separator) : null;
+    }
+
+    static String cityRegion(String country, String city) {
+        String citySlug = slug(city);
+        if (citySlug == null) {
+            return null;
+        }
+        String countrySlug = slug(country);
+        return countrySlug == null ? citySlug : countrySlug + "." + citySlug;
+    }
+
+    private static String slug(String value) {
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFKD)).replaceAll("");
+        String slug = NON_SLUG.matcher(folded.toLowerCase(Locale.ROOT)).replaceAll("-").replaceAll("^-+|-+$", "");
+        return slug.isEmpty() ? null : slug;
+    }
+}
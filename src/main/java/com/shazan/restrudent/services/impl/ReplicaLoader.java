@@ -0,0 +1,64 @@
+package com.shazan.restrudent.services.impl;
+
+import com.shazan.restrudent.domain.entity.Restrurant;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.SourceFilter;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Loads an in-memory replica of the restaurant index (duplicate index, catalogue replica,
+ * leaderboards) with one scan of the fields it needs. The replica is kept current from change
+ * events while the scan runs, so every event must be passed to {@link #changed(String)} first:
+ * the scan then skips those restaurants, as the events already applied a newer copy than the
+ * one it read.
+ */
+final class ReplicaLoader {
+    private static final int SCAN_PAGE_SIZE = 1000;
+
+    private final SourceFilter fields;
+    private final Set<String> changedDuringLoad = ConcurrentHashMap.newKeySet();
+    private volatile boolean loading;
+
+    ReplicaLoader(SourceFilter fields) {
+        this.fields = fields;
+    }
+
+    void changed(String restrurantId) {
+        if (loading) {
+            changedDuringLoad.add(restrurantId);
+        }
+    }
+
+    /**
+     * Scans the whole index into {@code apply} and returns the number of restaurants read.
+     */
+    long load(ElasticsearchOperations operations, Consumer<Restrurant> apply) {
+        loading = true;
+        changedDuringLoad.clear();
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(q -> q.matchAll(m -> m))
+                .withSourceFilter(fields)
+                .withPageable(PageRequest.of(0, SCAN_PAGE_SIZE))
+                .build();
+        long scanned = 0;
+        try (SearchHitsIterator<Restrurant> hits = operations.searchForStream(query, Restrurant.class)) {
+            while (hits.hasNext()) {
+                Restrurant restrurant = hits.next().getContent();
+                scanned++;
+                if (!changedDuringLoad.contains(restrurant.getId())) {
+                    apply.accept(restrurant);
+                }
+            }
+            return scanned;
+        } finally {
+            loading = false;
+            changedDuringLoad.clear();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.shazan.restrudent.services.impl;
+
+import jakarta.servlet.ServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Per-request stage timings for the access log. The holder lives in a request attribute: code with
+ * the request at hand passes it along, code without it (the Elasticsearch guard, the JWT decoder,
+ * DTO mapping) finds it through Spring's request context, so no thread-local of our own has to be
+ * created on every virtual thread. Work handed to other threads is timed by the request thread
+ * around the hand-off (see ElasticsearchGuardImpl), so it is still attributed to the request.
+ */
+public final class RequestTimings {
+
+    public enum Stage { AUTH, ELASTICSEARCH, MAPPING, SERIALIZATION, IO }
+
+    private static final String ATTRIBUTE = RequestTimings.class.getName();
+    private static final int STAGES = Stage.values().length;
+
+    private final long[] nanos = new long[STAGES];
+    private final int[] counts = new int[STAGES];
+    private final long startNanos = System.nanoTime();
+    private boolean active = true;
+    private long serializationStartNanos;
+
+    private RequestTimings() {
+    }
+
+    public static RequestTimings begin(ServletRequest request) {
+        RequestTimings timings = new RequestTimings();
+        request.setAttribute(ATTRIBUTE, timings);
+        return timings;
+    }
+
+    public static RequestTimings of(ServletRequest request) {
+        return request.getAttribute(ATTRIBUTE) instanceof RequestTimings timings ? timings : null;
+    }
+
+    // For callers without the request at hand; a no-op outside a request
+    public static void record(Stage stage, long elapsedNanos) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null
+                && attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof RequestTimings timings) {
+            timings.add(stage, elapsedNanos);
+        }
+    }
+
+    public void add(Stage stage, long elapsedNanos) {
+        if (active) {
+            nanos[stage.ordinal()] += elapsedNanos;
+            counts[stage.ordinal()]++;
+        }
+    }
+
+    // Response body writing starts here; SERIALIZATION is measured from this point minus the time spent in IO
+    public void markSerializationStart() {
+        if (active && serializationStartNanos == 0) {
+            serializationStartNanos = System.nanoTime();
+        }
+    }
+
+    public void end() {
+        active = false;
+    }
+
+    public long startNanos() {
+        return startNanos;
+    }
+
+    public long serializationStartNanos() {
+        return serializationStartNanos;
+    }
+
+    public long nanos(Stage stage) {
+        return nanos[stage.ordinal()];
+    }
+
+    public int count(Stage stage) {
+        return counts[stage.ordinal()];
+    }
+}
@@ -0,0 +1,201 @@
+package com.shazan.restrudent.services.impl;
+
+import com.shazan.restrudent.domain.dto.RestrurantChangeDto;
+import com.shazan.restrudent.domain.entity.Restrurant;
+import com.shazan.restrudent.domain.event.RestrurantChangedEvent;
+import com.shazan.restrudent.services.RestrurantChangeFeed;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server-sent restaurant changes. Event ids are {@code <epoch>-<sequence>}, where the epoch is
+ * fixed per boot, so a client resuming with an id from an earlier run (or another instance) is
+ * told to reset instead of being matched against unrelated sequence numbers. The last changes are
+ * kept in a ring for resuming. Every subscriber has its own bounded queue and sender thread: a
+ * slow client only overflows its own queue, which turns into a reset for that client.
+ */
+@Service
+@Slf4j
+public class RestrurantChangeFeedImpl implements RestrurantChangeFeed {
+
+    @Value("${app.changes.buffer-size:4096}")
+    private int bufferSize;
+
+    @Value("${app.changes.subscriber-queue-size:256}")
+    private int subscriberQueueSize;
+
+    @Value("${app.changes.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMillis;
+
+    @Value("${app.changes.heartbeat-ms:15000}")
+    private long heartbeatMillis;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private RestrurantChangeDto[] ring;
+    private int mask;
+    private long head;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        int capacity = Integer.highestOneBit(Math.max(16, bufferSize) - 1) << 1;
+        ring = new RestrurantChangeDto[capacity];
+        mask = capacity - 1;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(Subscriber::close);
+    }
+
+    @EventListener
+    public void onRestrurantChanged(RestrurantChangedEvent event) {
+        Restrurant restrurant = event.restrurant();
+        RestrurantChangeDto.RestrurantChangeDtoBuilder change = RestrurantChangeDto.builder()
+                .type(event.type())
+                .id(event.restrurantId());
+        if (restrurant != null) {
+            change.name(restrurant.getName())
+                    .averageRating(restrurant.getAverageRating())
+                    .reviewCount(restrurant.getReviewCount())
+                    .updatedAt(restrurant.getUpdatedAt());
+        }
+        publish(change);
+    }
+
+    @Override
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        // Under the publish lock, so nothing is published between the replay and joining the live feed
+        synchronized (this) {
+            long resumeAfter = resumePoint(lastEventId);
+            if (resumeAfter < 0 || head - resumeAfter > ring.length) {
+                subscriber.overflowed.set(lastEventId != null);
+            } else {
+                for (long sequence = resumeAfter + 1; sequence <= head; sequence++) {
+                    subscriber.offer(ring[(int) (sequence & mask)]);
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        subscriber.start();
+        return emitter;
+    }
+
+    private synchronized void publish(RestrurantChangeDto.RestrurantChangeDtoBuilder change) {
+        long sequence = head + 1;
+        RestrurantChangeDto published = change.sequence(sequence).build();
+        ring[(int) (sequence & mask)] = published;
+        head = sequence;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(published);
+        }
+    }
+
+    // Sequence to resume after, or -1 when the id is missing, malformed or from another epoch
+    private long resumePoint(String lastEventId) {
+        if (lastEventId == null || !lastEventId.startsWith(epoch + "-")) {
+            return -1;
+        }
+        try {
+            long sequence = Long.parseLong(lastEventId.substring(epoch.length() + 1));
+            return sequence >= 0 && sequence <= head ? sequence : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    private synchronized String currentEventId() {
+        return eventId(head);
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final ArrayBlockingQueue<RestrurantChangeDto> queue = new ArrayBlockingQueue<>(subscriberQueueSize);
+        private final AtomicBoolean overflowed = new AtomicBoolean();
+        private volatile boolean open = true;
+        private Thread sender;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        // Called with the publish lock held; never blocks
+        private void offer(RestrurantChangeDto change) {
+            if (!queue.offer(change)) {
+                // Everything queued is superseded by the reset; the client reloads, then follows from here
+                queue.clear();
+                overflowed.set(true);
+                queue.offer(change);
+            }
+        }
+
+        private void start() {
+            sender = Thread.ofVirtual().name("change-feed-subscriber").start(this::run);
+        }
+
+        private void run() {
+            try {
+                while (open) {
+                    RestrurantChangeDto change = queue.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                    boolean sent = false;
+                    if (overflowed.getAndSet(false)) {
+                        send(SseEmitter.event().name("reset").data(currentEventId()));
+                        sent = true;
+                    }
+                    if (change != null) {
+                        send(SseEmitter.event().id(eventId(change.getSequence())).name("change").data(change));
+                    } else if (!sent) {
+                        send(SseEmitter.event().comment("heartbeat"));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping change feed subscriber: {}", e.getMessage());
+            } finally {
+                close();
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            emitter.send(event);
+        }
+
+        private void close() {
+            if (!open) {
+                return;
+            }
+            open = false;
+            subscribers.remove(this);
+            if (sender != null && sender != Thread.currentThread()) {
+                sender.interrupt();
+            }
+            try {
+                emitter.complete();
+            } catch (IllegalStateException e) {
+                // Already completed by the container
+            }
+        }
+    }
+}
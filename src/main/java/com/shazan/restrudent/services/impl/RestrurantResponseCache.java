@@ -0,0 +1,154 @@
+package com.shazan.restrudent.services.impl;
+
+import com.shazan.restrudent.domain.dto.RestrurantDto;
+import com.shazan.restrudent.domain.event.RestrurantChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Final JSON bytes (and optionally their gzip encoding) of single-restaurant responses, keyed by
+ * id and checked against the document version, so hits skip the object model and Jackson entirely.
+ */
+@Component
+@RequiredArgsConstructor
+public class RestrurantResponseCache {
+
+    public record CachedResponse(String version, byte[] json, byte[] gzip) {
+    }
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.restaurants.response-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.restaurants.response-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${app.restaurants.response-cache.gzip:true}")
+    private boolean gzip;
+
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long currentBytes;
+
+    public Optional<CachedResponse> get(String id, String version) {
+        if (!enabled || version == null) {
+            return Optional.empty();
+        }
+        synchronized (entries) {
+            CachedResponse cached = entries.get(id);
+            return cached != null && version.equals(cached.version()) ? Optional.of(cached) : Optional.empty();
+        }
+    }
+
+    // Any version; does not count as an access
+    public boolean contains(String id) {
+        if (!enabled) {
+            return false;
+        }
+        synchronized (entries) {
+            return entries.containsKey(id);
+        }
+    }
+
+    public CachedResponse put(RestrurantDto restrurant) {
+        byte[] json = objectMapper.writeValueAsBytes(restrurant);
+        CachedResponse response = new CachedResponse(restrurant.getVersion(), json, gzip ? gzip(json) : null);
+        if (!enabled || restrurant.getVersion() == null || restrurant.isStale()) {
+            return response;
+        }
+        synchronized (entries) {
+            remove(restrurant.getId());
+            entries.put(restrurant.getId(), response);
+            currentBytes += sizeOf(response);
+            Iterator<Map.Entry<String, CachedResponse>> eldest = entries.entrySet().iterator();
+            while (currentBytes > maxBytes && eldest.hasNext()) {
+                currentBytes -= sizeOf(eldest.next().getValue());
+                eldest.remove();
+            }
+        }
+        return response;
+    }
+
+    @EventListener
+    public void onRestrurantChanged(RestrurantChangedEvent event) {
+        synchronized (entries) {
+            remove(event.restrurantId());
+        }
+    }
+
+    private void remove(String id) {
+        CachedResponse removed = entries.remove(id);
+        if (removed != null) {
+            currentBytes -= sizeOf(removed);
+        }
+    }
+
+    /**
+     * Whether an Accept-Encoding header allows the pre-gzipped body: {@code gzip} (or its alias
+     * {@code x-gzip}) with a non-zero q-value, or failing that a {@code *} with one.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!coding.equals("gzip") && !coding.equals("x-gzip") && !coding.equals("*")) {
+                continue;
+            }
+            double quality = qualityOf(parts);
+            if (coding.equals("*")) {
+                wildcardQuality = wildcardQuality == null ? quality : Math.max(wildcardQuality, quality);
+            } else {
+                gzipQuality = gzipQuality == null ? quality : Math.max(gzipQuality, quality);
+            }
+        }
+        Double quality = gzipQuality != null ? gzipQuality : wildcardQuality;
+        return quality != null && quality > 0;
+    }
+
+    // A malformed weight counts as a refusal rather than a preference
+    private static double qualityOf(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.length() > 1 && Character.toLowerCase(parameter.charAt(0)) == 'q' && parameter.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private long sizeOf(CachedResponse response) {
+        return response.json().length + (response.gzip() != null ? response.gzip().length : 0);
+    }
+
+    private byte[] gzip(byte[] json) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 3 + 32);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+}
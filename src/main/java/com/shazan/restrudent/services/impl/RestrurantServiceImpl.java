@@ -1,38 +1,191 @@
 package com.shazan.restrudent.services.impl;
 
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.GetResponse;
+import co.elastic.clients.json.JsonData;
 import com.shazan.restrudent.domain.dto.CreateRestrurantRequest;
+import com.shazan.restrudent.domain.dto.OwnerRestrurantsDto;
 import com.shazan.restrudent.domain.dto.RestrurantDto;
 import com.shazan.restrudent.domain.entity.Restrurant;
 import com.shazan.restrudent.domain.entity.User;
+import com.shazan.restrudent.domain.event.RestrurantChangedEvent;
+import com.shazan.restrudent.expections.BaseExpection;
+import com.shazan.restrudent.expections.DuplicateRestrurantException;
+import com.shazan.restrudent.expections.ElasticsearchUnavailableException;
 import com.shazan.restrudent.mapers.RestrurantMapper;
 import com.shazan.restrudent.repo.RestrurantRepo;
+import com.shazan.restrudent.services.DuplicateDetector;
+import com.shazan.restrudent.services.DuplicateDetector.DuplicateMatch;
+import com.shazan.restrudent.services.ElasticsearchGuard;
+import com.shazan.restrudent.services.ElasticsearchGuard.Operation;
 import com.shazan.restrudent.services.RestrurantService;
+import com.shazan.restrudent.services.SearchRankingService;
+import com.shazan.restrudent.services.impl.RequestTimings.Stage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregation;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHitSupport;
+import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.data.elasticsearch.core.geo.GeoPoint;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RestrurantServiceImpl implements RestrurantService {
+    private static final String AVERAGE_RATING_AGGREGATION = "averageRating";
+    private static final String TOTAL_REVIEWS_AGGREGATION = "totalReviews";
+
     private final RestrurantRepo restrurantRepo;
     private final RestrurantMapper restrurantMapper;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ElasticsearchClient elasticsearchClient;
+    private final SearchRankingService searchRankingService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ElasticsearchGuard elasticsearchGuard;
+    private final CurrentUserResolver currentUserResolver;
+    private final DuplicateDetector duplicateDetector;
+    private final RegionRouting regionRouting;
+    private final LastKnownGoodRestrurants lastKnownGoodRestrurants;
+
+    @Value("${app.restaurants.bulk.max-size:500}")
+    private int maxBulkSize;
+
+    @Value("${app.duplicates.action:FLAG}")
+    private DuplicateAction duplicateAction;
+
+    private enum DuplicateAction { FLAG, REJECT, SKIP }
 
     @Override
     public RestrurantDto createRestrurant(CreateRestrurantRequest request) {
+        Restrurant restrurant = newRestrurant(request, currentUserResolver.currentUser(), LocalDateTime.now());
+        String skipFor = checkDuplicate(restrurant);
+        if (skipFor != null) {
+            Optional<RestrurantDto> existing = getRestrurantById(skipFor);
+            if (existing.isPresent()) {
+                return existing.get();
+            }
+            duplicateDetector.register(restrurant);
+        }
+        Restrurant saved;
+        try {
+            saved = elasticsearchGuard.write(() -> restrurantRepo.save(restrurant),
+                    late -> eventPublisher.publishEvent(RestrurantChangedEvent.created(late)));
+        } catch (RuntimeException e) {
+            duplicateDetector.unregister(restrurant.getId());
+            throw e;
+        }
+        log.debug("Restaurant created with id: {}", saved.getId());
+        eventPublisher.publishEvent(RestrurantChangedEvent.created(saved));
+        return remember(toDto(saved));
+    }
+
+    @Override
+    public List<RestrurantDto> createRestrurants(List<CreateRestrurantRequest> requests) {
+        if (requests.size() > maxBulkSize) {
+            throw new BaseExpection("At most " + maxBulkSize + " restaurants can be imported per request");
+        }
+        User owner = currentUserResolver.currentUser();
+        LocalDateTime now = LocalDateTime.now();
+        RestrurantDto[] results = new RestrurantDto[requests.size()];
+        int[] savedPosition = new int[requests.size()];
+        List<Restrurant> toSave = new ArrayList<>();
+        Map<String, Integer> pending = new HashMap<>();
+        try {
+            for (int i = 0; i < requests.size(); i++) {
+                Restrurant restrurant = newRestrurant(requests.get(i), owner, now);
+                // Registered by the check, so later records in the batch are checked against this one
+                String skipFor = checkDuplicate(restrurant);
+                if (skipFor != null && pending.containsKey(skipFor)) {
+                    savedPosition[i] = pending.get(skipFor);
+                    continue;
+                }
+                if (skipFor != null) {
+                    Optional<RestrurantDto> existing = getRestrurantById(skipFor);
+                    if (existing.isPresent()) {
+                        results[i] = existing.get();
+                        continue;
+                    }
+                    duplicateDetector.register(restrurant);
+                }
+                pending.put(restrurant.getId(), toSave.size());
+                savedPosition[i] = toSave.size();
+                toSave.add(restrurant);
+            }
+
+            List<RestrurantDto> saved = new ArrayList<>(toSave.size());
+            Iterable<Restrurant> written = elasticsearchGuard.write(() -> restrurantRepo.saveAll(toSave),
+                    late -> late.forEach(restrurant -> eventPublisher.publishEvent(RestrurantChangedEvent.created(restrurant))));
+            for (Restrurant restrurant : written) {
+                eventPublisher.publishEvent(RestrurantChangedEvent.created(restrurant));
+                saved.add(remember(toDto(restrurant)));
+            }
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) {
+                    results[i] = saved.get(savedPosition[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            toSave.forEach(restrurant -> duplicateDetector.unregister(restrurant.getId()));
+            throw e;
+        }
+        log.debug("Imported {} restaurants, skipped {} duplicates", toSave.size(), results.length - toSave.size());
+        return List.of(results);
+    }
+
+    /**
+     * Id of the existing restaurant to answer with instead of indexing the candidate, or null to index
+     * it (flagged if it looks duplicated). A candidate to be indexed is registered with the detector.
+     */
+    private String checkDuplicate(Restrurant candidate) {
+        Optional<DuplicateMatch> match = duplicateDetector.claim(candidate);
+        if (match.isEmpty()) {
+            return null;
+        }
+        DuplicateMatch duplicate = match.get();
+        if (duplicateAction == DuplicateAction.REJECT) {
+            throw new DuplicateRestrurantException("Restaurant '" + candidate.getName()
+                    + "' looks like a duplicate of '" + duplicate.name() + "'", duplicate.restrurantId());
+        }
+        if (duplicateAction == DuplicateAction.SKIP) {
+            return duplicate.restrurantId();
+        }
+        log.info("Restaurant '{}' flagged as a likely duplicate of {} (similarity {}, {} m)", candidate.getName(),
+                duplicate.restrurantId(), duplicate.similarity(), Math.round(duplicate.distanceMeters()));
+        candidate.setDuplicateOf(duplicate.restrurantId());
+        duplicateDetector.register(candidate);
+        return null;
+    }
+
+    private Restrurant newRestrurant(CreateRestrurantRequest request, User owner, LocalDateTime now) {
         Restrurant restrurant = Restrurant.builder()
                 .name(request.getName())
                 .cuisineType(request.getCuisineType())
                 .contactInformation(request.getContactInformation())
                 .averageRating(0.0f)
+                .reviewCount(0)
                 .geoLocation(new GeoPoint(request.getLatitude(), request.getLongitude()))
                 .address(request.getAddress() != null ?
                         com.shazan.restrudent.domain.entity.Address.builder()
@@ -53,30 +206,75 @@ public class RestrurantServiceImpl implements RestrurantService {
                                 .uploadDate(photoDto.getUploadDate())
                                 .build())
                             .toList() : null)
-                .createdBy(getCurrentUser())
+                .createdBy(owner)
+                .ownerId(owner != null ? owner.getId() : null)
+                .createdAt(now)
+                .updatedAt(now)
                 .build();
-
-        Restrurant saved = restrurantRepo.save(restrurant);
-        log.info("Restaurant created with id: {}", saved.getId());
-        return restrurantMapper.toDto(saved);
+        restrurant.setRegion(regionRouting.regionOf(restrurant));
+        // Assigned up front so the duplicate detector can register the restaurant before it is saved
+        String id = regionRouting.newId(restrurant.getRegion());
+        restrurant.setId(id != null ? id : UUID.randomUUID().toString());
+        return restrurant;
     }
 
     @Override
     public Optional<RestrurantDto> getRestrurantById(String id) {
-        return restrurantRepo.findById(id)
-                .map(restrurantMapper::toDto);
+        try {
+            return elasticsearchGuard.call(Operation.READ, () -> findRestrurant(id))
+                    .map(this::toDto)
+                    .map(this::remember);
+        } catch (ElasticsearchUnavailableException e) {
+            Optional<RestrurantDto> stale = lastKnownGoodRestrurants.getStale(id);
+            if (stale.isEmpty()) {
+                throw e;
+            }
+            log.debug("Serving last-known-good restaurant {} while Elasticsearch is unavailable", id);
+            return stale;
+        }
     }
 
     @Override
-    public Page<RestrurantDto> getAllRestrurants(Pageable pageable) {
-        return restrurantRepo.findAll(pageable)
-                .map(restrurantMapper::toDto);
+    public Optional<String> getRestrurantVersion(String id) {
+        // Metadata-only get: no _source is read or transferred
+        GetResponse<JsonData> response = elasticsearchGuard.call(Operation.READ, () -> {
+            try {
+                return elasticsearchClient.get(g -> g
+                        .index(elasticsearchOperations.getIndexCoordinatesFor(Restrurant.class).getIndexName())
+                        .id(id)
+                        .routing(RegionRouting.routingOf(id))
+                        .source(s -> s.fetch(false)), JsonData.class);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read version of restaurant " + id, e);
+            }
+        });
+        if (!response.found() && RegionRouting.routingOf(id) == null) {
+            return elasticsearchGuard.call(Operation.SEARCH, () -> findByLegacyId(id))
+                    .map(Restrurant::getSeqNoPrimaryTerm)
+                    .map(restrurantMapper::versionOf);
+        }
+        if (!response.found() || response.seqNo() == null || response.primaryTerm() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(response.primaryTerm() + "." + response.seqNo());
+    }
+
+    @Override
+    public VersionedPage getAllRestrurants(Pageable pageable) {
+        NativeQuery allQuery = NativeQuery.builder()
+                .withQuery(q -> q.matchAll(m -> m))
+                .withPageable(pageable)
+                .build();
+        SearchHits<Restrurant> hits = elasticsearchGuard.call(Operation.SEARCH,
+                () -> elasticsearchOperations.search(allQuery, Restrurant.class));
+        return versionedPage(hits, pageable);
     }
 
     @Override
     public RestrurantDto updateRestrurant(String id, CreateRestrurantRequest request) {
-        Restrurant existing = restrurantRepo.findById(id)
+        Restrurant existing = elasticsearchGuard.call(Operation.READ, () -> findRestrurant(id))
                 .orElseThrow(() -> new RuntimeException("Restaurant not found with id: " + id));
+        String regionBefore = regionRouting.regionOf(existing);
 
         existing.setName(request.getName());
         existing.setCuisineType(request.getCuisineType());
@@ -98,36 +296,131 @@ public class RestrurantServiceImpl implements RestrurantService {
         if (request.getOperatingHours() != null) {
             existing.setOperatingHours(mapOperatingHours(request.getOperatingHours()));
         }
+        if (existing.getOwnerId() == null && existing.getCreatedBy() != null) {
+            existing.setOwnerId(existing.getCreatedBy().getId());
+        }
+        existing.setUpdatedAt(LocalDateTime.now());
+        // The region is part of the id and decides the shard; saving in place would leave the document
+        // on the old region's shard, where routed searches for the new one never look
+        if (RegionRouting.routingOf(existing.getId()) != null
+                && !Objects.equals(regionBefore, regionRouting.regionOf(existing))) {
+            throw new BaseExpection("Moving restaurant " + existing.getId()
+                    + " to another region is not supported; create it again at the new location");
+        }
 
-        Restrurant updated = restrurantRepo.save(existing);
-        log.info("Restaurant updated with id: {}", updated.getId());
-        return restrurantMapper.toDto(updated);
+        Restrurant updated = elasticsearchGuard.write(() -> restrurantRepo.save(existing),
+                late -> eventPublisher.publishEvent(RestrurantChangedEvent.updated(late)));
+        log.debug("Restaurant updated with id: {}", updated.getId());
+        eventPublisher.publishEvent(RestrurantChangedEvent.updated(updated));
+        return remember(toDto(updated));
     }
 
     @Override
     public void deleteRestrurant(String id) {
-        restrurantRepo.deleteById(id);
-        log.info("Restaurant deleted with id: {}", id);
+        // Read first: a migrated restaurant's legacy id is needed to clean up what is still stored under it
+        Optional<Restrurant> existing = elasticsearchGuard.call(Operation.READ,
+                () -> regionRouting.find(elasticsearchOperations, id));
+        String target = existing.map(Restrurant::getId).orElse(id);
+        String legacyId = existing.map(Restrurant::getLegacyId).orElse(null);
+        elasticsearchGuard.write(() -> regionRouting.routed(elasticsearchOperations, target).delete(target, Restrurant.class),
+                late -> eventPublisher.publishEvent(RestrurantChangedEvent.deleted(target, legacyId)));
+        eventPublisher.publishEvent(RestrurantChangedEvent.deleted(target, legacyId));
+        log.debug("Restaurant deleted with id: {}", target);
     }
 
     @Override
-    public Page<RestrurantDto> searchRestrurants(String query, Pageable pageable) {
-        // This is a basic implementation - you can enhance with more sophisticated search
-        return restrurantRepo.findAll(pageable)
-                .map(restrurantMapper::toDto);
-    }
-
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication != null && authentication.getPrincipal() instanceof Jwt jwt) {
-            return User.builder()
-                    .id(jwt.getSubject())
-                    .username(jwt.getClaim("preferred_username"))
-                    .givename(jwt.getClaim("given_name"))
-                    .familyName(jwt.getClaim("family_name"))
-                    .build();
+    public VersionedPage searchRestrurants(String query, Double latitude, Double longitude, String city,
+                                           String country, Pageable pageable) {
+        Query ranked = searchRankingService.rankedQuery(query, latitude, longitude);
+        NativeQueryBuilder builder = NativeQuery.builder().withPageable(pageable);
+        if (StringUtils.hasText(city)) {
+            // With a country, the city's region routing value sends the query to the one shard holding that city
+            builder.withQuery(RegionRouting.inCity(ranked, city, country));
+            String region = regionRouting.searchRoutingOfCity(country, city);
+            if (region != null) {
+                builder.withRoute(region);
+            }
+        } else {
+            builder.withQuery(ranked);
         }
-        return null;
+        NativeQuery searchQuery = builder.build();
+        SearchHits<Restrurant> hits = elasticsearchGuard.call(Operation.SEARCH,
+                () -> elasticsearchOperations.search(searchQuery, Restrurant.class));
+        return versionedPage(hits, pageable);
+    }
+
+    // Hits carry _seq_no/_primary_term, so the version needs neither the DTOs nor a hash of the body
+    private VersionedPage versionedPage(SearchHits<Restrurant> hits, Pageable pageable) {
+        long hash = 1125899906842597L;
+        for (SearchHit<Restrurant> hit : hits) {
+            hash = 31 * hash + String.valueOf(hit.getId()).hashCode();
+            hash = 31 * hash + String.valueOf(restrurantMapper.versionOf(hit.getContent().getSeqNoPrimaryTerm())).hashCode();
+        }
+        hash = 31 * hash + hits.getTotalHits();
+        String version = Long.toHexString(hash) + "-" + pageable.getPageNumber() + "-" + pageable.getPageSize();
+        return new VersionedPage(version, () -> SearchHitSupport.searchPageFor(hits, pageable)
+                .map(hit -> toDto(hit.getContent())));
+    }
+
+    @Override
+    public OwnerRestrurantsDto getMyRestrurants(Pageable pageable) {
+        User owner = currentUserResolver.currentUser();
+        if (owner == null || owner.getId() == null) {
+            throw new BaseExpection("No authenticated owner");
+        }
+        NativeQuery ownerQuery = NativeQuery.builder()
+                .withQuery(q -> q.bool(b -> b.filter(f -> f.term(t -> t.field("ownerId").value(owner.getId())))))
+                .withAggregation(AVERAGE_RATING_AGGREGATION, Aggregation.of(a -> a.avg(avg -> avg.field("averageRating"))))
+                .withAggregation(TOTAL_REVIEWS_AGGREGATION, Aggregation.of(a -> a.sum(sum -> sum.field("reviewCount"))))
+                .withTrackTotalHits(true)
+                .withPageable(pageable)
+                .build();
+        SearchHits<Restrurant> hits = elasticsearchGuard.call(Operation.SEARCH,
+                () -> elasticsearchOperations.search(ownerQuery, Restrurant.class));
+
+        Double averageRating = null;
+        double totalReviews = 0;
+        if (hits.getAggregations() instanceof ElasticsearchAggregations aggregations) {
+            ElasticsearchAggregation average = aggregations.get(AVERAGE_RATING_AGGREGATION);
+            ElasticsearchAggregation reviews = aggregations.get(TOTAL_REVIEWS_AGGREGATION);
+            if (average != null) {
+                Double value = average.aggregation().getAggregate().avg().value();
+                averageRating = value != null && !value.isNaN() ? value : null;
+            }
+            if (reviews != null) {
+                Double value = reviews.aggregation().getAggregate().sum().value();
+                totalReviews = value != null ? value : 0;
+            }
+        }
+        return OwnerRestrurantsDto.builder()
+                .restaurantCount(hits.getTotalHits())
+                .averageRating(averageRating)
+                .totalReviews((long) totalReviews)
+                .restaurants(SearchHitSupport.searchPageFor(hits, pageable)
+                        .map(hit -> toDto(hit.getContent())))
+                .build();
+    }
+
+    private Optional<Restrurant> findRestrurant(String id) {
+        return regionRouting.find(elasticsearchOperations, id);
+    }
+
+    private Optional<Restrurant> findByLegacyId(String legacyId) {
+        return regionRouting.findByLegacyId(elasticsearchOperations, legacyId);
+    }
+
+    private RestrurantDto toDto(Restrurant restrurant) {
+        long start = System.nanoTime();
+        try {
+            return restrurantMapper.toDto(restrurant);
+        } finally {
+            RequestTimings.record(Stage.MAPPING, System.nanoTime() - start);
+        }
+    }
+
+    private RestrurantDto remember(RestrurantDto restrurant) {
+        lastKnownGoodRestrurants.put(restrurant);
+        return restrurant;
     }
 
     private com.shazan.restrudent.domain.entity.OperatingHour mapOperatingHours(
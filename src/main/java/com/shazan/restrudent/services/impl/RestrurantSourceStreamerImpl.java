@@ -0,0 +1,280 @@
+package com.shazan.restrudent.services.impl;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.transport.rest5_client.low_level.Request;
+import co.elastic.clients.transport.rest5_client.low_level.Response;
+import co.elastic.clients.transport.rest5_client.low_level.ResponseException;
+import co.elastic.clients.transport.rest5_client.low_level.Rest5Client;
+import com.shazan.restrudent.domain.entity.Restrurant;
+import com.shazan.restrudent.expections.BaseExpection;
+import com.shazan.restrudent.services.ElasticsearchGuard;
+import com.shazan.restrudent.services.ElasticsearchGuard.Operation;
+import com.shazan.restrudent.services.RestrurantSourceStreamer;
+import com.shazan.restrudent.services.SearchRankingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.Set;
+
+/**
+ * Streams the raw _source of each search hit straight into the response, token by token, instead
+ * of materializing Restrurant entities, DTOs and a Page. The output follows the RestrurantDto shape:
+ * id from _id, geoLocation into latitude/longitude, and only the fields the DTO exposes. The search
+ * goes through the transport's low-level client under the Elasticsearch guard like every other call.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RestrurantSourceStreamerImpl implements RestrurantSourceStreamer {
+    // Fields of RestrurantDto copied as stored; id and geoLocation are rewritten, everything else is internal
+    private static final Set<String> DTO_FIELDS = Set.of("name", "cuisineType", "contactInformation",
+            "averageRating", "reviewCount", "address", "operatingHours", "photos", "createdBy", "createdAt", "updatedAt");
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final Rest5Client rest5Client;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ElasticsearchGuard elasticsearchGuard;
+    private final SearchRankingService searchRankingService;
+    private final ObjectMapper objectMapper;
+    private final RegionRouting regionRouting;
+
+    @Override
+    public void streamAll(Pageable pageable, OutputStream out) throws IOException {
+        stream(Query.of(q -> q.matchAll(m -> m)), null, pageable, out);
+    }
+
+    // Same city filter and routing as RestrurantServiceImpl.searchRestrurants
+    @Override
+    public void streamSearch(String query, Double latitude, Double longitude, String city, String country,
+                             Pageable pageable, OutputStream out) throws IOException {
+        Query ranked = searchRankingService.rankedQuery(query, latitude, longitude);
+        if (!StringUtils.hasText(city)) {
+            stream(ranked, null, pageable, out);
+            return;
+        }
+        stream(RegionRouting.inCity(ranked, city, country), regionRouting.searchRoutingOfCity(country, city), pageable, out);
+    }
+
+    private void stream(Query query, String routing, Pageable pageable, OutputStream out) throws IOException {
+        String index = elasticsearchOperations.getIndexCoordinatesFor(Restrurant.class).getIndexName();
+        Request request = new Request("POST", "/" + index + "/_search");
+        if (routing != null) {
+            request.addParameter("routing", routing);
+        }
+        request.setJsonEntity(searchBody(query, pageable));
+
+        // The low-level client buffers the response, so the guarded call ends before anything is written out
+        Response response = elasticsearchGuard.call(Operation.SEARCH, () -> {
+            try {
+                return rest5Client.performRequest(request);
+            } catch (ResponseException e) {
+                if (e.getResponse().getStatusCode() < 500) {
+                    throw new BaseExpection("Elasticsearch rejected the search: " + e.getMessage());
+                }
+                throw new UncheckedIOException(e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        try (InputStream body = response.getEntity().getContent();
+             JsonParser parser = objectMapper.createParser(body);
+             JsonGenerator generator = objectMapper.createGenerator(out)) {
+            transcode(parser, generator, pageable);
+        }
+    }
+
+    private String searchBody(Query query, Pageable pageable) {
+        JsonpMapper mapper = elasticsearchClient._jsonpMapper();
+        StringWriter writer = new StringWriter();
+        try (jakarta.json.stream.JsonGenerator generator = mapper.jsonProvider().createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.write("from", pageable.getOffset());
+            generator.write("size", pageable.getPageSize());
+            generator.write("track_total_hits", true);
+            generator.writeKey("query");
+            query.serialize(generator, mapper);
+            if (pageable.getSort().isSorted()) {
+                generator.writeStartArray("sort");
+                for (Sort.Order order : pageable.getSort()) {
+                    generator.writeStartObject()
+                            .writeStartObject(order.getProperty())
+                            .write("order", order.isAscending() ? "asc" : "desc")
+                            .writeEnd()
+                            .writeEnd();
+                }
+                generator.writeEnd();
+            }
+            generator.writeEnd();
+        }
+        return writer.toString();
+    }
+
+    private void transcode(JsonParser parser, JsonGenerator generator, Pageable pageable) {
+        long totalElements = 0;
+        generator.writeStartObject();
+        generator.writeArrayPropertyStart("content");
+
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            if (!"hits".equals(name)) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+                String hitsField = parser.currentName();
+                parser.nextToken();
+                if ("total".equals(hitsField)) {
+                    totalElements = readTotal(parser);
+                } else if ("hits".equals(hitsField)) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        writeHit(parser, generator);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        generator.writeEndArray();
+        int pageSize = pageable.getPageSize();
+        generator.writeObjectPropertyStart("page");
+        generator.writeNumberProperty("size", pageSize);
+        generator.writeNumberProperty("number", pageable.getPageNumber());
+        generator.writeNumberProperty("totalElements", totalElements);
+        generator.writeNumberProperty("totalPages", pageSize == 0 ? 1 : (totalElements + pageSize - 1) / pageSize);
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    private long readTotal(JsonParser parser) {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            return parser.getValueAsLong();
+        }
+        long total = 0;
+        while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            if ("value".equals(name)) {
+                total = parser.getLongValue();
+            }
+        }
+        return total;
+    }
+
+    private void writeHit(JsonParser parser, JsonGenerator generator) {
+        generator.writeStartObject();
+        Double latitude = null;
+        Double longitude = null;
+        while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            if ("_id".equals(name)) {
+                generator.writeStringProperty("id", parser.getString());
+            } else if ("_source".equals(name)) {
+                while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    if ("geoLocation".equals(field)) {
+                        double[] latLon = readGeoPoint(parser);
+                        if (latLon != null) {
+                            latitude = latLon[0];
+                            longitude = latLon[1];
+                        }
+                    } else if (DTO_FIELDS.contains(field)) {
+                        generator.writeName(field);
+                        generator.copyCurrentStructure(parser);
+                    } else if ("duplicateOf".equals(field) && parser.currentToken() != JsonToken.VALUE_NULL) {
+                        // Same inclusion rules as the DTO: duplicateOf when set, highlights when not empty
+                        generator.writeName(field);
+                        generator.copyCurrentStructure(parser);
+                    } else if ("highlights".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                        copyNonEmptyArray(parser, generator, field);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (latitude != null) {
+            generator.writeNumberProperty("latitude", latitude);
+            generator.writeNumberProperty("longitude", longitude);
+        }
+        generator.writeEndObject();
+    }
+
+    private void copyNonEmptyArray(JsonParser parser, JsonGenerator generator, String field) {
+        if (parser.nextToken() == JsonToken.END_ARRAY) {
+            return;
+        }
+        generator.writeArrayPropertyStart(field);
+        do {
+            generator.copyCurrentStructure(parser);
+        } while (parser.nextToken() != JsonToken.END_ARRAY);
+        generator.writeEndArray();
+    }
+
+    // geo_point may be stored as {"lat":..,"lon":..}, [lon, lat] or "lat,lon"
+    private double[] readGeoPoint(JsonParser parser) {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            double lat = 0;
+            double lon = 0;
+            while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                if ("lat".equals(name)) {
+                    lat = parser.getDoubleValue();
+                } else if ("lon".equals(name)) {
+                    lon = parser.getDoubleValue();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return new double[]{lat, lon};
+        }
+        if (token == JsonToken.START_ARRAY) {
+            parser.nextToken();
+            double lon = parser.getDoubleValue();
+            parser.nextToken();
+            double lat = parser.getDoubleValue();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                // skip an optional elevation
+            }
+            return new double[]{lat, lon};
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            String[] parts = parser.getString().split(",");
+            if (parts.length == 2) {
+                return new double[]{Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim())};
+            }
+        }
+        return null;
+    }
+
+    private void expect(JsonToken actual, JsonToken expected) {
+        if (actual != expected) {
+            throw new IllegalStateException("Unexpected Elasticsearch response, expected " + expected + " but got " + actual);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.shazan.restrudent.services.impl;
+
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.SignificantStringTermsBucket;
+import com.shazan.restrudent.domain.entity.Restrurant;
+import com.shazan.restrudent.domain.entity.Review;
+import com.shazan.restrudent.domain.event.RestrurantChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregation;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.MultiGetItem;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.data.elasticsearch.core.query.Query.IdWithRouting;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * "People mention: brunch, patio, slow service" terms per restaurant: a significant_text
+ * aggregation over the restaurant's reviews against all reviews, stored on the restaurant document
+ * so detail responses carry them without extra work. Restaurants are recomputed in batches (one
+ * multi-search and one bulk update per batch) once enough new reviews have arrived, or after a
+ * maximum delay for quieter ones.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReviewHighlightsJob {
+    private static final String SAMPLE_AGGREGATION = "sample";
+    private static final String KEYWORDS_AGGREGATION = "keywords";
+
+    private record Pending(int newReviews, long firstReviewAt) {
+    }
+
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    @Value("${app.reviews.highlights.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.reviews.highlights.size:5}")
+    private int size;
+
+    @Value("${app.reviews.highlights.min-new-reviews:5}")
+    private int minNewReviews;
+
+    @Value("${app.reviews.highlights.max-delay-ms:3600000}")
+    private long maxDelayMs;
+
+    @Value("${app.reviews.highlights.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.reviews.highlights.sample-size:200}")
+    private int sampleSize;
+
+    @Value("${app.reviews.highlights.min-doc-count:3}")
+    private long minDocCount;
+
+    private final ConcurrentHashMap<String, Pending> pending = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void onRestrurantChanged(RestrurantChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.type() == RestrurantChangedEvent.ChangeType.RATING_CHANGED) {
+            long now = System.currentTimeMillis();
+            pending.merge(event.restrurantId(), new Pending(1, now),
+                    (current, added) -> new Pending(current.newReviews() + 1, current.firstReviewAt()));
+        } else if (event.type() == RestrurantChangedEvent.ChangeType.DELETED) {
+            pending.remove(event.restrurantId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.reviews.highlights.interval-ms:60000}")
+    public void refreshDue() {
+        if (!enabled || pending.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<String> due = pending.entrySet().stream()
+                .filter(entry -> entry.getValue().newReviews() >= minNewReviews
+                        || now - entry.getValue().firstReviewAt() >= maxDelayMs)
+                .sorted(Map.Entry.<String, Pending>comparingByValue(
+                        Comparator.comparingInt(Pending::newReviews).reversed()))
+                .map(Map.Entry::getKey)
+                .toList();
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<String> batch = due.subList(from, Math.min(due.size(), from + batchSize));
+            Map<String, Pending> taken = new LinkedHashMap<>();
+            batch.forEach(id -> {
+                Pending removed = pending.remove(id);
+                if (removed != null) {
+                    taken.put(id, removed);
+                }
+            });
+            try {
+                refresh(List.copyOf(taken.keySet()));
+            } catch (RuntimeException e) {
+                log.warn("Could not refresh review highlights for {} restaurants, will retry: {}", taken.size(), e.getMessage());
+                taken.forEach((id, counts) -> pending.merge(id, counts, (newer, older) ->
+                        new Pending(newer.newReviews() + older.newReviews(), older.firstReviewAt())));
+                return;
+            }
+        }
+    }
+
+    private void refresh(List<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<IdWithRouting> routedIds = ids.stream()
+                .map(id -> new IdWithRouting(id, RegionRouting.routingOf(id)))
+                .toList();
+        List<Restrurant> restrurants = elasticsearchOperations
+                .multiGet(NativeQuery.builder().withIdsWithRouting(routedIds).build(), Restrurant.class)
+                .stream()
+                .filter(MultiGetItem::hasItem)
+                .map(MultiGetItem::getItem)
+                .toList();
+        if (restrurants.isEmpty()) {
+            return;
+        }
+
+        List<Query> searches = restrurants.stream()
+                .map(restrurant -> (Query) ReviewServiceImpl.reviewsOf(restrurant)
+                        .withAggregation(SAMPLE_AGGREGATION, highlightsAggregation())
+                        .withMaxResults(0)
+                        .build())
+                .toList();
+        List<SearchHits<Review>> results = elasticsearchOperations.multiSearch(searches, Review.class);
+
+        List<UpdateQuery> updates = new ArrayList<>(restrurants.size());
+        for (int i = 0; i < restrurants.size(); i++) {
+            Restrurant restrurant = restrurants.get(i);
+            Document highlights = Document.create();
+            highlights.put("highlights", terms(results.get(i)));
+            updates.add(UpdateQuery.builder(restrurant.getId())
+                    .withDocument(highlights)
+                    .withRouting(RegionRouting.routingOf(restrurant.getId()))
+                    .withRetryOnConflict(3)
+                    .build());
+        }
+        elasticsearchOperations.bulkUpdate(updates, Restrurant.class);
+        log.debug("Review highlights refreshed for {} restaurants", updates.size());
+    }
+
+    // The sampler caps the analysis at sample-size reviews per shard, which bounds its cost
+    private Aggregation highlightsAggregation() {
+        return Aggregation.of(a -> a
+                .sampler(s -> s.shardSize(sampleSize))
+                .aggregations(KEYWORDS_AGGREGATION, k -> k.significantText(t -> t
+                        .field("content")
+                        .size(size)
+                        .minDocCount(minDocCount)
+                        .filterDuplicateText(true))));
+    }
+
+    private List<String> terms(SearchHits<Review> hits) {
+        if (!(hits.getAggregations() instanceof ElasticsearchAggregations aggregations)) {
+            return List.of();
+        }
+        ElasticsearchAggregation sample = aggregations.get(SAMPLE_AGGREGATION);
+        if (sample == null) {
+            return List.of();
+        }
+        Aggregate keywords = sample.aggregation().getAggregate().sampler().aggregations().get(KEYWORDS_AGGREGATION);
+        if (keywords == null || !keywords.isSigsterms()) {
+            return List.of();
+        }
+        return keywords.sigsterms().buckets().array().stream()
+                .map(SignificantStringTermsBucket::key)
+                .toList();
+    }
+}
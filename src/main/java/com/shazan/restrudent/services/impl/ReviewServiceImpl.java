@@ -0,0 +1,209 @@
+package com.shazan.restrudent.services.impl;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import com.shazan.restrudent.domain.dto.CreateReviewRequest;
+import com.shazan.restrudent.domain.dto.ReviewDto;
+import com.shazan.restrudent.domain.entity.Restrurant;
+import com.shazan.restrudent.domain.entity.Review;
+import com.shazan.restrudent.domain.event.RestrurantChangedEvent;
+import com.shazan.restrudent.expections.BaseExpection;
+import com.shazan.restrudent.mapers.ReviewMapper;
+import com.shazan.restrudent.services.ElasticsearchGuard;
+import com.shazan.restrudent.services.ElasticsearchGuard.Operation;
+import com.shazan.restrudent.services.ReviewService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.ScriptType;
+import org.springframework.data.elasticsearch.core.SearchHitSupport;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Reviews are stored in their own index, routed by restaurant. Adding one folds its rating into
+ * the restaurant's average and review count with a scripted update, removes the review again if
+ * that fails, and publishes a rating change, which also feeds the review highlights job.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReviewServiceImpl implements ReviewService {
+    private static final DateTimeFormatter UPDATED_AT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+    // updatedAt also lets a running reindex pick the change up in its catch-up pass
+    private static final String RATING_SCRIPT = """
+            int count = ctx._source.reviewCount == null ? 0 : ctx._source.reviewCount;
+            double average = ctx._source.averageRating == null ? 0 : ctx._source.averageRating;
+            ctx._source.averageRating = (average * count + params.rating) / (count + 1);
+            ctx._source.reviewCount = count + 1;
+            ctx._source.updatedAt = params.updatedAt;
+            """;
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ElasticsearchGuard elasticsearchGuard;
+    private final RegionRouting regionRouting;
+    private final CurrentUserResolver currentUserResolver;
+    private final ReviewMapper reviewMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.reviews.max-content-length:5000}")
+    private int maxContentLength;
+
+    @Value("${app.reviews.rating-retry-on-conflict:5}")
+    private int ratingRetryOnConflict;
+
+    @PostConstruct
+    public void init() {
+        try {
+            IndexOperations indexOps = elasticsearchOperations.indexOps(Review.class);
+            if (!indexOps.exists()) {
+                indexOps.createWithMapping();
+            }
+        } catch (RuntimeException e) {
+            log.error("Could not verify reviews index: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public Optional<ReviewDto> createReview(String restrurantId, CreateReviewRequest request) {
+        if (request.getRating() == null || request.getRating() < 1 || request.getRating() > 5) {
+            throw new BaseExpection("Rating must be between 1 and 5");
+        }
+        if (request.getContent() != null && request.getContent().length() > maxContentLength) {
+            throw new BaseExpection("Review content is limited to " + maxContentLength + " characters");
+        }
+        Optional<Restrurant> found = elasticsearchGuard.call(Operation.READ,
+                () -> regionRouting.find(elasticsearchOperations, restrurantId));
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Review review = Review.builder()
+                .id(UUID.randomUUID().toString())
+                .restrurantId(found.get().getId())
+                .content(StringUtils.hasText(request.getContent()) ? request.getContent().trim() : null)
+                .rating(request.getRating())
+                .writtenBy(currentUserResolver.currentUser())
+                .createdAt(LocalDateTime.now())
+                .build();
+        Review saved = elasticsearchGuard.call(Operation.WRITE, () -> elasticsearchOperations.save(review));
+        Restrurant rated;
+        try {
+            rated = applyRating(found.get().getId(), saved.getRating());
+        } catch (RuntimeException e) {
+            // A review that is not counted in the restaurant's rating must not stay visible
+            removeReview(saved);
+            throw e;
+        }
+        eventPublisher.publishEvent(RestrurantChangedEvent.ratingChanged(rated));
+        log.debug("Review {} added to restaurant {}", saved.getId(), rated.getId());
+        return Optional.of(reviewMapper.toDto(saved));
+    }
+
+    @Override
+    public Optional<Page<ReviewDto>> getReviews(String restrurantId, Pageable pageable) {
+        Optional<Restrurant> found = elasticsearchGuard.call(Operation.READ,
+                () -> regionRouting.find(elasticsearchOperations, restrurantId));
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        Pageable newestFirst = pageable.getSort().isSorted() ? pageable
+                : PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(Sort.Order.desc("createdAt")));
+        NativeQuery query = reviewsOf(found.get()).withPageable(newestFirst).build();
+        SearchHits<Review> hits = elasticsearchGuard.call(Operation.SEARCH,
+                () -> elasticsearchOperations.search(query, Review.class));
+        return Optional.of(SearchHitSupport.searchPageFor(hits, newestFirst)
+                .map(hit -> reviewMapper.toDto(hit.getContent())));
+    }
+
+    @EventListener
+    public void onRestrurantChanged(RestrurantChangedEvent event) {
+        if (event.type() != RestrurantChangedEvent.ChangeType.DELETED) {
+            return;
+        }
+        try {
+            elasticsearchClient.deleteByQuery(d -> d
+                    .index(elasticsearchOperations.getIndexCoordinatesFor(Review.class).getIndexName())
+                    .routing(reviewRouting(event.restrurantId(), event.legacyId()))
+                    .query(reviewFilter(event.restrurantId(), event.legacyId())));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not delete reviews of restaurant {}: {}", event.restrurantId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Query for a restaurant's reviews. Reviews written before its id was migrated to a region id
+     * are still stored (and routed) under the old id, so those restaurants are searched unrouted.
+     */
+    static NativeQueryBuilder reviewsOf(Restrurant restrurant) {
+        NativeQueryBuilder builder = NativeQuery.builder()
+                .withQuery(reviewFilter(restrurant.getId(), restrurant.getLegacyId()));
+        String routing = reviewRouting(restrurant.getId(), restrurant.getLegacyId());
+        return routing == null ? builder : builder.withRoute(routing);
+    }
+
+    static Query reviewFilter(String restrurantId, String legacyId) {
+        if (legacyId == null) {
+            return Query.of(q -> q.bool(b -> b.filter(f -> f.term(t -> t.field("restrurantId").value(restrurantId)))));
+        }
+        List<FieldValue> ids = List.of(FieldValue.of(restrurantId), FieldValue.of(legacyId));
+        return Query.of(q -> q.bool(b -> b.filter(f -> f.terms(t -> t.field("restrurantId").terms(v -> v.value(ids))))));
+    }
+
+    static String reviewRouting(String restrurantId, String legacyId) {
+        return legacyId == null ? restrurantId : null;
+    }
+
+    // Folded in by Elasticsearch itself, so concurrent reviews cannot overwrite each other's counts
+    private Restrurant applyRating(String restrurantId, int rating) {
+        UpdateQuery update = UpdateQuery.builder(restrurantId)
+                .withScript(RATING_SCRIPT)
+                .withScriptType(ScriptType.INLINE)
+                .withLang("painless")
+                .withParams(Map.of("rating", rating,
+                        "updatedAt", LocalDateTime.now().format(UPDATED_AT_FORMAT)))
+                .withRouting(RegionRouting.routingOf(restrurantId))
+                .withRetryOnConflict(ratingRetryOnConflict)
+                .build();
+        elasticsearchGuard.call(Operation.WRITE, () -> elasticsearchOperations.update(update,
+                elasticsearchOperations.getIndexCoordinatesFor(Restrurant.class)));
+        Restrurant rated = elasticsearchGuard.call(Operation.READ,
+                () -> regionRouting.routed(elasticsearchOperations, restrurantId).get(restrurantId, Restrurant.class));
+        if (rated == null) {
+            throw new BaseExpection("Restaurant " + restrurantId + " disappeared while rating it");
+        }
+        return rated;
+    }
+
+    private void removeReview(Review review) {
+        try {
+            elasticsearchGuard.call(Operation.WRITE, () -> elasticsearchOperations.delete(review));
+        } catch (RuntimeException e) {
+            log.error("Review {} was stored but not counted in restaurant {} and could not be removed",
+                    review.getId(), review.getRestrurantId(), e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.shazan.restrudent.services.impl;
+
+import co.elastic.clients.elasticsearch._types.GeoLocation;
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch._types.query_dsl.FieldValueFactorModifier;
+import co.elastic.clients.elasticsearch._types.query_dsl.FunctionBoostMode;
+import co.elastic.clients.elasticsearch._types.query_dsl.FunctionScore;
+import co.elastic.clients.elasticsearch._types.query_dsl.FunctionScoreMode;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import com.shazan.restrudent.domain.dto.RankingProfileDto;
+import com.shazan.restrudent.expections.BaseExpection;
+import com.shazan.restrudent.services.SearchRankingService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Service
+@Slf4j
+public class SearchRankingServiceImpl implements SearchRankingService {
+
+    @Value("${app.search.ranking.name-boost:3.0}")
+    private double nameBoost;
+
+    @Value("${app.search.ranking.cuisine-boost:2.0}")
+    private double cuisineBoost;
+
+    @Value("${app.search.ranking.rating-weight:1.5}")
+    private double ratingWeight;
+
+    @Value("${app.search.ranking.review-count-weight:1.0}")
+    private double reviewCountWeight;
+
+    @Value("${app.search.ranking.freshness-weight:0.5}")
+    private double freshnessWeight;
+
+    @Value("${app.search.ranking.freshness-scale:90d}")
+    private String freshnessScale;
+
+    @Value("${app.search.ranking.distance-weight:2.0}")
+    private double distanceWeight;
+
+    @Value("${app.search.ranking.distance-scale:5km}")
+    private String distanceScale;
+
+    @Value("${app.search.ranking.decay:0.5}")
+    private double decay;
+
+    private final AtomicReference<RankingProfileDto> profile = new AtomicReference<>();
+
+    @PostConstruct
+    public void init() {
+        profile.set(RankingProfileDto.builder()
+                .nameBoost(nameBoost)
+                .cuisineBoost(cuisineBoost)
+                .ratingWeight(ratingWeight)
+                .reviewCountWeight(reviewCountWeight)
+                .freshnessWeight(freshnessWeight)
+                .freshnessScale(freshnessScale)
+                .distanceWeight(distanceWeight)
+                .distanceScale(distanceScale)
+                .decay(decay)
+                .build());
+    }
+
+    @Override
+    public RankingProfileDto getProfile() {
+        return profile.get();
+    }
+
+    @Override
+    public RankingProfileDto updateProfile(RankingProfileDto changes) {
+        requireWeight("nameBoost", changes.getNameBoost());
+        requireWeight("cuisineBoost", changes.getCuisineBoost());
+        requireWeight("ratingWeight", changes.getRatingWeight());
+        requireWeight("reviewCountWeight", changes.getReviewCountWeight());
+        requireWeight("freshnessWeight", changes.getFreshnessWeight());
+        requireWeight("distanceWeight", changes.getDistanceWeight());
+        requireScale("freshnessScale", changes.getFreshnessScale());
+        requireScale("distanceScale", changes.getDistanceScale());
+        // Elasticsearch decay functions only accept a decay strictly between 0 and 1
+        if (changes.getDecay() != null && !(changes.getDecay() > 0 && changes.getDecay() < 1)) {
+            throw new BaseExpection("decay must be between 0 and 1, exclusive");
+        }
+
+        RankingProfileDto updated = profile.updateAndGet(current -> RankingProfileDto.builder()
+                .nameBoost(changes.getNameBoost() != null ? changes.getNameBoost() : current.getNameBoost())
+                .cuisineBoost(changes.getCuisineBoost() != null ? changes.getCuisineBoost() : current.getCuisineBoost())
+                .ratingWeight(changes.getRatingWeight() != null ? changes.getRatingWeight() : current.getRatingWeight())
+                .reviewCountWeight(changes.getReviewCountWeight() != null ? changes.getReviewCountWeight() : current.getReviewCountWeight())
+                .freshnessWeight(changes.getFreshnessWeight() != null ? changes.getFreshnessWeight() : current.getFreshnessWeight())
+                .freshnessScale(changes.getFreshnessScale() != null ? changes.getFreshnessScale() : current.getFreshnessScale())
+                .distanceWeight(changes.getDistanceWeight() != null ? changes.getDistanceWeight() : current.getDistanceWeight())
+                .distanceScale(changes.getDistanceScale() != null ? changes.getDistanceScale() : current.getDistanceScale())
+                .decay(changes.getDecay() != null ? changes.getDecay() : current.getDecay())
+                .build());
+        log.info("Search ranking profile updated: {}", updated);
+        return updated;
+    }
+
+    private static void requireWeight(String name, Double value) {
+        if (value != null && !(Double.isFinite(value) && value >= 0)) {
+            throw new BaseExpection(name + " must be a finite number, zero or above");
+        }
+    }
+
+    private static void requireScale(String name, String value) {
+        if (value != null && !StringUtils.hasText(value)) {
+            throw new BaseExpection(name + " must not be blank");
+        }
+    }
+
+    @Override
+    public Query rankedQuery(String text, Double latitude, Double longitude) {
+        RankingProfileDto current = profile.get();
+
+        Query base = StringUtils.hasText(text)
+                ? Query.of(q -> q.multiMatch(m -> m
+                        .query(text)
+                        .fields("name^" + current.getNameBoost(), "cuisineType^" + current.getCuisineBoost())))
+                : Query.of(q -> q.matchAll(m -> m));
+
+        List<FunctionScore> functions = new ArrayList<>();
+        if (current.getRatingWeight() > 0) {
+            functions.add(FunctionScore.of(f -> f
+                    .fieldValueFactor(v -> v.field("averageRating").modifier(FieldValueFactorModifier.Log1p).missing(0.0))
+                    .weight(current.getRatingWeight())));
+        }
+        if (current.getReviewCountWeight() > 0) {
+            functions.add(FunctionScore.of(f -> f
+                    .fieldValueFactor(v -> v.field("reviewCount").modifier(FieldValueFactorModifier.Log1p).missing(0.0))
+                    .weight(current.getReviewCountWeight())));
+        }
+        if (current.getFreshnessWeight() > 0) {
+            functions.add(FunctionScore.of(f -> f
+                    .gauss(g -> g.date(d -> d
+                            .field("updatedAt")
+                            .placement(p -> p
+                                    .origin("now")
+                                    .scale(Time.of(t -> t.time(current.getFreshnessScale())))
+                                    .decay(current.getDecay()))))
+                    .weight(current.getFreshnessWeight())));
+        }
+        if (latitude != null && longitude != null && current.getDistanceWeight() > 0) {
+            GeoLocation origin = GeoLocation.of(l -> l.latlon(ll -> ll.lat(latitude).lon(longitude)));
+            functions.add(FunctionScore.of(f -> f
+                    .gauss(g -> g.geo(d -> d
+                            .field("geoLocation")
+                            .placement(p -> p
+                                    .origin(origin)
+                                    .scale(current.getDistanceScale())
+                                    .decay(current.getDecay()))))
+                    .weight(current.getDistanceWeight())));
+        }
+
+        if (functions.isEmpty()) {
+            return base;
+        }
+
+        // Functions are summed so a missing signal (no location, no reviews) never zeroes the score
+        return Query.of(q -> q.functionScore(fs -> fs
+                .query(base)
+                .functions(functions)
+                .scoreMode(FunctionScoreMode.Sum)
+                .boostMode(FunctionBoostMode.Multiply)));
+    }
+}
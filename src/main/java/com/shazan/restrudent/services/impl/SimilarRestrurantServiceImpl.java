@@ -0,0 +1,449 @@
+package com.shazan.restrudent.services.impl;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.GeoLocation;
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch._types.query_dsl.FunctionBoostMode;
+import co.elastic.clients.elasticsearch._types.query_dsl.FunctionScore;
+import co.elastic.clients.elasticsearch._types.query_dsl.FunctionScoreMode;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.ScrollResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonData;
+import com.shazan.restrudent.domain.dto.RestrurantSummaryDto;
+import com.shazan.restrudent.domain.dto.SimilarityRebuildStatusDto;
+import com.shazan.restrudent.domain.entity.Restrurant;
+import com.shazan.restrudent.domain.entity.SimilarRestrurant;
+import com.shazan.restrudent.domain.entity.SimilarRestrurants;
+import com.shazan.restrudent.domain.event.RestrurantChangedEvent;
+import com.shazan.restrudent.mapers.SimilarRestrurantMapper;
+import com.shazan.restrudent.services.ElasticsearchGuard;
+import com.shazan.restrudent.services.ElasticsearchGuard.Operation;
+import com.shazan.restrudent.services.SimilarRestrurantService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.MultiGetItem;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
+import org.springframework.data.elasticsearch.core.query.Query.IdWithRouting;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps a "you might also like" list per restaurant in a side index. A full rebuild walks the
+ * restaurant index in parallel slices and scores neighbours with one multi-search per page;
+ * changes only recompute the changed restaurant and the lists that mention it. Lists over the
+ * per-pass limit wait for the next pass, and deleted restaurants are left out of reads until every
+ * list that mentioned them has been recomputed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SimilarRestrurantServiceImpl implements SimilarRestrurantService {
+    private static final String SCROLL_KEEP_ALIVE = "2m";
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ElasticsearchGuard elasticsearchGuard;
+    private final SimilarRestrurantMapper similarRestrurantMapper;
+    private final RegionRouting regionRouting;
+
+    @Value("${app.similar.size:10}")
+    private int size;
+
+    @Value("${app.similar.rating-band:0.5}")
+    private double ratingBand;
+
+    @Value("${app.similar.distance-scale:10km}")
+    private String distanceScale;
+
+    @Value("${app.similar.distance-weight:2.0}")
+    private double distanceWeight;
+
+    @Value("${app.similar.slices:4}")
+    private int slices;
+
+    @Value("${app.similar.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.similar.max-incremental-refresh:50}")
+    private int maxIncrementalRefresh;
+
+    private record Anchor(String id, String cuisineType, Float averageRating, Double latitude, Double longitude) {
+    }
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final Set<String> pendingDeletes = ConcurrentHashMap.newKeySet();
+    // Lists to recompute as they are, without looking for further affected lists
+    private final Set<String> pendingRefresh = ConcurrentHashMap.newKeySet();
+    // Deleted restaurants that some list may still mention, and those of them whose lists are being recomputed
+    private final Set<String> deletedNeighbours = ConcurrentHashMap.newKeySet();
+    private final Set<String> purgingNeighbours = ConcurrentHashMap.newKeySet();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicReference<SimilarityRebuildStatusDto> status = new AtomicReference<>(
+            SimilarityRebuildStatusDto.builder().state(SimilarityRebuildStatusDto.State.IDLE).build());
+
+    @PostConstruct
+    public void init() {
+        try {
+            IndexOperations indexOps = elasticsearchOperations.indexOps(SimilarRestrurants.class);
+            if (!indexOps.exists()) {
+                indexOps.createWithMapping();
+            }
+        } catch (RuntimeException e) {
+            log.error("Could not verify similar restaurants index: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public List<RestrurantSummaryDto> getSimilar(String restrurantId) {
+        SimilarRestrurants similar = elasticsearchGuard.call(Operation.READ,
+                () -> elasticsearchOperations.get(restrurantId, SimilarRestrurants.class));
+        if (similar == null) {
+            // Not computed yet; picked up by the next incremental pass if the restaurant exists
+            if (!pending.contains(restrurantId) && elasticsearchGuard.call(Operation.READ,
+                    () -> regionRouting.routed(elasticsearchOperations, restrurantId).exists(restrurantId, Restrurant.class))) {
+                pending.add(restrurantId);
+            }
+            return List.of();
+        }
+        return similar.getNeighbours().stream()
+                .filter(neighbour -> !deletedNeighbours.contains(neighbour.getId()))
+                .map(similarRestrurantMapper::toDto)
+                .toList();
+    }
+
+    @Override
+    public SimilarityRebuildStatusDto startRebuild() {
+        SimilarityRebuildStatusDto current = status.get();
+        if (current.getState() == SimilarityRebuildStatusDto.State.RUNNING) {
+            return current;
+        }
+        SimilarityRebuildStatusDto running = SimilarityRebuildStatusDto.builder()
+                .state(SimilarityRebuildStatusDto.State.RUNNING)
+                .startedAt(LocalDateTime.now())
+                .build();
+        if (!status.compareAndSet(current, running)) {
+            return status.get();
+        }
+        processed.set(0);
+        failures.set(0);
+        executor.submit(() -> runRebuild(running));
+        return getRebuildStatus();
+    }
+
+    @Override
+    public SimilarityRebuildStatusDto getRebuildStatus() {
+        SimilarityRebuildStatusDto current = status.get();
+        boolean running = current.getState() == SimilarityRebuildStatusDto.State.RUNNING;
+        return current.toBuilder()
+                .restaurantsProcessed(running ? processed.get() : current.getRestaurantsProcessed())
+                .failures(running ? failures.get() : current.getFailures())
+                .build();
+    }
+
+    @Scheduled(cron = "${app.similar.rebuild-cron:-}")
+    public void scheduledRebuild() {
+        startRebuild();
+    }
+
+    @EventListener
+    public void onRestrurantChanged(RestrurantChangedEvent event) {
+        if (event.type() == RestrurantChangedEvent.ChangeType.DELETED) {
+            deletedNeighbours.add(event.restrurantId());
+            pendingDeletes.add(event.restrurantId());
+        } else {
+            pending.add(event.restrurantId());
+        }
+    }
+
+    // Batched and delayed past the index refresh interval so new documents are searchable as neighbours
+    @Scheduled(fixedDelayString = "${app.similar.refresh-delay-ms:5000}")
+    public void refreshChanged() {
+        if (pending.isEmpty() && pendingDeletes.isEmpty() && pendingRefresh.isEmpty()) {
+            return;
+        }
+        Set<String> deleted = drain(pendingDeletes);
+        Set<String> changed = drain(pending);
+        Set<String> queued = drain(pendingRefresh);
+        changed.removeAll(deleted);
+        try {
+            Set<String> affected = new LinkedHashSet<>(queued);
+            for (String id : deleted) {
+                elasticsearchOperations.delete(id, SimilarRestrurants.class);
+                affected.addAll(listsMentioning(id));
+            }
+            List<SimilarRestrurants> computed = computeAll(anchorsFor(changed));
+            // Neighbours of a changed restaurant may now list it, and lists already listing it hold a stale summary
+            for (SimilarRestrurants similar : computed) {
+                affected.addAll(similar.getNeighbourIds());
+                affected.addAll(listsMentioning(similar.getId()));
+            }
+            affected.removeAll(changed);
+            affected.removeAll(deleted);
+            List<String> toRefresh = affected.stream().limit(maxIncrementalRefresh).toList();
+            computeAll(anchorsFor(toRefresh));
+            // The rest waits for the next pass instead of keeping stale (or deleted) neighbours indefinitely
+            List<String> deferred = affected.stream().skip(maxIncrementalRefresh).toList();
+            pendingRefresh.addAll(deferred);
+            purgingNeighbours.addAll(deleted);
+            if (pendingRefresh.isEmpty()) {
+                deletedNeighbours.removeAll(purgingNeighbours);
+                purgingNeighbours.clear();
+            }
+            log.debug("Similar lists refreshed for {} changed, {} deleted, {} affected restaurants, {} deferred",
+                    changed.size(), deleted.size(), toRefresh.size(), deferred.size());
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh similar restaurant lists, will retry: {}", e.getMessage());
+            pending.addAll(changed);
+            pendingDeletes.addAll(deleted);
+            pendingRefresh.addAll(queued);
+        }
+    }
+
+    private void runRebuild(SimilarityRebuildStatusDto running) {
+        String index = elasticsearchOperations.getIndexCoordinatesFor(Restrurant.class).getIndexName();
+        log.info("Similar restaurants rebuild started ({} slices)", slices);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int slice = 0; slice < slices; slice++) {
+                int sliceId = slice;
+                workers.add(executor.submit(() -> {
+                    rebuildSlice(index, sliceId);
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            status.set(running.toBuilder()
+                    .state(SimilarityRebuildStatusDto.State.COMPLETED)
+                    .restaurantsProcessed(processed.get())
+                    .failures(failures.get())
+                    .finishedAt(LocalDateTime.now())
+                    .build());
+            log.info("Similar restaurants rebuild completed for {} restaurants", processed.get());
+        } catch (Exception e) {
+            log.error("Similar restaurants rebuild failed", e);
+            status.set(running.toBuilder()
+                    .state(SimilarityRebuildStatusDto.State.FAILED)
+                    .restaurantsProcessed(processed.get())
+                    .failures(failures.get())
+                    .finishedAt(LocalDateTime.now())
+                    .message(e.getMessage())
+                    .build());
+        }
+    }
+
+    private void rebuildSlice(String index, int sliceId) throws IOException {
+        SearchResponse<JsonData> response = elasticsearchClient.search(s -> {
+            s.index(index)
+                    .size(batchSize)
+                    .source(src -> src.filter(f -> f.includes("cuisineType", "averageRating", "geoLocation")))
+                    .scroll(Time.of(t -> t.time(SCROLL_KEEP_ALIVE)));
+            if (slices > 1) {
+                s.slice(sl -> sl.id(String.valueOf(sliceId)).max(slices));
+            }
+            return s;
+        }, JsonData.class);
+
+        String scrollId = response.scrollId();
+        List<Hit<JsonData>> hits = response.hits().hits();
+        try {
+            while (!hits.isEmpty()) {
+                try {
+                    computeAll(hits.stream().map(this::anchorOf).toList());
+                } catch (RuntimeException e) {
+                    failures.addAndGet(hits.size());
+                    log.warn("Similar restaurants batch failed: {}", e.getMessage());
+                }
+                String currentScrollId = scrollId;
+                ScrollResponse<JsonData> next = elasticsearchClient.scroll(s -> s
+                        .scrollId(currentScrollId)
+                        .scroll(Time.of(t -> t.time(SCROLL_KEEP_ALIVE))), JsonData.class);
+                scrollId = next.scrollId();
+                hits = next.hits().hits();
+            }
+        } finally {
+            if (scrollId != null) {
+                String finalScrollId = scrollId;
+                elasticsearchClient.clearScroll(c -> c.scrollId(finalScrollId));
+            }
+        }
+    }
+
+    private List<SimilarRestrurants> computeAll(List<Anchor> anchors) {
+        if (anchors.isEmpty()) {
+            return List.of();
+        }
+        List<NativeQuery> queries = anchors.stream().map(this::neighbourQuery).toList();
+        List<SearchHits<Restrurant>> results = elasticsearchOperations.multiSearch(queries, Restrurant.class);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<SimilarRestrurants> lists = new ArrayList<>(anchors.size());
+        for (int i = 0; i < anchors.size(); i++) {
+            List<SimilarRestrurant> neighbours = new ArrayList<>();
+            for (SearchHit<Restrurant> hit : results.get(i).getSearchHits()) {
+                Restrurant neighbour = hit.getContent();
+                neighbours.add(SimilarRestrurant.builder()
+                        .id(neighbour.getId())
+                        .name(neighbour.getName())
+                        .cuisineType(neighbour.getCuisineType())
+                        .averageRating(neighbour.getAverageRating())
+                        .score((double) hit.getScore())
+                        .build());
+            }
+            lists.add(SimilarRestrurants.builder()
+                    .id(anchors.get(i).id())
+                    .neighbourIds(neighbours.stream().map(SimilarRestrurant::getId).toList())
+                    .neighbours(neighbours)
+                    .computedAt(now)
+                    .build());
+        }
+        elasticsearchOperations.save(lists);
+        processed.addAndGet(lists.size());
+        return lists;
+    }
+
+    private NativeQuery neighbourQuery(Anchor anchor) {
+        String index = elasticsearchOperations.getIndexCoordinatesFor(Restrurant.class).getIndexName();
+        List<Query> signals = new ArrayList<>();
+        signals.add(Query.of(q -> q.moreLikeThis(m -> m
+                .fields("name", "cuisineType")
+                .like(l -> l.document(d -> d.index(index).id(anchor.id()).routing(RegionRouting.routingOf(anchor.id()))))
+                .minTermFreq(1)
+                .minDocFreq(1)
+                .maxQueryTerms(25))));
+        if (anchor.cuisineType() != null) {
+            signals.add(Query.of(q -> q.match(m -> m.field("cuisineType").query(anchor.cuisineType()).boost(2.0f))));
+        }
+        if (anchor.averageRating() != null) {
+            double rating = anchor.averageRating();
+            signals.add(Query.of(q -> q.range(r -> r.number(n -> n
+                    .field("averageRating")
+                    .gte(rating - ratingBand)
+                    .lte(rating + ratingBand)
+                    .boost(1.0f)))));
+        }
+        Query candidates = Query.of(q -> q.bool(b -> b
+                .should(signals)
+                .minimumShouldMatch("1")
+                .mustNot(n -> n.ids(i -> i.values(anchor.id())))));
+
+        Query scored = candidates;
+        if (anchor.latitude() != null && anchor.longitude() != null && distanceWeight > 0) {
+            GeoLocation origin = GeoLocation.of(l -> l.latlon(ll -> ll.lat(anchor.latitude()).lon(anchor.longitude())));
+            // Constant 1 plus the distance decay, so far-away matches are demoted rather than zeroed
+            scored = Query.of(q -> q.functionScore(fs -> fs
+                    .query(candidates)
+                    .functions(FunctionScore.of(f -> f.weight(1.0)),
+                            FunctionScore.of(f -> f
+                                    .gauss(g -> g.geo(d -> d
+                                            .field("geoLocation")
+                                            .placement(p -> p.origin(origin).scale(distanceScale).decay(0.5))))
+                                    .weight(distanceWeight)))
+                    .scoreMode(FunctionScoreMode.Sum)
+                    .boostMode(FunctionBoostMode.Multiply)));
+        }
+        return NativeQuery.builder()
+                .withQuery(scored)
+                .withMaxResults(size)
+                .withSourceFilter(new FetchSourceFilterBuilder()
+                        .withIncludes("name", "cuisineType", "averageRating")
+                        .build())
+                .build();
+    }
+
+    // All of them; what does not fit in this pass is deferred by the caller
+    private List<String> listsMentioning(String restrurantId) {
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(q -> q.term(t -> t.field("neighbourIds").value(restrurantId)))
+                .withPageable(PageRequest.of(0, batchSize))
+                .withSourceFilter(new FetchSourceFilterBuilder().withIncludes("id").build())
+                .build();
+        List<String> ids = new ArrayList<>();
+        try (SearchHitsIterator<SimilarRestrurants> hits = elasticsearchOperations.searchForStream(query, SimilarRestrurants.class)) {
+            while (hits.hasNext()) {
+                ids.add(hits.next().getId());
+            }
+        }
+        return ids;
+    }
+
+    private List<Anchor> anchorsFor(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<IdWithRouting> routedIds = ids.stream()
+                .map(id -> new IdWithRouting(id, RegionRouting.routingOf(id)))
+                .toList();
+        return elasticsearchOperations.multiGet(NativeQuery.builder().withIdsWithRouting(routedIds).build(), Restrurant.class)
+                .stream()
+                .filter(MultiGetItem::hasItem)
+                .map(item -> anchorOf(item.getItem()))
+                .toList();
+    }
+
+    private Anchor anchorOf(Restrurant restrurant) {
+        return new Anchor(restrurant.getId(), restrurant.getCuisineType(), restrurant.getAverageRating(),
+                restrurant.getGeoLocation() != null ? restrurant.getGeoLocation().getLat() : null,
+                restrurant.getGeoLocation() != null ? restrurant.getGeoLocation().getLon() : null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Anchor anchorOf(Hit<JsonData> hit) {
+        Map<String, Object> source = hit.source() != null ? hit.source().to(Map.class) : Map.of();
+        Double latitude = null;
+        Double longitude = null;
+        if (source.get("geoLocation") instanceof Map<?, ?> geo
+                && geo.get("lat") instanceof Number lat && geo.get("lon") instanceof Number lon) {
+            latitude = lat.doubleValue();
+            longitude = lon.doubleValue();
+        }
+        Float rating = source.get("averageRating") instanceof Number number ? number.floatValue() : null;
+        return new Anchor(hit.id(), (String) source.get("cuisineType"), rating, latitude, longitude);
+    }
+
+    private Set<String> drain(Set<String> source) {
+        Set<String> drained = new LinkedHashSet<>();
+        for (String id : source) {
+            if (source.remove(id)) {
+                drained.add(id);
+            }
+        }
+        return drained;
+    }
+}
@@ -0,0 +1,90 @@
+package com.shazan.restrudent.services.impl;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * One storage volume. Files are placed across roots by weighted rendezvous hashing of the file id:
+ * stable without any lookup table, and adding a root only moves the files that now belong to it.
+ * Inside a root, two directory levels derived from the same hash keep directories small.
+ */
+final class StorageRoot {
+    private final Path path;
+    private final double weight;
+    private final long seed;
+    private final Semaphore writePermits;
+
+    StorageRoot(Path path, double weight, int maxConcurrentWrites) {
+        this.path = path;
+        this.weight = weight;
+        this.seed = fnv1a(path.toString());
+        this.writePermits = new Semaphore(Math.max(1, maxConcurrentWrites));
+    }
+
+    Path path() {
+        return path;
+    }
+
+    double weight() {
+        return weight;
+    }
+
+    Semaphore writePermits() {
+        return writePermits;
+    }
+
+    /**
+     * Fan-out location of a file inside this root, e.g. {@code root/3f/a2/<id>}.
+     */
+    Path locate(String id) {
+        long hash = fnv1a(id);
+        return path.resolve(hex((int) (hash >>> 56))).resolve(hex((int) (hash >>> 48) & 0xff)).resolve(id);
+    }
+
+    /**
+     * Location used before roots were striped: directly under the root.
+     */
+    Path legacyLocation(String id) {
+        return path.resolve(id);
+    }
+
+    static StorageRoot place(String id, List<StorageRoot> roots) {
+        if (roots.size() == 1) {
+            return roots.getFirst();
+        }
+        long idHash = fnv1a(id);
+        StorageRoot best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (StorageRoot root : roots) {
+            // Uniform in (0, 1); -weight / ln(u) makes each root win in proportion to its weight
+            double uniform = ((mix(idHash ^ root.seed) >>> 11) + 0.5) / (1L << 53);
+            double score = -root.weight / Math.log(uniform);
+            if (score > bestScore) {
+                bestScore = score;
+                best = root;
+            }
+        }
+        return best;
+    }
+
+    private static String hex(int value) {
+        return Character.toString(Character.forDigit(value >>> 4, 16)) + Character.forDigit(value & 0xf, 16);
+    }
+
+    private static long fnv1a(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // SplitMix64 finalizer, spreads the combined id and root hashes over all 64 bits
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,99 @@
+package com.shazan.restrudent.services.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Bounded best-first set of leaderboard entries with in-place updates by id. Keeps some slack over
+ * the served size so a few demotions or deletions can be absorbed; once it has evicted entries and
+ * shrinks below the served size it reports that it needs to be refilled from the index. After an
+ * eviction, an entry ranking below the last one retained is not taken: entries the board no longer
+ * holds may rank above it.
+ */
+final class TopKBoard {
+
+    record Entry(String id, String name, String cuisineType, String city, float averageRating, int reviewCount) {
+    }
+
+    /**
+     * @param retained whether the offered entry is on the board
+     * @param evicted ids dropped to stay within capacity
+     */
+    record Offer(boolean retained, List<String> evicted) {
+    }
+
+    static final Comparator<Entry> BEST_FIRST = Comparator
+            .comparingDouble((Entry entry) -> entry.averageRating()).reversed()
+            .thenComparing(Comparator.comparingInt(Entry::reviewCount).reversed())
+            .thenComparing(Entry::id);
+
+    private final int servedSize;
+    private final int capacity;
+    private final TreeSet<Entry> ranked = new TreeSet<>(BEST_FIRST);
+    private final Map<String, Entry> byId = new HashMap<>();
+    private boolean truncated;
+
+    TopKBoard(int servedSize, int capacity) {
+        this.servedSize = servedSize;
+        this.capacity = Math.max(servedSize, capacity);
+    }
+
+    synchronized Offer offer(Entry entry) {
+        Entry previous = byId.remove(entry.id());
+        if (previous != null) {
+            ranked.remove(previous);
+        }
+        // A demotion past the retained window is a removal as far as this board can tell
+        if (truncated && !ranked.isEmpty() && BEST_FIRST.compare(entry, ranked.last()) > 0) {
+            return new Offer(false, List.of());
+        }
+        byId.put(entry.id(), entry);
+        ranked.add(entry);
+        List<String> evicted = new ArrayList<>(1);
+        while (ranked.size() > capacity) {
+            Entry last = ranked.pollLast();
+            byId.remove(last.id());
+            evicted.add(last.id());
+            truncated = true;
+        }
+        return new Offer(!evicted.contains(entry.id()), evicted);
+    }
+
+    synchronized void remove(String id) {
+        Entry removed = byId.remove(id);
+        if (removed != null) {
+            ranked.remove(removed);
+        }
+    }
+
+    /**
+     * @return true when the board has lost entries it can no longer replace from memory
+     */
+    synchronized boolean needsRefill() {
+        return truncated && ranked.size() < servedSize;
+    }
+
+    synchronized void replaceAll(List<Entry> entries, boolean complete) {
+        ranked.clear();
+        byId.clear();
+        truncated = !complete;
+        entries.forEach(entry -> {
+            byId.put(entry.id(), entry);
+            ranked.add(entry);
+        });
+    }
+
+    synchronized List<Entry> top(int limit) {
+        List<Entry> top = new ArrayList<>(Math.min(limit, ranked.size()));
+        Iterator<Entry> iterator = ranked.iterator();
+        while (iterator.hasNext() && top.size() < limit) {
+            top.add(iterator.next());
+        }
+        return top;
+    }
+}
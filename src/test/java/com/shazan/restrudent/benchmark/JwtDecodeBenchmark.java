@@ -0,0 +1,91 @@
+package com.shazan.restrudent.benchmark;
+
+import com.shazan.restrudent.config.JwtDecoderConfig;
+import com.shazan.restrudent.support.LocalJwtIssuer;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-request authentication cost with and without the validated-token cache: CPU time and bytes
+ * allocated per decode, with a pool of users each reusing one token as real clients do. Both
+ * decoders are built by {@link JwtDecoderConfig} with the application's defaults, so the figures
+ * are those of the decoder the application runs.
+ *
+ * <p>Run with {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.shazan.restrudent.benchmark.JwtDecodeBenchmark}; results land in
+ * {@code target/jwt-decode-benchmark.json}.
+ */
+public class JwtDecodeBenchmark {
+
+    private record Result(double cpuMicrosPerDecode, double bytesPerDecode) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = Integer.getInteger("benchmark.users", 100);
+        int iterations = Integer.getInteger("benchmark.iterations", 200_000);
+        Path output = Path.of(System.getProperty("benchmark.output", "target/jwt-decode-benchmark.json"));
+
+        try (LocalJwtIssuer issuer = new LocalJwtIssuer().start()) {
+            List<String> tokens = new ArrayList<>();
+            for (int i = 0; i < users; i++) {
+                tokens.add(issuer.token("bench-user-" + i, List.of("USER"), Duration.ofHours(1)));
+            }
+            JwtDecoder plain = decoder(issuer, false);
+            JwtDecoder cached = decoder(issuer, true);
+
+            JsonMapper mapper = JsonMapper.builder().build();
+            ObjectNode report = mapper.createObjectNode();
+            report.put("users", users);
+            report.put("iterations", iterations);
+            record(report.putObject("uncached"), measure(plain, tokens, iterations));
+            record(report.putObject("cached"), measure(cached, tokens, iterations));
+
+            Files.createDirectories(output.toAbsolutePath().getParent());
+            mapper.writerWithDefaultPrettyPrinter().writeValue(output.toFile(), report);
+            System.out.println(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+        }
+    }
+
+    private static JwtDecoder decoder(LocalJwtIssuer issuer, boolean cacheEnabled) {
+        JwtDecoderConfig config = new JwtDecoderConfig();
+        ReflectionTestUtils.setField(config, "issuerUri", issuer.issuerUri());
+        ReflectionTestUtils.setField(config, "jwkSetUri", "");
+        ReflectionTestUtils.setField(config, "jwsAlgorithms", "");
+        ReflectionTestUtils.setField(config, "cacheEnabled", cacheEnabled);
+        ReflectionTestUtils.setField(config, "cacheMaxEntries", 10_000);
+        ReflectionTestUtils.setField(config, "jwksTtlMs", 300_000L);
+        ReflectionTestUtils.setField(config, "jwksRefreshAheadMs", 60_000L);
+        ReflectionTestUtils.setField(config, "jwksTimeoutMs", 2_000);
+        return config.jwtDecoder();
+    }
+
+    private static Result measure(JwtDecoder decoder, List<String> tokens, int iterations) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        // Warm-up also fetches the JWKS, which is not what is being measured
+        for (int i = 0; i < iterations / 10; i++) {
+            decoder.decode(tokens.get(i % tokens.size()));
+        }
+        long cpuBefore = threads.getCurrentThreadCpuTime();
+        long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            decoder.decode(tokens.get(i % tokens.size()));
+        }
+        long cpu = threads.getCurrentThreadCpuTime() - cpuBefore;
+        long bytes = threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+        return new Result(cpu / 1000.0 / iterations, (double) bytes / iterations);
+    }
+
+    private static void record(ObjectNode node, Result result) {
+        node.put("cpuMicrosPerDecode", result.cpuMicrosPerDecode());
+        node.put("bytesAllocatedPerDecode", result.bytesPerDecode());
+    }
+}
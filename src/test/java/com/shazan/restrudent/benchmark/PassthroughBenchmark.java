@@ -0,0 +1,142 @@
+package com.shazan.restrudent.benchmark;
+
+import com.shazan.restrudent.RestrudentApplication;
+import com.shazan.restrudent.domain.dto.RestrurantDto;
+import com.shazan.restrudent.services.RestrurantService;
+import com.shazan.restrudent.services.RestrurantSourceStreamer;
+import com.shazan.restrudent.support.FakeElasticsearchServer;
+import com.shazan.restrudent.support.LocalJwtIssuer;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PagedModel;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Allocation per request of the restaurant list built the regular way (entities, MapStruct DTOs,
+ * a Page, Jackson serialization) against the _source passthrough, with the application booted
+ * in-process against {@link FakeElasticsearchServer}. Both paths run the same query on the
+ * calling thread, and the figures are allocated bytes across the whole JVM divided by the number
+ * of requests. That includes the Elasticsearch stand-in answering the query, which costs the same
+ * for both paths, so the difference between the two is what the passthrough saves.
+ *
+ * <p>Run with {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.shazan.restrudent.benchmark.PassthroughBenchmark}; results land in
+ * {@code target/passthrough-benchmark.json}.
+ */
+public class PassthroughBenchmark {
+    private static final String INDEX = "restrurants";
+    private static final JsonMapper MAPPER = JsonMapper.builder().build();
+
+    private record Result(long bytesPerRequest, double micros, int responseBytes) {
+    }
+
+    @FunctionalInterface
+    private interface PageWriter {
+        void write(Pageable pageable, OutputStream out) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int pageSize = Integer.getInteger("benchmark.page-size", 20);
+        int iterations = Integer.getInteger("benchmark.iterations", 2_000);
+        int seed = Integer.getInteger("benchmark.seed-restaurants", 500);
+        Path output = Path.of(System.getProperty("benchmark.output", "target/passthrough-benchmark.json"));
+        Path storage = Files.createTempDirectory("restrudent-passthrough-benchmark");
+
+        try (FakeElasticsearchServer elasticsearch = new FakeElasticsearchServer().start();
+             LocalJwtIssuer issuer = new LocalJwtIssuer().start();
+             ConfigurableApplicationContext application = SpringApplication.run(RestrudentApplication.class,
+                     "--server.port=0",
+                     "--spring.elasticsearch.uris=" + elasticsearch.uri(),
+                     "--spring.security.oauth2.resourceserver.jwt.issuer-uri=" + issuer.issuerUri(),
+                     "--app.storage.location=" + storage,
+                     "--app.storage.locations=" + storage,
+                     "--app.warmup.snapshot-path=" + storage.resolve("hot-set.json"),
+                     "--app.elasticsearch.guard.hedge.enabled=false",
+                     "--app.access-log.enabled=false",
+                     "--logging.level.root=WARN",
+                     "--logging.level.com.shazan.restrudent=WARN")) {
+
+            seed(elasticsearch, seed);
+            RestrurantService restrurantService = application.getBean(RestrurantService.class);
+            RestrurantSourceStreamer streamer = application.getBean(RestrurantSourceStreamer.class);
+            ObjectMapper objectMapper = application.getBean(ObjectMapper.class);
+
+            PageWriter dto = (pageable, out) -> {
+                Page<RestrurantDto> page = restrurantService.getAllRestrurants(pageable).content().get();
+                objectMapper.writeValue(out, new PagedModel<>(page));
+            };
+            PageWriter passthrough = streamer::streamAll;
+
+            ObjectNode report = MAPPER.createObjectNode();
+            report.put("pageSize", pageSize);
+            report.put("iterations", iterations);
+            report.put("javaVersion", System.getProperty("java.version"));
+            ObjectNode paths = report.putObject("paths");
+            Result dtoResult = measure(dto, pageSize, iterations);
+            Result passthroughResult = measure(passthrough, pageSize, iterations);
+            record(paths, "dto", dtoResult);
+            record(paths, "passthrough", passthroughResult);
+            report.put("bytesSavedPerRequest", dtoResult.bytesPerRequest() - passthroughResult.bytesPerRequest());
+
+            Files.createDirectories(output.toAbsolutePath().getParent());
+            MAPPER.writerWithDefaultPrettyPrinter().writeValue(output.toFile(), report);
+            System.out.println(MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+        }
+    }
+
+    private static Result measure(PageWriter path, int pageSize, int iterations) throws Exception {
+        ByteArrayOutputStream sample = new ByteArrayOutputStream();
+        path.write(PageRequest.of(0, pageSize), sample);
+        for (int i = 0; i < iterations / 5; i++) {
+            path.write(PageRequest.of(i % 10, pageSize), OutputStream.nullOutputStream());
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getTotalThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            path.write(PageRequest.of(i % 10, pageSize), OutputStream.nullOutputStream());
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getTotalThreadAllocatedBytes() - allocatedBefore;
+        return new Result(allocated / iterations, elapsed / 1000.0 / iterations, sample.size());
+    }
+
+    private static void record(ObjectNode paths, String name, Result result) {
+        paths.putObject(name)
+                .put("allocatedBytesPerRequest", result.bytesPerRequest())
+                .put("micros", result.micros())
+                .put("responseBytes", result.responseBytes());
+    }
+
+    private static void seed(FakeElasticsearchServer elasticsearch, int count) {
+        for (int i = 0; i < count; i++) {
+            ObjectNode document = MAPPER.createObjectNode()
+                    .put("name", "Benchmark Restaurant " + i)
+                    .put("cuisineType", i % 2 == 0 ? "Italian" : "Indian")
+                    .put("contactInformation", "+44 20 0000 " + i)
+                    .put("averageRating", 3.5 + (i % 3) / 2.0)
+                    .put("reviewCount", 10 * i);
+            document.putObject("geoLocation").put("lat", 51.5 + i / 10_000.0).put("lon", -0.12 - i / 10_000.0);
+            document.putObject("address")
+                    .put("streetNumber", Integer.toString(i))
+                    .put("streetName", "High Street")
+                    .put("city", "London")
+                    .put("country", "UK");
+            document.putObject("operatingHours").putObject("monday").put("opentTime", "09:00").put("closeTime", "22:00");
+            document.putArray("photos").addObject().put("url", "photo-" + i + ".jpg");
+            elasticsearch.putDocument(INDEX, "benchmark-" + i, MAPPER.writeValueAsString(document));
+        }
+    }
+}
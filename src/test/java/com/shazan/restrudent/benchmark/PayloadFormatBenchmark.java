@@ -0,0 +1,131 @@
+package com.shazan.restrudent.benchmark;
+
+import com.shazan.restrudent.config.BinaryFormatsConfig;
+import com.shazan.restrudent.domain.dto.AddressDto;
+import com.shazan.restrudent.domain.dto.OperatingHourDto;
+import com.shazan.restrudent.domain.dto.PhotoDto;
+import com.shazan.restrudent.domain.dto.RestrurantDto;
+import com.shazan.restrudent.domain.dto.TimeRangeDto;
+import com.shazan.restrudent.domain.dto.UserDto;
+import tools.jackson.databind.JavaType;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Size and encode/decode time of a page of restaurants as JSON, Smile and CBOR, using the same
+ * mapper settings the application registers for content negotiation.
+ *
+ * <p>Run with {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.shazan.restrudent.benchmark.PayloadFormatBenchmark}; results land in
+ * {@code target/payload-format-benchmark.json}.
+ */
+public class PayloadFormatBenchmark {
+
+    private record Result(int bytes, double encodeMicros, double decodeMicros) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int pageSize = Integer.getInteger("benchmark.page-size", 50);
+        int iterations = Integer.getInteger("benchmark.iterations", 5_000);
+        Path output = Path.of(System.getProperty("benchmark.output", "target/payload-format-benchmark.json"));
+
+        List<RestrurantDto> page = page(pageSize);
+        Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+        mappers.put("json", JsonMapper.builder().build());
+        mappers.put("smile", BinaryFormatsConfig.smileMapper());
+        mappers.put("cbor", BinaryFormatsConfig.cborMapper());
+
+        JsonMapper reportMapper = JsonMapper.builder().build();
+        ObjectNode report = reportMapper.createObjectNode();
+        report.put("pageSize", pageSize);
+        report.put("iterations", iterations);
+        ObjectNode formats = report.putObject("formats");
+        for (Map.Entry<String, ObjectMapper> entry : mappers.entrySet()) {
+            Result result = measure(entry.getValue(), page, iterations);
+            formats.putObject(entry.getKey())
+                    .put("bytes", result.bytes())
+                    .put("encodeMicros", result.encodeMicros())
+                    .put("decodeMicros", result.decodeMicros());
+        }
+
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        reportMapper.writerWithDefaultPrettyPrinter().writeValue(output.toFile(), report);
+        System.out.println(reportMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+    }
+
+    private static Result measure(ObjectMapper mapper, List<RestrurantDto> page, int iterations) {
+        JavaType type = mapper.getTypeFactory().constructCollectionType(List.class, RestrurantDto.class);
+        byte[] encoded = mapper.writeValueAsBytes(page);
+        long sink = 0;
+        for (int i = 0; i < iterations / 5; i++) {
+            sink += mapper.writeValueAsBytes(page).length;
+            sink += mapper.<List<RestrurantDto>>readValue(encoded, type).size();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += mapper.writeValueAsBytes(page).length;
+        }
+        long encodeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += mapper.<List<RestrurantDto>>readValue(encoded, type).size();
+        }
+        long decodeNanos = System.nanoTime() - start;
+
+        if (sink == 42) {
+            System.out.println();
+        }
+        return new Result(encoded.length, encodeNanos / 1000.0 / iterations, decodeNanos / 1000.0 / iterations);
+    }
+
+    private static List<RestrurantDto> page(int size) {
+        TimeRangeDto lunchAndDinner = TimeRangeDto.builder().opentTime("11:30").closeTime("23:00").build();
+        LocalDateTime now = LocalDateTime.now();
+        List<RestrurantDto> page = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            List<PhotoDto> photos = new ArrayList<>();
+            for (int p = 0; p < 3; p++) {
+                photos.add(PhotoDto.builder().url("photo-" + i + "-" + p + ".jpg").uploadDate(now.minusDays(p)).build());
+            }
+            page.add(RestrurantDto.builder()
+                    .id("restaurant-" + i)
+                    .name("Restaurant " + i)
+                    .cuisineType(i % 2 == 0 ? "Italian" : "Indian")
+                    .contactInformation("+44 20 7946 " + (1000 + i))
+                    .averageRating(3.5f + (i % 3) / 2f)
+                    .reviewCount(10 * i)
+                    .latitude(51.5 + i / 1000.0)
+                    .longitude(-0.12 - i / 1000.0)
+                    .address(AddressDto.builder()
+                            .streetNumber(Integer.toString(i))
+                            .streetName("High Street")
+                            .city("London")
+                            .postalCode("SW1A 1AA")
+                            .country("United Kingdom")
+                            .build())
+                    .operatingHours(OperatingHourDto.builder()
+                            .monday(lunchAndDinner).tuesday(lunchAndDinner).wednesday(lunchAndDinner)
+                            .thursday(lunchAndDinner).friday(lunchAndDinner).saturday(lunchAndDinner)
+                            .sunday(lunchAndDinner)
+                            .build())
+                    .photos(photos)
+                    .createdBy(UserDto.builder().id("owner-" + (i % 5)).username("owner" + (i % 5)).build())
+                    .createdAt(now.minusDays(i))
+                    .updatedAt(now)
+                    .version("1." + i)
+                    .build());
+        }
+        return page;
+    }
+}
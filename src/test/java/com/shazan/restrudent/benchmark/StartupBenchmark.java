@@ -0,0 +1,155 @@
+package com.shazan.restrudent.benchmark;
+
+import com.shazan.restrudent.support.FakeElasticsearchServer;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cold-start benchmark. Launches the packaged application in a fresh JVM against a local
+ * Elasticsearch stand-in and records time-to-first-request and heap in use right after it,
+ * once as a plain jar and once with the AOT-processed context and the CDS archive.
+ *
+ * <p>Run through the {@code startup-benchmark} Maven profile; results land in
+ * {@code target/startup-benchmark.json}.
+ */
+public class StartupBenchmark {
+    private static final Pattern HEAP_USED = Pattern.compile("used (\\d+)K");
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(120);
+
+    private record Run(long timeToFirstRequestMs, long heapUsedKb) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of(System.getProperty("benchmark.jar", "target/extracted/restrudent-0.0.1-SNAPSHOT.jar"));
+        Path archive = Path.of(System.getProperty("benchmark.archive", "target/extracted/application.jsa"));
+        Path output = Path.of(System.getProperty("benchmark.output", "target/startup-benchmark.json"));
+        int runs = Integer.getInteger("benchmark.runs", 3);
+        if (!Files.exists(jar)) {
+            throw new IllegalStateException("Application jar not found: " + jar + " (build with -Paot first)");
+        }
+
+        JsonMapper mapper = JsonMapper.builder().build();
+        ObjectNode report = mapper.createObjectNode();
+        report.put("jar", jar.toString());
+        report.put("javaVersion", System.getProperty("java.version"));
+        ObjectNode modes = report.putObject("modes");
+
+        record(modes, "baseline", measure(jar, List.of(), runs));
+        if (Files.exists(archive)) {
+            record(modes, "aot-cds", measure(jar, List.of(
+                    "-XX:SharedArchiveFile=" + archive,
+                    "-Dspring.aot.enabled=true"), runs));
+        } else {
+            System.out.println("No CDS archive at " + archive + ", skipping optimized mode");
+        }
+
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        mapper.writerWithDefaultPrettyPrinter().writeValue(output.toFile(), report);
+        System.out.println(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+    }
+
+    private static List<Run> measure(Path jar, List<String> jvmFlags, int runs) throws Exception {
+        List<Run> results = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            try (FakeElasticsearchServer elasticsearch = new FakeElasticsearchServer().start()) {
+                results.add(launch(jar, jvmFlags, elasticsearch.uri()));
+            }
+        }
+        return results;
+    }
+
+    private static Run launch(Path jar, List<String> jvmFlags, String elasticsearchUri) throws Exception {
+        int port = freePort();
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(jvmFlags);
+        command.addAll(List.of(
+                "-jar", jar.toString(),
+                "--server.port=" + port,
+                "--spring.elasticsearch.uris=" + elasticsearchUri,
+                "--logging.level.root=WARN",
+                "--logging.level.com.shazan.restrudent=WARN"));
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        HttpRequest firstRequest = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/api/restaurants")).build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        try {
+            long deadline = start + STARTUP_TIMEOUT.toNanos();
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue());
+                }
+                try {
+                    client.send(firstRequest, HttpResponse.BodyHandlers.discarding());
+                    break;
+                } catch (ConnectException e) {
+                    if (System.nanoTime() > deadline) {
+                        throw new IllegalStateException("Application did not answer within " + STARTUP_TIMEOUT);
+                    }
+                    Thread.sleep(5);
+                }
+            }
+            long timeToFirstRequestMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new Run(timeToFirstRequestMs, heapUsedKb(process.pid()));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static long heapUsedKb(long pid) throws IOException, InterruptedException {
+        String jcmd = Path.of(System.getProperty("java.home"), "bin", "jcmd").toString();
+        Process process = new ProcessBuilder(jcmd, Long.toString(pid), "GC.heap_info").redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes());
+        process.waitFor();
+        Matcher matcher = HEAP_USED.matcher(output);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    private static void record(ObjectNode modes, String mode, List<Run> runs) {
+        ObjectNode node = modes.putObject(mode);
+        ArrayNode samples = node.putArray("runs");
+        for (Run run : runs) {
+            samples.addObject()
+                    .put("timeToFirstRequestMs", run.timeToFirstRequestMs())
+                    .put("heapUsedKb", run.heapUsedKb());
+        }
+        node.put("medianTimeToFirstRequestMs", median(runs.stream().mapToLong(Run::timeToFirstRequestMs).toArray()));
+        node.put("medianHeapUsedKb", median(runs.stream().mapToLong(Run::heapUsedKb).toArray()));
+    }
+
+    private static long median(long[] values) {
+        Arrays.sort(values);
+        return values.length == 0 ? 0 : values[values.length / 2];
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
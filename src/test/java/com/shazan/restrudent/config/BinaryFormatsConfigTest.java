@@ -0,0 +1,74 @@
+package com.shazan.restrudent.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverters;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class BinaryFormatsConfigTest {
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        // The converters Boot builds for the server: the defaults, then the customizers
+        HttpMessageConverters.ServerBuilder builder = HttpMessageConverters.forServer().registerDefaults();
+        new BinaryFormatsConfig().binaryFormatsCustomizer().customize(builder);
+        List<HttpMessageConverter<?>> converters = new ArrayList<>();
+        builder.build().forEach(converters::add);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(new SampleController())
+                .setMessageConverters(converters.toArray(HttpMessageConverter[]::new))
+                .build();
+    }
+
+    @Test
+    void missingAcceptGetsJson() throws Exception {
+        mockMvc.perform(get("/sample"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void wildcardAcceptGetsJson() throws Exception {
+        mockMvc.perform(get("/sample").header(HttpHeaders.ACCEPT, MediaType.ALL_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void cborAcceptGetsCbor() throws Exception {
+        mockMvc.perform(get("/sample").header(HttpHeaders.ACCEPT, MediaType.APPLICATION_CBOR_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR));
+    }
+
+    @Test
+    void smileAcceptGetsSmile() throws Exception {
+        mockMvc.perform(get("/sample").header(HttpHeaders.ACCEPT, BinaryFormatsConfig.APPLICATION_SMILE_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(BinaryFormatsConfig.APPLICATION_SMILE_VALUE));
+    }
+
+    @RestController
+    static class SampleController {
+        @GetMapping("/sample")
+        Map<String, Object> sample() {
+            return Map.of("name", "Golden Dragon", "averageRating", 4.5);
+        }
+    }
+}
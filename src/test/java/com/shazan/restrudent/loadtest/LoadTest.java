@@ -0,0 +1,471 @@
+package com.shazan.restrudent.loadtest;
+
+import com.shazan.restrudent.RestrudentApplication;
+import com.shazan.restrudent.support.FakeElasticsearchServer;
+import com.shazan.restrudent.support.LocalJwtIssuer;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test. Boots the application in-process against {@link FakeElasticsearchServer}
+ * and {@link LocalJwtIssuer}, then drives read, search, list, write and photo upload traffic,
+ * including the passthrough and Smile/CBOR variants, at fixed arrival rates (open model: a slow
+ * response never delays the next request, and latency is taken from the intended send time).
+ * Results go to a JSON file that can be diffed between builds.
+ *
+ * <p>After the mixed run, each scenario runs alone for {@code loadtest.allocation-seconds} to
+ * measure the bytes the application allocates per request. The load generator and the
+ * Elasticsearch stand-in run on named platform threads for that, and their threads' allocation is
+ * subtracted from the JVM total; the application itself runs on virtual threads, whose allocation
+ * is counted on their carriers.
+ *
+ * <p>Run through the {@code load-test} Maven profile ({@code mvn -Pload-test verify}); tune with
+ * system properties such as {@code -Dloadtest.rates=read:400,search:100,write:20,upload:5},
+ * {@code -Dloadtest.duration-seconds}, {@code -Dloadtest.es-latency-ms} and {@code -Dloadtest.label}.
+ * The JVM-wide allocation and GC figures include the load generator.
+ */
+public class LoadTest {
+    private static final String INDEX = "restrurants";
+    private static final String[] CUISINES = {"Italian", "Indian", "Thai", "Mexican", "Japanese", "French", "Greek", "Korean"};
+    private static final String[] CITIES = {"London", "Dhaka", "Paris", "Berlin", "Madrid"};
+    private static final JsonMapper MAPPER = JsonMapper.builder().build();
+    private static final String APPLICATION_SMILE = "application/x-jackson-smile";
+    private static final String APPLICATION_CBOR = "application/cbor";
+    // Threads of the load generator and the stand-ins, left out of the application's allocation
+    private static final List<String> HARNESS_THREAD_PREFIXES =
+            List.of("load-test-", "fake-elasticsearch-", "HTTP-Dispatcher", "HttpClient-");
+
+    enum Workload { READ, SEARCH, SEARCH_PASSTHROUGH, LIST, LIST_PASSTHROUGH, LIST_SMILE, LIST_CBOR, WRITE, UPLOAD }
+
+    private record Config(Map<Workload, Double> rates, Duration warmup, Duration duration, Duration allocationPhase,
+                          int users, int seedRestaurants, int uploadBytes, long esLatencyMs, double esFailureRate,
+                          String label, Path output) {
+
+        static Config fromSystemProperties() {
+            Map<Workload, Double> rates = new EnumMap<>(Workload.class);
+            String defaultRates = "read:200,search:50,search_passthrough:20,list:20,list_passthrough:20,"
+                    + "list_smile:10,list_cbor:10,write:10,upload:5";
+            for (String entry : System.getProperty("loadtest.rates", defaultRates).split(",")) {
+                String[] parts = entry.trim().split(":");
+                rates.put(Workload.valueOf(parts[0].trim().toUpperCase()), Double.parseDouble(parts[1].trim()));
+            }
+            return new Config(
+                    rates,
+                    Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 15)),
+                    Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 60)),
+                    Duration.ofSeconds(Long.getLong("loadtest.allocation-seconds", 10)),
+                    Integer.getInteger("loadtest.users", 50),
+                    Integer.getInteger("loadtest.seed-restaurants", 5000),
+                    Integer.getInteger("loadtest.upload-bytes", 64 * 1024),
+                    Long.getLong("loadtest.es-latency-ms", 0),
+                    Double.parseDouble(System.getProperty("loadtest.es-failure-rate", "0")),
+                    System.getProperty("loadtest.label", "local"),
+                    Path.of(System.getProperty("loadtest.output", "target/load-test.json")));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.fromSystemProperties();
+        Path storage = Files.createTempDirectory("restrudent-load-test");
+
+        ThreadPoolExecutor elasticsearchThreads = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10, TimeUnit.MINUTES,
+                new SynchronousQueue<>(), Thread.ofPlatform().name("fake-elasticsearch-", 0).daemon().factory());
+
+        try (FakeElasticsearchServer elasticsearch = new FakeElasticsearchServer().withExecutor(elasticsearchThreads).start();
+             LocalJwtIssuer issuer = new LocalJwtIssuer().start();
+             ConfigurableApplicationContext application = SpringApplication.run(RestrudentApplication.class,
+                     "--server.port=0",
+                     "--spring.elasticsearch.uris=" + elasticsearch.uri(),
+                     "--spring.security.oauth2.resourceserver.jwt.issuer-uri=" + issuer.issuerUri(),
+                     "--app.storage.location=" + storage,
+                     "--app.storage.locations=" + storage,
+                     // Keep the hot-set snapshot out of the working directory; each run starts cold
+                     "--app.warmup.snapshot-path=" + storage.resolve("hot-set.json"),
+                     // Measure the application, not the per-user token buckets
+                     "--app.ratelimit.read.rate=1000000", "--app.ratelimit.read.burst=1000000",
+                     "--app.ratelimit.search.rate=1000000", "--app.ratelimit.search.burst=1000000",
+                     "--app.ratelimit.write.rate=1000000", "--app.ratelimit.write.burst=1000000",
+                     "--app.ratelimit.upload.rate=1000000", "--app.ratelimit.upload.burst=1000000",
+                     "--logging.level.root=WARN",
+                     "--logging.level.com.shazan.restrudent=WARN")) {
+
+            String baseUrl = "http://127.0.0.1:" + application.getEnvironment().getProperty("local.server.port");
+            List<String> restaurantIds = seed(elasticsearch, config.seedRestaurants());
+            List<String> tokens = new ArrayList<>();
+            Duration runTime = config.warmup().plus(config.duration())
+                    .plus(config.allocationPhase().multipliedBy(config.rates().size()));
+            for (int i = 0; i < config.users(); i++) {
+                tokens.add(issuer.token("load-user-" + i, List.of("USER"), runTime.multipliedBy(2)));
+            }
+            elasticsearch.withLatency(config.esLatencyMs()).withFailureRate(config.esFailureRate());
+
+            try (Driver driver = new Driver(baseUrl, tokens, restaurantIds, config.uploadBytes())) {
+                System.out.println("Warming up for " + config.warmup().toSeconds() + "s");
+                driver.run(config.rates(), config.warmup());
+
+                System.out.println("Measuring for " + config.duration().toSeconds() + "s");
+                JvmSnapshot before = JvmSnapshot.take();
+                long esRequestsBefore = elasticsearch.requestCount();
+                Map<Workload, Recorder> results = driver.run(config.rates(), config.duration());
+                JvmSnapshot after = JvmSnapshot.take();
+                long esRequests = elasticsearch.requestCount() - esRequestsBefore;
+
+                Map<Workload, Double> serverBytesPerRequest = new EnumMap<>(Workload.class);
+                if (!config.allocationPhase().isZero()) {
+                    for (Map.Entry<Workload, Double> rate : config.rates().entrySet()) {
+                        if (rate.getValue() <= 0) {
+                            continue;
+                        }
+                        System.out.println("Measuring allocation of " + rate.getKey().name().toLowerCase() + " alone for "
+                                + config.allocationPhase().toSeconds() + "s");
+                        AllocationSnapshot start = AllocationSnapshot.take();
+                        Recorder alone = driver.run(Map.of(rate.getKey(), rate.getValue()), config.allocationPhase())
+                                .get(rate.getKey());
+                        long bytes = AllocationSnapshot.take().serverBytesSince(start);
+                        serverBytesPerRequest.put(rate.getKey(), alone.count() == 0 ? 0 : (double) bytes / alone.count());
+                    }
+                }
+
+                ObjectNode report = report(config, results, serverBytesPerRequest, before, after, esRequests);
+                Files.createDirectories(config.output().toAbsolutePath().getParent());
+                MAPPER.writerWithDefaultPrettyPrinter().writeValue(config.output().toFile(), report);
+                System.out.println(MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+            }
+        } finally {
+            elasticsearchThreads.shutdownNow();
+        }
+    }
+
+    private static List<String> seed(FakeElasticsearchServer elasticsearch, int count) {
+        List<String> ids = new ArrayList<>(count);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < count; i++) {
+            String id = UUID.randomUUID().toString();
+            ObjectNode document = MAPPER.createObjectNode()
+                    .put("name", "Load Test Restaurant " + i)
+                    .put("cuisineType", CUISINES[i % CUISINES.length])
+                    .put("contactInformation", "+44 20 0000 " + i)
+                    .put("averageRating", Math.round(random.nextDouble(1, 5) * 10) / 10.0)
+                    .put("reviewCount", random.nextInt(0, 500));
+            document.putObject("geoLocation")
+                    .put("lat", 51.5 + random.nextDouble(-0.2, 0.2))
+                    .put("lon", -0.12 + random.nextDouble(-0.2, 0.2));
+            document.putObject("address")
+                    .put("streetNumber", Integer.toString(i))
+                    .put("streetName", "High Street")
+                    .put("city", CITIES[i % CITIES.length])
+                    .put("country", "UK");
+            document.putObject("operatingHours").putObject("monday").put("opentTime", "09:00").put("closeTime", "22:00");
+            document.putArray("photos");
+            elasticsearch.putDocument(INDEX, id, MAPPER.writeValueAsString(document));
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private static ObjectNode report(Config config, Map<Workload, Recorder> results,
+                                     Map<Workload, Double> serverBytesPerRequest, JvmSnapshot before,
+                                     JvmSnapshot after, long esRequests) {
+        double seconds = config.duration().toMillis() / 1000.0;
+        ObjectNode report = MAPPER.createObjectNode();
+        report.put("label", config.label());
+        report.put("timestamp", Instant.now().toString());
+        report.put("javaVersion", System.getProperty("java.version"));
+        ObjectNode settings = report.putObject("config");
+        settings.put("durationSeconds", config.duration().toSeconds());
+        settings.put("warmupSeconds", config.warmup().toSeconds());
+        settings.put("allocationSeconds", config.allocationPhase().toSeconds());
+        settings.put("users", config.users());
+        settings.put("seedRestaurants", config.seedRestaurants());
+        settings.put("uploadBytes", config.uploadBytes());
+        settings.put("esLatencyMs", config.esLatencyMs());
+        settings.put("esFailureRate", config.esFailureRate());
+
+        ObjectNode workloads = report.putObject("workloads");
+        for (Map.Entry<Workload, Recorder> entry : results.entrySet()) {
+            Recorder recorder = entry.getValue();
+            long[] latencies = recorder.sortedLatencies();
+            ObjectNode node = workloads.putObject(entry.getKey().name().toLowerCase());
+            node.put("targetRatePerSecond", config.rates().get(entry.getKey()));
+            node.put("throughputPerSecond", recorder.ok.get() / seconds);
+            node.put("requests", latencies.length);
+            node.put("ok", recorder.ok.get());
+            node.put("rejected", recorder.rejected.get());
+            node.put("unavailable", recorder.unavailable.get());
+            node.put("errors", recorder.errors.get());
+            if (serverBytesPerRequest.containsKey(entry.getKey())) {
+                node.put("serverAllocatedBytesPerRequest", Math.round(serverBytesPerRequest.get(entry.getKey())));
+            }
+            ObjectNode latency = node.putObject("latencyMs");
+            latency.put("p50", percentile(latencies, 0.50));
+            latency.put("p90", percentile(latencies, 0.90));
+            latency.put("p99", percentile(latencies, 0.99));
+            latency.put("p999", percentile(latencies, 0.999));
+            latency.put("max", latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1000.0);
+        }
+
+        ObjectNode jvm = report.putObject("jvm");
+        jvm.put("allocationMbPerSecond", (after.allocatedBytes() - before.allocatedBytes()) / seconds / (1024 * 1024));
+        jvm.put("gcCount", after.gcCount() - before.gcCount());
+        jvm.put("gcTimeMs", after.gcTimeMs() - before.gcTimeMs());
+        report.put("elasticsearchRequests", esRequests);
+        return report;
+    }
+
+    private static double percentile(long[] sortedMicros, double quantile) {
+        if (sortedMicros.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sortedMicros.length) - 1;
+        return sortedMicros[Math.max(0, Math.min(index, sortedMicros.length - 1))] / 1000.0;
+    }
+
+    private record JvmSnapshot(long allocatedBytes, long gcCount, long gcTimeMs) {
+
+        static JvmSnapshot take() {
+            long allocated = ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getTotalThreadAllocatedBytes();
+            long count = 0;
+            long time = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, gc.getCollectionCount());
+                time += Math.max(0, gc.getCollectionTime());
+            }
+            return new JvmSnapshot(allocated, count, time);
+        }
+    }
+
+    /**
+     * Heap bytes allocated by the application: the JVM total minus what the load generator's and
+     * the stand-ins' threads allocated. Those threads are long-lived, so none of them dies between
+     * two snapshots and takes its count with it.
+     */
+    private record AllocationSnapshot(long totalBytes, Map<Long, Long> harnessBytes) {
+
+        static AllocationSnapshot take() {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            Map<Long, Long> harness = new HashMap<>();
+            for (ThreadInfo thread : threads.getThreadInfo(threads.getAllThreadIds())) {
+                if (thread != null && HARNESS_THREAD_PREFIXES.stream().anyMatch(thread.getThreadName()::startsWith)) {
+                    harness.put(thread.getThreadId(), threads.getThreadAllocatedBytes(thread.getThreadId()));
+                }
+            }
+            return new AllocationSnapshot(threads.getTotalThreadAllocatedBytes(), harness);
+        }
+
+        long serverBytesSince(AllocationSnapshot before) {
+            long harness = 0;
+            for (Map.Entry<Long, Long> thread : harnessBytes.entrySet()) {
+                harness += Math.max(0, thread.getValue()) - Math.max(0, before.harnessBytes().getOrDefault(thread.getKey(), 0L));
+            }
+            return totalBytes - before.totalBytes() - harness;
+        }
+    }
+
+    static final class Recorder {
+        private final AtomicLong ok = new AtomicLong();
+        // 429: turned away by the rate limiter or admission control
+        private final AtomicLong rejected = new AtomicLong();
+        // 503: Elasticsearch timed out or its circuit breaker is open
+        private final AtomicLong unavailable = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private long[] latencies = new long[4096];
+        private int size;
+
+        void record(long latencyMicros, int status) {
+            if (status >= 200 && status < 300) {
+                ok.incrementAndGet();
+            } else if (status == 429) {
+                rejected.incrementAndGet();
+            } else if (status == 503) {
+                unavailable.incrementAndGet();
+            } else {
+                errors.incrementAndGet();
+            }
+            synchronized (this) {
+                if (size == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, size * 2);
+                }
+                latencies[size++] = latencyMicros;
+            }
+        }
+
+        synchronized int count() {
+            return size;
+        }
+
+        synchronized long[] sortedLatencies() {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+
+    private static final class Driver implements AutoCloseable {
+        private final String baseUrl;
+        private final List<String> tokens;
+        private final List<String> restaurantIds;
+        private final byte[] photo;
+        // Platform threads, named so the allocation phase can tell them from the application's threads
+        private final ExecutorService clientThreads = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), Thread.ofPlatform().name("load-test-client-", 0).factory());
+        private final ExecutorService pacerThreads = Executors.newFixedThreadPool(
+                Workload.values().length, Thread.ofPlatform().name("load-test-pacer-", 0).factory());
+        private final HttpClient client = HttpClient.newBuilder()
+                .executor(clientThreads)
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+        private final AtomicLong inFlight = new AtomicLong();
+
+        Driver(String baseUrl, List<String> tokens, List<String> restaurantIds, int uploadBytes) {
+            this.baseUrl = baseUrl;
+            this.tokens = tokens;
+            this.restaurantIds = restaurantIds;
+            this.photo = new byte[uploadBytes];
+            ThreadLocalRandom.current().nextBytes(photo);
+        }
+
+        Map<Workload, Recorder> run(Map<Workload, Double> rates, Duration duration) throws Exception {
+            Map<Workload, Recorder> recorders = new EnumMap<>(Workload.class);
+            long start = System.nanoTime();
+            long end = start + duration.toNanos();
+            List<Future<?>> pacers = new ArrayList<>();
+            for (Map.Entry<Workload, Double> entry : rates.entrySet()) {
+                if (entry.getValue() <= 0) {
+                    continue;
+                }
+                Recorder recorder = new Recorder();
+                recorders.put(entry.getKey(), recorder);
+                long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / entry.getValue());
+                pacers.add(pacerThreads.submit(() -> {
+                    for (long intended = start; intended < end; intended += intervalNanos) {
+                        LockSupport.parkNanos(intended - System.nanoTime());
+                        send(entry.getKey(), intended, recorder);
+                    }
+                }));
+            }
+            for (Future<?> pacer : pacers) {
+                pacer.get();
+            }
+            // Requests time out after 10 s, so this always ends
+            while (inFlight.get() > 0) {
+                Thread.sleep(10);
+            }
+            return recorders;
+        }
+
+        @Override
+        public void close() {
+            pacerThreads.shutdownNow();
+            clientThreads.shutdownNow();
+        }
+
+        private void send(Workload workload, long scheduledAt, Recorder recorder) {
+            inFlight.incrementAndGet();
+            client.sendAsync(request(workload), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        recorder.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduledAt),
+                                error == null ? response.statusCode() : -1);
+                        inFlight.decrementAndGet();
+                    });
+        }
+
+        private HttpRequest request(Workload workload) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            String token = tokens.get(random.nextInt(tokens.size()));
+            return switch (workload) {
+                case READ -> authorized("/api/restaurants/" + restaurantIds.get(random.nextInt(restaurantIds.size())), token)
+                        .GET().build();
+                case SEARCH -> authorized(searchPath(random), token).GET().build();
+                case SEARCH_PASSTHROUGH -> authorized(searchPath(random) + "&passthrough=true", token).GET().build();
+                case LIST -> authorized(listPath(random), token).GET().build();
+                case LIST_PASSTHROUGH -> authorized(listPath(random) + "&passthrough=true", token).GET().build();
+                case LIST_SMILE -> authorized(listPath(random), token).header("Accept", APPLICATION_SMILE).GET().build();
+                case LIST_CBOR -> authorized(listPath(random), token).header("Accept", APPLICATION_CBOR).GET().build();
+                case WRITE -> authorized("/api/restaurants", token)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(newRestaurant(random)))
+                        .build();
+                case UPLOAD -> upload(token);
+            };
+        }
+
+        private String searchPath(ThreadLocalRandom random) {
+            return "/api/restaurants/search?query="
+                    + URLEncoder.encode(CUISINES[random.nextInt(CUISINES.length)], StandardCharsets.UTF_8);
+        }
+
+        private String listPath(ThreadLocalRandom random) {
+            return "/api/restaurants?page=" + random.nextInt(10) + "&size=20";
+        }
+
+        private HttpRequest.Builder authorized(String path, String token) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(10))
+                    .header("Authorization", "Bearer " + token);
+        }
+
+        private byte[] newRestaurant(ThreadLocalRandom random) {
+            ObjectNode body = MAPPER.createObjectNode()
+                    .put("name", "New Restaurant " + random.nextInt(1_000_000))
+                    .put("cuisineType", CUISINES[random.nextInt(CUISINES.length)])
+                    .put("contactInformation", "+44 20 1234 5678")
+                    .put("latitude", 51.5 + random.nextDouble(-0.2, 0.2))
+                    .put("longitude", -0.12 + random.nextDouble(-0.2, 0.2));
+            body.putObject("address")
+                    .put("streetNumber", "1")
+                    .put("streetName", "Market Street")
+                    .put("city", CITIES[random.nextInt(CITIES.length)])
+                    .put("country", "UK");
+            body.putObject("operatingHours").putObject("friday").put("opentTime", "17:00").put("closeTime", "01:00");
+            body.putArray("photos");
+            return MAPPER.writeValueAsBytes(body);
+        }
+
+        private HttpRequest upload(String token) {
+            String boundary = "load-test-" + UUID.randomUUID();
+            ByteArrayOutputStream body = new ByteArrayOutputStream(photo.length + 256);
+            body.writeBytes(("--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"file\"; filename=\"photo.jpg\"\r\n"
+                    + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            body.writeBytes(photo);
+            body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+            return authorized("/api/photos", token)
+                    .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                    .build();
+        }
+    }
+}
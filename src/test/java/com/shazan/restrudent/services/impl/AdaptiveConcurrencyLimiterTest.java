@@ -0,0 +1,108 @@
+package com.shazan.restrudent.services.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+    private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long FAST = TARGET / 2;
+    private static final long SLOW = TARGET * 4;
+
+    // Windows are as long as the target latency; start one window after construction
+    private long now = System.nanoTime() + TARGET;
+
+    @Test
+    void admitsUpToTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 100);
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+
+        limiter.release();
+
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void growsByOnePerWindowUnderTarget() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 100);
+
+        for (int window = 0; window < 5; window++) {
+            limiter.onSample(FAST, nextWindow());
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(15);
+    }
+
+    @Test
+    void adjustsAtMostOncePerWindow() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 100);
+        long window = nextWindow();
+
+        for (int i = 0; i < 5; i++) {
+            limiter.onSample(FAST, window + i);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(11);
+    }
+
+    @Test
+    void backsOffMultiplicativelyOverTarget() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, 1, 200, 100);
+
+        limiter.onSample(SLOW, nextWindow());
+        assertThat(limiter.getLimit()).isEqualTo(90);
+
+        limiter.onSample(SLOW, nextWindow());
+        assertThat(limiter.getLimit()).isEqualTo(81);
+    }
+
+    @Test
+    void smoothsOutASingleSlowSample() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 100);
+        limiter.onSample(FAST, nextWindow());
+
+        limiter.onSample(TARGET * 2, nextWindow());
+
+        assertThat(limiter.getLimit()).isEqualTo(12);
+    }
+
+    @Test
+    void staysWithinBounds() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 8, 12, 100);
+
+        for (int window = 0; window < 10; window++) {
+            limiter.onSample(SLOW, nextWindow());
+        }
+        assertThat(limiter.getLimit()).isEqualTo(8);
+
+        for (int window = 0; window < 50; window++) {
+            limiter.onSample(FAST, nextWindow());
+        }
+        assertThat(limiter.getLimit()).isEqualTo(12);
+    }
+
+    @Test
+    void shrinkingBelowInFlightRefusesNewPermits() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 100);
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+        }
+
+        limiter.onSample(SLOW, nextWindow());
+        limiter.release();
+
+        assertThat(limiter.getLimit()).isEqualTo(9);
+        assertThat(limiter.tryAcquire()).isFalse();
+    }
+
+    private long nextWindow() {
+        now += TARGET;
+        return now;
+    }
+}
@@ -0,0 +1,117 @@
+package com.shazan.restrudent.services.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DuplicateIndexTest {
+    private static final double MAX_DISTANCE_METERS = 150;
+    private static final double MIN_SIMILARITY = 0.7;
+
+    private final DuplicateIndex index = new DuplicateIndex(7);
+
+    @Test
+    void findsSameNameNearby() {
+        index.put("1", "The Golden Dragon Restaurant", 51.5000, -0.1200);
+
+        Optional<DuplicateIndex.Match> match = index.closest(null, "Golden Dragon", 51.5004, -0.1200,
+                MAX_DISTANCE_METERS, MIN_SIMILARITY);
+
+        assertThat(match).isPresent();
+        assertThat(match.get().entry().id()).isEqualTo("1");
+        assertThat(match.get().similarity()).isEqualTo(1.0);
+        assertThat(match.get().distanceMeters()).isBetween(40.0, 50.0);
+    }
+
+    @Test
+    void ignoresSameNameFurtherAway() {
+        index.put("1", "Golden Dragon", 51.5000, -0.1200);
+
+        assertThat(index.closest(null, "Golden Dragon", 51.5100, -0.1200, MAX_DISTANCE_METERS, MIN_SIMILARITY))
+                .isEmpty();
+    }
+
+    @Test
+    void ignoresDifferentNameNextDoor() {
+        index.put("1", "Golden Dragon", 51.5000, -0.1200);
+
+        assertThat(index.closest(null, "Pizza Express", 51.5000, -0.1200, MAX_DISTANCE_METERS, MIN_SIMILARITY))
+                .isEmpty();
+    }
+
+    @Test
+    void findsMatchesAcrossCellBoundaries() {
+        String here = DuplicateIndex.geohash(51.5000, -0.1200, 7);
+        double longitude = -0.1200;
+        while (DuplicateIndex.geohash(51.5000, longitude, 7).equals(here)) {
+            longitude += 0.0001;
+        }
+        index.put("1", "Golden Dragon", 51.5000, longitude);
+
+        assertThat(index.closest(null, "Golden Dragon", 51.5000, longitude - 0.0002, MAX_DISTANCE_METERS, MIN_SIMILARITY))
+                .isPresent();
+    }
+
+    @Test
+    void excludesTheRestaurantItself() {
+        index.put("1", "Golden Dragon", 51.5000, -0.1200);
+
+        assertThat(index.closest("1", "Golden Dragon", 51.5000, -0.1200, MAX_DISTANCE_METERS, MIN_SIMILARITY))
+                .isEmpty();
+    }
+
+    @Test
+    void claimRegistersOnlyWhenNothingMatches() {
+        assertThat(index.claim("1", "Golden Dragon", 51.5000, -0.1200, MAX_DISTANCE_METERS, MIN_SIMILARITY)).isEmpty();
+
+        Optional<DuplicateIndex.Match> second = index.claim("2", "Golden Dragon", 51.5001, -0.1200,
+                MAX_DISTANCE_METERS, MIN_SIMILARITY);
+
+        assertThat(second).map(match -> match.entry().id()).contains("1");
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void removedRestaurantsNoLongerMatch() {
+        index.put("1", "Golden Dragon", 51.5000, -0.1200);
+        index.remove("1");
+
+        assertThat(index.closest(null, "Golden Dragon", 51.5000, -0.1200, MAX_DISTANCE_METERS, MIN_SIMILARITY))
+                .isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void putMovesAnExistingEntry() {
+        index.put("1", "Golden Dragon", 51.5000, -0.1200);
+        index.put("1", "Golden Dragon", 48.8566, 2.3522);
+
+        assertThat(index.closest(null, "Golden Dragon", 51.5000, -0.1200, MAX_DISTANCE_METERS, MIN_SIMILARITY))
+                .isEmpty();
+        assertThat(index.closest(null, "Golden Dragon", 48.8566, 2.3522, MAX_DISTANCE_METERS, MIN_SIMILARITY))
+                .isPresent();
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void normalizeFoldsAccentsPunctuationAndStopWords() {
+        assertThat(DuplicateIndex.normalize("Café & Bar Ltd.")).isEqualTo("cafe bar");
+        assertThat(DuplicateIndex.normalize("  THE Joe's   Pizza ")).isEqualTo("joe s pizza");
+        assertThat(DuplicateIndex.normalize(null)).isEmpty();
+    }
+
+    @Test
+    void namesWithNothingLeftAfterNormalizationAreNotIndexed() {
+        index.put("1", "The Restaurant", 51.5000, -0.1200);
+
+        assertThat(DuplicateIndex.signature("The Restaurant")).isNull();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void geohashMatchesTheReferenceEncoding() {
+        assertThat(DuplicateIndex.geohash(57.64911, 10.40744, 11)).isEqualTo("u4pruydqqvj");
+    }
+}
@@ -0,0 +1,175 @@
+package com.shazan.restrudent.services.impl;
+
+import com.shazan.restrudent.expections.ElasticsearchUnavailableException;
+import com.shazan.restrudent.services.ElasticsearchGuard.Operation;
+import com.shazan.restrudent.support.FakeElasticsearchServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ElasticsearchGuardImplTest {
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private FakeElasticsearchServer elasticsearch;
+    private ElasticsearchGuardImpl guard;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        elasticsearch = new FakeElasticsearchServer().start();
+        guard = new ElasticsearchGuardImpl();
+        ReflectionTestUtils.setField(guard, "readTimeoutMillis", 200L);
+        ReflectionTestUtils.setField(guard, "searchTimeoutMillis", 200L);
+        ReflectionTestUtils.setField(guard, "writeTimeoutMillis", 200L);
+        ReflectionTestUtils.setField(guard, "hedgeEnabled", true);
+        ReflectionTestUtils.setField(guard, "hedgePercentile", 0.95);
+        ReflectionTestUtils.setField(guard, "hedgeMinDelayMillis", 20L);
+        ReflectionTestUtils.setField(guard, "hedgeMaxRatio", 0.5);
+        ReflectionTestUtils.setField(guard, "breakerWindowSize", 10);
+        ReflectionTestUtils.setField(guard, "breakerMinimumCalls", 5);
+        ReflectionTestUtils.setField(guard, "breakerFailureRate", 0.5);
+        ReflectionTestUtils.setField(guard, "breakerOpenMillis", 300L);
+        ReflectionTestUtils.setField(guard, "breakerHalfOpenCalls", 1);
+        guard.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        guard.shutdown();
+        elasticsearch.close();
+    }
+
+    @Test
+    void slowBackendHitsDeadline() {
+        elasticsearch.withLatency(500);
+
+        assertThatThrownBy(() -> guard.call(Operation.READ, this::ping))
+                .isInstanceOf(ElasticsearchUnavailableException.class);
+    }
+
+    @Test
+    void breakerOpensOnFailuresAndRecovers() throws InterruptedException {
+        elasticsearch.down(true);
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> guard.call(Operation.READ, this::ping))
+                    .isInstanceOf(ElasticsearchUnavailableException.class);
+        }
+        assertThat(guard.isAvailable()).isFalse();
+
+        long requestsWhileOpen = elasticsearch.requestCount();
+        assertThatThrownBy(() -> guard.call(Operation.READ, this::ping))
+                .isInstanceOf(ElasticsearchUnavailableException.class);
+        assertThat(elasticsearch.requestCount()).isEqualTo(requestsWhileOpen);
+
+        elasticsearch.down(false);
+        Thread.sleep(350);
+        assertThat(guard.call(Operation.READ, this::ping)).isEqualTo(200);
+        assertThat(guard.isAvailable()).isTrue();
+    }
+
+    @Test
+    void clientErrorsDoNotTripBreaker() {
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> guard.call(Operation.WRITE, () -> {
+                throw new IllegalArgumentException("bad request");
+            })).isInstanceOf(IllegalArgumentException.class);
+        }
+        assertThat(guard.isAvailable()).isTrue();
+    }
+
+    @Test
+    void slowReadIsHedgedAndTheFasterAttemptWins() {
+        // Enough samples for a latency percentile, so the hedge delay drops to its 20 ms minimum
+        for (int i = 0; i < 32; i++) {
+            guard.call(Operation.READ, () -> 1);
+        }
+        AtomicInteger attempts = new AtomicInteger();
+
+        long start = System.nanoTime();
+        int result = guard.call(Operation.READ, () -> attempts.incrementAndGet() == 1 ? sleepThen(150, 1) : 2);
+
+        assertThat(result).isEqualTo(2);
+        assertThat(attempts.get()).isEqualTo(2);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(150);
+    }
+
+    @Test
+    void writesAreNeverHedged() {
+        for (int i = 0; i < 32; i++) {
+            guard.call(Operation.WRITE, () -> 1);
+        }
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThat(guard.call(Operation.WRITE, () -> sleepThen(80, attempts.incrementAndGet()))).isEqualTo(1);
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    @Test
+    void writePastItsDeadlineReportsALateCommit() throws InterruptedException {
+        CountDownLatch committed = new CountDownLatch(1);
+        AtomicInteger late = new AtomicInteger();
+
+        assertThatThrownBy(() -> guard.write(() -> sleepThen(300, 7), value -> {
+            late.set(value);
+            committed.countDown();
+        })).isInstanceOf(ElasticsearchUnavailableException.class);
+
+        assertThat(committed.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(late.get()).isEqualTo(7);
+    }
+
+    @Test
+    void abandonedReadIsInterrupted() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        assertThatThrownBy(() -> guard.call(Operation.READ, () -> {
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return 0;
+        })).isInstanceOf(ElasticsearchUnavailableException.class);
+
+        assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static int sleepThen(long millis, int value) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return value;
+    }
+
+    private int ping() {
+        try {
+            HttpResponse<Void> response = httpClient.send(
+                    HttpRequest.newBuilder(URI.create(elasticsearch.uri() + "/")).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() >= 500) {
+                throw new IOException("status " + response.statusCode());
+            }
+            return response.statusCode();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
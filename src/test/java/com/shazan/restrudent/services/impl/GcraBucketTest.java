@@ -0,0 +1,79 @@
+package com.shazan.restrudent.services.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GcraBucketTest {
+    private static final long NOW = TimeUnit.SECONDS.toNanos(1000);
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // 10 permits a second, bursts of 3
+    private final GcraBucket bucket = new GcraBucket(10, 3);
+
+    @Test
+    void allowsTheBurstAtOnce() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryAcquire(NOW)).isZero();
+        }
+    }
+
+    @Test
+    void reportsTheWaitOnceTheBurstIsSpent() {
+        for (int i = 0; i < 3; i++) {
+            bucket.tryAcquire(NOW);
+        }
+
+        assertThat(bucket.tryAcquire(NOW)).isEqualTo(INTERVAL);
+        assertThat(bucket.tryAcquire(NOW + INTERVAL / 4)).isEqualTo(INTERVAL * 3 / 4);
+    }
+
+    @Test
+    void refusedRequestsDoNotUseUpPermits() {
+        for (int i = 0; i < 3; i++) {
+            bucket.tryAcquire(NOW);
+        }
+        for (int i = 0; i < 10; i++) {
+            bucket.tryAcquire(NOW);
+        }
+
+        assertThat(bucket.tryAcquire(NOW + INTERVAL)).isZero();
+    }
+
+    @Test
+    void refillsOnePermitPerInterval() {
+        for (int i = 0; i < 3; i++) {
+            bucket.tryAcquire(NOW);
+        }
+
+        assertThat(bucket.tryAcquire(NOW + INTERVAL)).isZero();
+        assertThat(bucket.tryAcquire(NOW + INTERVAL)).isPositive();
+        assertThat(bucket.tryAcquire(NOW + 3 * INTERVAL)).isZero();
+        assertThat(bucket.tryAcquire(NOW + 3 * INTERVAL)).isZero();
+        assertThat(bucket.tryAcquire(NOW + 3 * INTERVAL)).isPositive();
+    }
+
+    @Test
+    void idleBucketsRefillToNoMoreThanTheBurst() {
+        bucket.tryAcquire(NOW);
+        long later = NOW + TimeUnit.SECONDS.toNanos(60);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryAcquire(later)).isZero();
+        }
+        assertThat(bucket.tryAcquire(later)).isPositive();
+    }
+
+    @Test
+    void isIdleOnceFullyRefilled() {
+        assertThat(bucket.isIdle(NOW)).isTrue();
+
+        bucket.tryAcquire(NOW);
+        bucket.tryAcquire(NOW);
+
+        assertThat(bucket.isIdle(NOW + INTERVAL)).isFalse();
+        assertThat(bucket.isIdle(NOW + 2 * INTERVAL)).isTrue();
+    }
+}
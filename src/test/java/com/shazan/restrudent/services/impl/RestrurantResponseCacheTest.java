@@ -0,0 +1,38 @@
+package com.shazan.restrudent.services.impl;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RestrurantResponseCacheTest {
+
+    @Test
+    void acceptsGzipWhenListed() {
+        assertThat(RestrurantResponseCache.acceptsGzip("gzip, deflate, br")).isTrue();
+        assertThat(RestrurantResponseCache.acceptsGzip("br;q=1.0, GZIP;q=0.5")).isTrue();
+        assertThat(RestrurantResponseCache.acceptsGzip("x-gzip")).isTrue();
+    }
+
+    @Test
+    void refusesGzipWithAZeroWeight() {
+        assertThat(RestrurantResponseCache.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(RestrurantResponseCache.acceptsGzip("br, gzip ; q=0.000")).isFalse();
+        assertThat(RestrurantResponseCache.acceptsGzip("*, gzip;q=0")).isFalse();
+    }
+
+    @Test
+    void fallsBackToTheWildcard() {
+        assertThat(RestrurantResponseCache.acceptsGzip("br, *;q=0.1")).isTrue();
+        assertThat(RestrurantResponseCache.acceptsGzip("*;q=0")).isFalse();
+        assertThat(RestrurantResponseCache.acceptsGzip("gzip;q=0.3, *;q=0")).isTrue();
+    }
+
+    @Test
+    void refusesGzipWhenNotOffered() {
+        assertThat(RestrurantResponseCache.acceptsGzip(null)).isFalse();
+        assertThat(RestrurantResponseCache.acceptsGzip("")).isFalse();
+        assertThat(RestrurantResponseCache.acceptsGzip("identity, br")).isFalse();
+        assertThat(RestrurantResponseCache.acceptsGzip("gzipped")).isFalse();
+        assertThat(RestrurantResponseCache.acceptsGzip("gzip;q=high")).isFalse();
+    }
+}
@@ -0,0 +1,59 @@
+package com.shazan.restrudent.services.impl;
+
+import com.shazan.restrudent.domain.dto.RestrurantDto;
+import com.shazan.restrudent.expections.ElasticsearchUnavailableException;
+import com.shazan.restrudent.services.ElasticsearchGuard;
+import com.shazan.restrudent.services.ElasticsearchGuard.Operation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RestrurantServiceImplTest {
+
+    @Mock
+    private ElasticsearchGuard elasticsearchGuard;
+
+    @Spy
+    private LastKnownGoodRestrurants lastKnownGoodRestrurants = new LastKnownGoodRestrurants();
+
+    @InjectMocks
+    private RestrurantServiceImpl restrurantService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(lastKnownGoodRestrurants, "maxEntries", 10);
+        when(elasticsearchGuard.call(eq(Operation.READ), any()))
+                .thenThrow(new ElasticsearchUnavailableException("Elasticsearch is unavailable, circuit open", 5));
+    }
+
+    @Test
+    void servesLastKnownGoodCopyMarkedStaleWhileElasticsearchIsUnavailable() {
+        lastKnownGoodRestrurants.put(RestrurantDto.builder().id("eu~1").name("Sushi Bar").build());
+
+        Optional<RestrurantDto> found = restrurantService.getRestrurantById("eu~1");
+
+        assertThat(found).isPresent();
+        assertThat(found.get().getName()).isEqualTo("Sushi Bar");
+        assertThat(found.get().isStale()).isTrue();
+    }
+
+    @Test
+    void rethrowsWhenThereIsNoLastKnownGoodCopy() {
+        assertThatThrownBy(() -> restrurantService.getRestrurantById("eu~2"))
+                .isInstanceOf(ElasticsearchUnavailableException.class);
+    }
+}
@@ -0,0 +1,62 @@
+package com.shazan.restrudent.services.impl;
+
+import com.shazan.restrudent.domain.dto.RankingProfileDto;
+import com.shazan.restrudent.expections.BaseExpection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SearchRankingServiceImplTest {
+
+    private final SearchRankingServiceImpl rankingService = new SearchRankingServiceImpl();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(rankingService, "nameBoost", 3.0);
+        ReflectionTestUtils.setField(rankingService, "ratingWeight", 1.5);
+        ReflectionTestUtils.setField(rankingService, "freshnessScale", "90d");
+        ReflectionTestUtils.setField(rankingService, "distanceScale", "5km");
+        ReflectionTestUtils.setField(rankingService, "decay", 0.5);
+        rankingService.init();
+    }
+
+    @Test
+    void appliesOnlyTheGivenFields() {
+        RankingProfileDto updated = rankingService.updateProfile(RankingProfileDto.builder().ratingWeight(0.0).build());
+
+        assertThat(updated.getRatingWeight()).isZero();
+        assertThat(updated.getNameBoost()).isEqualTo(3.0);
+    }
+
+    @Test
+    void rejectsNegativeAndNonFiniteWeights() {
+        for (double invalid : new double[]{-1.0, Double.NaN, Double.POSITIVE_INFINITY}) {
+            assertThatThrownBy(() -> rankingService.updateProfile(RankingProfileDto.builder().nameBoost(invalid).build()))
+                    .isInstanceOf(BaseExpection.class);
+        }
+
+        assertThat(rankingService.getProfile().getNameBoost()).isEqualTo(3.0);
+    }
+
+    @Test
+    void rejectsDecayOutsideTheOpenUnitInterval() {
+        for (double invalid : new double[]{0.0, 1.0, Double.NaN}) {
+            assertThatThrownBy(() -> rankingService.updateProfile(RankingProfileDto.builder().decay(invalid).build()))
+                    .isInstanceOf(BaseExpection.class);
+        }
+    }
+
+    @Test
+    void leavesTheProfileUntouchedWhenAnyFieldIsInvalid() {
+        assertThatThrownBy(() -> rankingService.updateProfile(RankingProfileDto.builder()
+                .ratingWeight(2.0)
+                .distanceScale(" ")
+                .build()))
+                .isInstanceOf(BaseExpection.class);
+
+        assertThat(rankingService.getProfile().getRatingWeight()).isEqualTo(1.5);
+    }
+}
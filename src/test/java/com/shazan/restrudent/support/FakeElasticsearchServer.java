@@ -0,0 +1,682 @@
+package com.shazan.restrudent.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stand-in for the subset of the Elasticsearch REST API this application uses:
+ * index/alias admin, document CRUD, search with scroll and slices, bulk, mget and msearch.
+ * Queries are evaluated loosely (term, terms, ids, range, bool, nested, match) and scores are
+ * constant, which is enough for startup, resilience and load testing.
+ *
+ * <p>Latency and failures can be injected to exercise timeouts and circuit breaking.
+ */
+public class FakeElasticsearchServer implements AutoCloseable {
+    private static final JsonMapper MAPPER = JsonMapper.builder().build();
+
+    private final HttpServer server;
+    private final Map<String, Map<String, StoredDocument>> indices = new ConcurrentHashMap<>();
+    private final Map<String, String> aliases = new ConcurrentHashMap<>();
+    private final Map<String, List<JsonNode>> scrolls = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+
+    private volatile long latencyMillis;
+    private volatile double failureRate;
+    private volatile boolean down;
+
+    private record StoredDocument(String id, long seqNo, long version, ObjectNode source) {
+    }
+
+    public FakeElasticsearchServer() throws IOException {
+        this(0);
+    }
+
+    public FakeElasticsearchServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", this::handle);
+    }
+
+    // Must be called before start(); the load test uses named platform threads to keep the stand-in out of its figures
+    public FakeElasticsearchServer withExecutor(Executor executor) {
+        server.setExecutor(executor);
+        return this;
+    }
+
+    public FakeElasticsearchServer start() {
+        server.start();
+        return this;
+    }
+
+    public String uri() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public FakeElasticsearchServer withLatency(long millis) {
+        this.latencyMillis = millis;
+        return this;
+    }
+
+    public FakeElasticsearchServer withFailureRate(double rate) {
+        this.failureRate = rate;
+        return this;
+    }
+
+    public FakeElasticsearchServer down(boolean down) {
+        this.down = down;
+        return this;
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    public int documentCount(String indexOrAlias) {
+        Map<String, StoredDocument> index = indices.get(resolve(indexOrAlias));
+        return index == null ? 0 : index.size();
+    }
+
+    public void putDocument(String indexOrAlias, String id, String json) {
+        index(resolve(indexOrAlias), id, (ObjectNode) MAPPER.readTree(json));
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            if (down || (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate)) {
+                send(exchange, 503, error("unavailable", "injected failure"));
+                return;
+            }
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            route(exchange, body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            send(exchange, 500, error("exception", String.valueOf(e.getMessage())));
+        }
+    }
+
+    private void route(HttpExchange exchange, byte[] body) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = Arrays.stream(exchange.getRequestURI().getPath().split("/"))
+                .filter(segment -> !segment.isEmpty())
+                .map(segment -> URLDecoder.decode(segment, StandardCharsets.UTF_8))
+                .toArray(String[]::new);
+        Map<String, String> params = params(exchange.getRequestURI().getRawQuery());
+
+        if (path.length == 0) {
+            ObjectNode info = MAPPER.createObjectNode();
+            info.put("name", "fake-es").put("cluster_name", "fake").put("cluster_uuid", "fake")
+                    .put("tagline", "You Know, for Search");
+            info.putObject("version").put("number", "9.0.0").put("build_flavor", "default")
+                    .put("lucene_version", "10.0.0").put("minimum_wire_compatibility_version", "8.0.0")
+                    .put("minimum_index_compatibility_version", "8.0.0").put("build_type", "docker")
+                    .put("build_hash", "fake").put("build_date", "2025-01-01T00:00:00Z").put("build_snapshot", false);
+            send(exchange, 200, info);
+            return;
+        }
+
+        String first = path[0];
+        switch (first) {
+            case "_alias" -> handleGetAlias(exchange, method, path);
+            case "_aliases" -> handleUpdateAliases(exchange, body);
+            case "_bulk" -> handleBulk(exchange, null, body);
+            case "_mget" -> handleMget(exchange, null, body);
+            case "_msearch" -> handleMsearch(exchange, null, body);
+            case "_refresh" -> send(exchange, 200, shards());
+            case "_search" -> {
+                if (path.length > 1 && "scroll".equals(path[1])) {
+                    handleScroll(exchange, method, body);
+                } else {
+                    handleSearch(exchange, String.join(",", indices.keySet()), params, body);
+                }
+            }
+            default -> routeIndex(exchange, method, path, params, body);
+        }
+    }
+
+    private void routeIndex(HttpExchange exchange, String method, String[] path, Map<String, String> params, byte[] body)
+            throws IOException {
+        String index = path[0];
+        if (path.length == 1) {
+            switch (method) {
+                case "HEAD" -> send(exchange, exists(index) ? 200 : 404, null);
+                case "PUT" -> {
+                    indices.putIfAbsent(index, new ConcurrentHashMap<>());
+                    ObjectNode ack = MAPPER.createObjectNode();
+                    ack.put("acknowledged", true).put("shards_acknowledged", true).put("index", index);
+                    send(exchange, 200, ack);
+                }
+                case "DELETE" -> {
+                    indices.remove(index);
+                    aliases.values().removeIf(index::equals);
+                    send(exchange, 200, acknowledged());
+                }
+                default -> send(exchange, 200, MAPPER.createObjectNode().set(resolve(index), MAPPER.createObjectNode()));
+            }
+            return;
+        }
+
+        String action = path[1];
+        switch (action) {
+            case "_doc", "_create" -> handleDocument(exchange, method, index, path.length > 2 ? path[2] : null, body);
+            case "_update" -> handleUpdate(exchange, index, path[2], body);
+            case "_search" -> handleSearch(exchange, index, params, body);
+            case "_count" -> {
+                ObjectNode count = MAPPER.createObjectNode();
+                count.put("count", search(index, query(body)).size());
+                count.set("_shards", shards().get("_shards"));
+                send(exchange, 200, count);
+            }
+            case "_bulk" -> handleBulk(exchange, index, body);
+            case "_mget" -> handleMget(exchange, index, body);
+            case "_msearch" -> handleMsearch(exchange, index, body);
+            case "_refresh", "_flush" -> send(exchange, 200, shards());
+            case "_alias" -> handleGetAlias(exchange, method, new String[]{"_alias", path.length > 2 ? path[2] : ""});
+            default -> send(exchange, 200, acknowledged());
+        }
+    }
+
+    private void handleGetAlias(HttpExchange exchange, String method, String[] path) throws IOException {
+        String alias = path.length > 1 ? path[1] : "";
+        String target = aliases.get(alias);
+        if ("HEAD".equals(method)) {
+            send(exchange, target != null ? 200 : 404, null);
+            return;
+        }
+        if (target == null) {
+            ObjectNode missing = MAPPER.createObjectNode();
+            missing.put("error", "alias [" + alias + "] missing").put("status", 404);
+            send(exchange, 404, missing);
+            return;
+        }
+        ObjectNode response = MAPPER.createObjectNode();
+        response.putObject(target).putObject("aliases").putObject(alias).put("is_write_index", true);
+        send(exchange, 200, response);
+    }
+
+    private void handleUpdateAliases(HttpExchange exchange, byte[] body) throws IOException {
+        for (JsonNode action : MAPPER.readTree(body).path("actions")) {
+            if (action.has("add")) {
+                JsonNode add = action.get("add");
+                indices.putIfAbsent(add.path("index").asString(), new ConcurrentHashMap<>());
+                aliases.put(add.path("alias").asString(), add.path("index").asString());
+            } else if (action.has("remove")) {
+                aliases.remove(action.get("remove").path("alias").asString());
+            } else if (action.has("remove_index")) {
+                indices.remove(action.get("remove_index").path("index").asString());
+            }
+        }
+        send(exchange, 200, acknowledged());
+    }
+
+    private void handleDocument(HttpExchange exchange, String method, String indexOrAlias, String id, byte[] body)
+            throws IOException {
+        String index = resolve(indexOrAlias);
+        Map<String, StoredDocument> documents = indices.computeIfAbsent(index, name -> new ConcurrentHashMap<>());
+        switch (method) {
+            case "GET", "HEAD" -> {
+                StoredDocument document = documents.get(id);
+                send(exchange, document != null ? 200 : 404, getResult(index, id, document));
+            }
+            case "DELETE" -> {
+                StoredDocument removed = documents.remove(id);
+                send(exchange, removed != null ? 200 : 404, writeResult(index, id, removed, "deleted", "not_found"));
+            }
+            default -> {
+                String documentId = id != null ? id : UUID.randomUUID().toString();
+                boolean existed = documents.containsKey(documentId);
+                StoredDocument stored = index(index, documentId, (ObjectNode) MAPPER.readTree(body));
+                send(exchange, existed ? 200 : 201, writeResult(index, documentId, stored, existed ? "updated" : "created", null));
+            }
+        }
+    }
+
+    private void handleUpdate(HttpExchange exchange, String indexOrAlias, String id, byte[] body) throws IOException {
+        String index = resolve(indexOrAlias);
+        StoredDocument existing = indices.getOrDefault(index, Map.of()).get(id);
+        if (existing == null) {
+            send(exchange, 404, error("document_missing_exception", "[" + id + "]: document missing"));
+            return;
+        }
+        ObjectNode merged = existing.source().deepCopy();
+        JsonNode doc = MAPPER.readTree(body).path("doc");
+        if (doc.isObject()) {
+            merged.setAll((ObjectNode) doc);
+        }
+        StoredDocument stored = index(index, id, merged);
+        send(exchange, 200, writeResult(index, id, stored, "updated", null));
+    }
+
+    private void handleSearch(HttpExchange exchange, String indexOrAlias, Map<String, String> params, byte[] body)
+            throws IOException {
+        JsonNode request = body.length > 0 ? MAPPER.readTree(body) : MAPPER.createObjectNode();
+        List<JsonNode> hits = search(indexOrAlias, request.path("query"));
+        JsonNode slice = request.path("slice");
+        if (slice.isObject()) {
+            int sliceId = slice.path("id").asInt();
+            int max = slice.path("max").asInt(1);
+            hits = hits.stream().filter(hit -> Math.floorMod(hit.path("_id").asString().hashCode(), max) == sliceId).toList();
+        }
+        int from = request.path("from").asInt(params.containsKey("from") ? Integer.parseInt(params.get("from")) : 0);
+        int size = request.path("size").asInt(params.containsKey("size") ? Integer.parseInt(params.get("size")) : 10);
+
+        ObjectNode response = searchResponse(hits, from, size);
+        if (params.containsKey("scroll")) {
+            String scrollId = UUID.randomUUID().toString();
+            int next = Math.min(hits.size(), from + size);
+            scrolls.put(scrollId, new ArrayList<>(hits.subList(next, hits.size())));
+            response.put("_scroll_id", scrollId);
+        }
+        addAggregations(response, request, hits);
+        send(exchange, 200, response);
+    }
+
+    private void handleScroll(HttpExchange exchange, String method, byte[] body) throws IOException {
+        JsonNode request = body.length > 0 ? MAPPER.readTree(body) : MAPPER.createObjectNode();
+        if ("DELETE".equals(method)) {
+            for (JsonNode id : request.path("scroll_id")) {
+                scrolls.remove(id.asString());
+            }
+            ObjectNode cleared = MAPPER.createObjectNode();
+            cleared.put("succeeded", true).put("num_freed", 1);
+            send(exchange, 200, cleared);
+            return;
+        }
+        String scrollId = request.path("scroll_id").asString();
+        List<JsonNode> remaining = scrolls.getOrDefault(scrollId, List.of());
+        int size = Math.min(remaining.size(), 500);
+        ObjectNode response = searchResponse(remaining, 0, size);
+        scrolls.put(scrollId, new ArrayList<>(remaining.subList(size, remaining.size())));
+        response.put("_scroll_id", scrollId);
+        send(exchange, 200, response);
+    }
+
+    private void handleBulk(HttpExchange exchange, String defaultIndex, byte[] body) throws IOException {
+        String[] lines = new String(body, StandardCharsets.UTF_8).split("\n");
+        ArrayNode items = MAPPER.createArrayNode();
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i].isBlank()) {
+                continue;
+            }
+            JsonNode action = MAPPER.readTree(lines[i]);
+            String type = action.propertyNames().iterator().next();
+            JsonNode meta = action.get(type);
+            String index = resolve(meta.path("_index").asString(defaultIndex));
+            String id = meta.path("_id").asString(UUID.randomUUID().toString());
+            ObjectNode result;
+            if ("delete".equals(type)) {
+                StoredDocument removed = indices.getOrDefault(index, Map.of()).remove(id);
+                result = writeResult(index, id, removed, "deleted", "not_found");
+                result.put("status", removed != null ? 200 : 404);
+            } else {
+                JsonNode source = MAPPER.readTree(lines[++i]);
+                if ("update".equals(type)) {
+                    StoredDocument existing = indices.getOrDefault(index, Map.of()).get(id);
+                    ObjectNode merged = existing != null ? existing.source().deepCopy() : MAPPER.createObjectNode();
+                    merged.setAll((ObjectNode) source.path("doc"));
+                    source = merged;
+                }
+                StoredDocument stored = index(index, id, (ObjectNode) source);
+                result = writeResult(index, id, stored, "created", null);
+                result.put("status", 201);
+            }
+            items.addObject().set(type, result);
+        }
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("took", 1).put("errors", false).set("items", items);
+        send(exchange, 200, response);
+    }
+
+    private void handleMget(HttpExchange exchange, String defaultIndex, byte[] body) throws IOException {
+        JsonNode request = MAPPER.readTree(body);
+        ArrayNode docs = MAPPER.createArrayNode();
+        List<String[]> requested = new ArrayList<>();
+        for (JsonNode doc : request.path("docs")) {
+            requested.add(new String[]{doc.path("_index").asString(defaultIndex), doc.path("_id").asString()});
+        }
+        for (JsonNode id : request.path("ids")) {
+            requested.add(new String[]{defaultIndex, id.asString()});
+        }
+        for (String[] doc : requested) {
+            String index = resolve(doc[0]);
+            docs.add(getResult(index, doc[1], indices.getOrDefault(index, Map.of()).get(doc[1])));
+        }
+        ObjectNode response = MAPPER.createObjectNode();
+        response.set("docs", docs);
+        send(exchange, 200, response);
+    }
+
+    private void handleMsearch(HttpExchange exchange, String defaultIndex, byte[] body) throws IOException {
+        String[] lines = new String(body, StandardCharsets.UTF_8).split("\n");
+        ArrayNode responses = MAPPER.createArrayNode();
+        for (int i = 0; i + 1 < lines.length; i += 2) {
+            JsonNode header = MAPPER.readTree(lines[i]);
+            JsonNode request = MAPPER.readTree(lines[i + 1]);
+            JsonNode indexNode = header.path("index");
+            String index = indexNode.isArray() ? indexNode.get(0).asString() : indexNode.asString(defaultIndex);
+            List<JsonNode> hits = search(index, request.path("query"));
+            ObjectNode response = searchResponse(hits, request.path("from").asInt(0), request.path("size").asInt(10));
+            response.put("status", 200);
+            responses.add(response);
+        }
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("took", 1).set("responses", responses);
+        send(exchange, 200, response);
+    }
+
+    private StoredDocument index(String index, String id, ObjectNode source) {
+        Map<String, StoredDocument> documents = indices.computeIfAbsent(index, name -> new ConcurrentHashMap<>());
+        return documents.compute(id, (key, existing) -> new StoredDocument(id, sequence.incrementAndGet(),
+                existing != null ? existing.version() + 1 : 1, source));
+    }
+
+    private List<JsonNode> search(String indexOrAlias, JsonNode query) {
+        List<JsonNode> hits = new ArrayList<>();
+        for (String name : indexOrAlias.split(",")) {
+            String index = resolve(name);
+            for (StoredDocument document : indices.getOrDefault(index, Map.of()).values()) {
+                if (matches(query, document)) {
+                    hits.add(hit(index, document));
+                }
+            }
+        }
+        hits.sort((left, right) -> left.path("_id").asString().compareTo(right.path("_id").asString()));
+        return hits;
+    }
+
+    private boolean matches(JsonNode query, StoredDocument document) {
+        if (query == null || query.isMissingNode() || query.isEmpty()) {
+            return true;
+        }
+        String type = query.propertyNames().iterator().next();
+        JsonNode body = query.get(type);
+        return switch (type) {
+            case "ids" -> {
+                for (JsonNode id : body.path("values")) {
+                    if (id.asString().equals(document.id())) {
+                        yield true;
+                    }
+                }
+                yield false;
+            }
+            case "term" -> {
+                String field = body.propertyNames().iterator().next();
+                JsonNode expected = body.get(field).isObject() ? body.get(field).path("value") : body.get(field);
+                yield values(document.source(), field).stream().anyMatch(value -> value.asString().equals(expected.asString()));
+            }
+            case "terms" -> {
+                String field = body.propertyNames().iterator().next();
+                List<JsonNode> actual = values(document.source(), field);
+                for (JsonNode expected : body.get(field)) {
+                    if (actual.stream().anyMatch(value -> value.asString().equals(expected.asString()))) {
+                        yield true;
+                    }
+                }
+                yield false;
+            }
+            case "range" -> {
+                String field = body.propertyNames().iterator().next();
+                JsonNode bounds = body.get(field);
+                yield values(document.source(), field).stream().anyMatch(value -> inRange(value, bounds));
+            }
+            case "exists" -> !values(document.source(), body.path("field").asString()).isEmpty();
+            case "bool" -> {
+                for (String clause : List.of("must", "filter")) {
+                    for (JsonNode inner : asList(body.path(clause))) {
+                        if (!matches(inner, document)) {
+                            yield false;
+                        }
+                    }
+                }
+                for (JsonNode inner : asList(body.path("must_not"))) {
+                    if (matches(inner, document)) {
+                        yield false;
+                    }
+                }
+                List<JsonNode> should = asList(body.path("should"));
+                yield should.isEmpty() || should.stream().anyMatch(inner -> matches(inner, document));
+            }
+            case "nested", "constant_score", "function_score" -> matches(
+                    body.has("query") ? body.get("query") : body.path("filter"), document);
+            case "match", "match_phrase", "match_phrase_prefix" -> {
+                String field = body.propertyNames().iterator().next();
+                JsonNode value = body.get(field);
+                String text = (value.isObject() ? value.path("query") : value).asString().toLowerCase();
+                yield values(document.source(), field).stream().anyMatch(actual -> actual.asString().toLowerCase().contains(text));
+            }
+            case "multi_match", "query_string", "simple_query_string" -> {
+                String text = body.path("query").asString().toLowerCase();
+                yield document.source().toString().toLowerCase().contains(text);
+            }
+            default -> true;
+        };
+    }
+
+    private boolean inRange(JsonNode value, JsonNode bounds) {
+        for (String operator : List.of("gte", "gt", "lte", "lt")) {
+            if (!bounds.has(operator)) {
+                continue;
+            }
+            JsonNode bound = bounds.get(operator);
+            int comparison = value.isNumber() && bound.isNumber()
+                    ? Double.compare(value.asDouble(), bound.asDouble())
+                    : value.asString().compareTo(bound.asString());
+            boolean ok = switch (operator) {
+                case "gte" -> comparison >= 0;
+                case "gt" -> comparison > 0;
+                case "lte" -> comparison <= 0;
+                default -> comparison < 0;
+            };
+            if (!ok) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<JsonNode> values(JsonNode source, String dottedPath) {
+        List<JsonNode> current = List.of(source);
+        for (String segment : dottedPath.replace(".keyword", "").split("\\.")) {
+            List<JsonNode> next = new ArrayList<>();
+            for (JsonNode node : current) {
+                JsonNode child = node.path(segment);
+                if (child.isArray()) {
+                    child.forEach(next::add);
+                } else if (!child.isMissingNode() && !child.isNull()) {
+                    next.add(child);
+                }
+            }
+            current = next;
+        }
+        List<JsonNode> leaves = new ArrayList<>();
+        for (JsonNode node : current) {
+            if (node.isArray()) {
+                node.forEach(leaves::add);
+            } else {
+                leaves.add(node);
+            }
+        }
+        return leaves;
+    }
+
+    private List<JsonNode> asList(JsonNode node) {
+        List<JsonNode> list = new ArrayList<>();
+        if (node.isArray()) {
+            node.forEach(list::add);
+        } else if (node.isObject()) {
+            list.add(node);
+        }
+        return list;
+    }
+
+    private void addAggregations(ObjectNode response, JsonNode request, List<JsonNode> hits) {
+        JsonNode aggregations = request.has("aggregations") ? request.get("aggregations") : request.path("aggs");
+        if (!aggregations.isObject()) {
+            return;
+        }
+        ObjectNode result = response.putObject("aggregations");
+        for (Map.Entry<String, JsonNode> aggregation : aggregations.properties()) {
+            String type = aggregation.getValue().propertyNames().iterator().next();
+            String field = aggregation.getValue().get(type).path("field").asString();
+            double[] numbers = hits.stream()
+                    .flatMap(hit -> values(hit.get("_source"), field).stream())
+                    .filter(JsonNode::isNumber)
+                    .mapToDouble(JsonNode::asDouble)
+                    .toArray();
+            ObjectNode value = result.putObject(type + "#" + aggregation.getKey());
+            switch (type) {
+                case "avg" -> {
+                    if (numbers.length == 0) {
+                        value.putNull("value");
+                    } else {
+                        value.put("value", Arrays.stream(numbers).average().orElse(0));
+                    }
+                }
+                case "sum" -> value.put("value", Arrays.stream(numbers).sum());
+                case "min" -> value.put("value", Arrays.stream(numbers).min().orElse(0));
+                case "max" -> value.put("value", Arrays.stream(numbers).max().orElse(0));
+                case "value_count" -> value.put("value", numbers.length);
+                default -> {
+                    value.put("doc_count", hits.size());
+                    value.put("bg_count", hits.size());
+                    value.putArray("buckets");
+                }
+            }
+        }
+    }
+
+    private ObjectNode searchResponse(List<JsonNode> hits, int from, int size) {
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("took", 1).put("timed_out", false);
+        response.set("_shards", shards().get("_shards"));
+        ObjectNode hitsNode = response.putObject("hits");
+        hitsNode.putObject("total").put("value", hits.size()).put("relation", "eq");
+        hitsNode.put("max_score", 1.0);
+        ArrayNode page = hitsNode.putArray("hits");
+        for (int i = from; i < Math.min(hits.size(), from + size); i++) {
+            page.add(hits.get(i));
+        }
+        return response;
+    }
+
+    private ObjectNode hit(String index, StoredDocument document) {
+        ObjectNode hit = MAPPER.createObjectNode();
+        hit.put("_index", index).put("_id", document.id()).put("_score", 1.0)
+                .put("_seq_no", document.seqNo()).put("_primary_term", 1).put("_version", document.version());
+        hit.set("_source", document.source());
+        return hit;
+    }
+
+    private ObjectNode getResult(String index, String id, StoredDocument document) {
+        ObjectNode result = MAPPER.createObjectNode();
+        result.put("_index", index).put("_id", id).put("found", document != null);
+        if (document != null) {
+            result.put("_version", document.version()).put("_seq_no", document.seqNo()).put("_primary_term", 1);
+            result.set("_source", document.source());
+        }
+        return result;
+    }
+
+    private ObjectNode writeResult(String index, String id, StoredDocument document, String result, String missingResult) {
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("_index", index).put("_id", id)
+                .put("_version", document != null ? document.version() : 1)
+                .put("result", document != null || missingResult == null ? result : missingResult)
+                .put("_seq_no", document != null ? document.seqNo() : sequence.get())
+                .put("_primary_term", 1);
+        response.set("_shards", shards().get("_shards"));
+        return response;
+    }
+
+    private ObjectNode shards() {
+        ObjectNode response = MAPPER.createObjectNode();
+        response.putObject("_shards").put("total", 1).put("successful", 1).put("skipped", 0).put("failed", 0);
+        return response;
+    }
+
+    private ObjectNode acknowledged() {
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("acknowledged", true);
+        return response;
+    }
+
+    private ObjectNode error(String type, String reason) {
+        ObjectNode response = MAPPER.createObjectNode();
+        ObjectNode error = response.putObject("error");
+        error.put("type", type).put("reason", reason);
+        error.putArray("root_cause").addObject().put("type", type).put("reason", reason);
+        response.put("status", 503);
+        return response;
+    }
+
+    private boolean exists(String name) {
+        return indices.containsKey(name) || aliases.containsKey(name);
+    }
+
+    private String resolve(String name) {
+        return aliases.getOrDefault(name, name);
+    }
+
+    private JsonNode query(byte[] body) {
+        return body.length > 0 ? MAPPER.readTree(body).path("query") : MAPPER.missingNode();
+    }
+
+    private Map<String, String> params(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = URLDecoder.decode(separator < 0 ? pair : pair.substring(0, separator), StandardCharsets.UTF_8);
+            String value = separator < 0 ? "" : URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private void send(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        exchange.getResponseHeaders().set("X-Elastic-Product", "Elasticsearch");
+        exchange.getResponseHeaders().set("Content-Type", "application/vnd.elasticsearch+json;compatible-with=9");
+        if (body == null || "HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = MAPPER.writeValueAsBytes(body);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
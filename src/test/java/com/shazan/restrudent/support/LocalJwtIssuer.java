@@ -0,0 +1,140 @@
+package com.shazan.restrudent.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+
+/**
+ * In-process stand-in for the Keycloak realm: serves OpenID discovery and a JWKS with one RSA key
+ * and mints RS256 access tokens shaped like Keycloak's (sub, preferred_username, realm_access.roles),
+ * so the resource server validates them exactly as it would in production.
+ */
+public class LocalJwtIssuer implements AutoCloseable {
+    private static final JsonMapper MAPPER = JsonMapper.builder().build();
+    private static final String REALM_PATH = "/realms/load-test";
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    private final HttpServer server;
+    private final KeyPair keyPair;
+    private final String keyId = UUID.randomUUID().toString();
+
+    public LocalJwtIssuer() throws IOException {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            keyPair = generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("RSA is not available", e);
+        }
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext(REALM_PATH + "/.well-known/openid-configuration", exchange -> send(exchange, discovery()));
+        server.createContext(REALM_PATH + "/protocol/openid-connect/certs", exchange -> send(exchange, jwks()));
+    }
+
+    public LocalJwtIssuer start() {
+        server.start();
+        return this;
+    }
+
+    public String issuerUri() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + REALM_PATH;
+    }
+
+    public String token(String subject, List<String> roles, Duration lifetime) {
+        Instant now = Instant.now();
+        ObjectNode header = MAPPER.createObjectNode()
+                .put("alg", "RS256")
+                .put("typ", "JWT")
+                .put("kid", keyId);
+        ObjectNode claims = MAPPER.createObjectNode()
+                .put("iss", issuerUri())
+                .put("sub", subject)
+                .put("preferred_username", subject)
+                .put("given_name", subject)
+                .put("family_name", "Load")
+                .put("iat", now.getEpochSecond())
+                .put("exp", now.plus(lifetime).getEpochSecond());
+        ArrayNode realmRoles = claims.putObject("realm_access").putArray("roles");
+        roles.forEach(realmRoles::add);
+
+        String signingInput = encode(MAPPER.writeValueAsBytes(header)) + "." + encode(MAPPER.writeValueAsBytes(claims));
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(keyPair.getPrivate());
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + encode(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign token", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private ObjectNode discovery() {
+        ObjectNode discovery = MAPPER.createObjectNode()
+                .put("issuer", issuerUri())
+                .put("jwks_uri", issuerUri() + "/protocol/openid-connect/certs")
+                .put("token_endpoint", issuerUri() + "/protocol/openid-connect/token")
+                .put("authorization_endpoint", issuerUri() + "/protocol/openid-connect/auth");
+        discovery.putArray("subject_types_supported").add("public");
+        return discovery;
+    }
+
+    private ObjectNode jwks() {
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        ObjectNode jwks = MAPPER.createObjectNode();
+        jwks.putArray("keys").addObject()
+                .put("kty", "RSA")
+                .put("kid", keyId)
+                .put("use", "sig")
+                .put("alg", "RS256")
+                .put("n", encode(unsigned(publicKey.getModulus())))
+                .put("e", encode(unsigned(publicKey.getPublicExponent())));
+        return jwks;
+    }
+
+    private static byte[] unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] trimmed = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, trimmed, 0, trimmed.length);
+            return trimmed;
+        }
+        return bytes;
+    }
+
+    private static String encode(byte[] bytes) {
+        return BASE64_URL.encodeToString(bytes);
+    }
+
+    private static void send(HttpExchange exchange, ObjectNode body) throws IOException {
+        try (exchange) {
+            byte[] bytes = MAPPER.writeValueAsBytes(body);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+}